@@ -0,0 +1,88 @@
+package org.mitre.synthea;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+import org.mitre.synthea.engine.Generator;
+import org.mitre.synthea.export.Exporter;
+import org.mitre.synthea.helpers.Config;
+import org.mitre.synthea.world.agents.Person;
+
+/**
+ * Fixed-seed fixtures shared by the benchmarks, so that results are comparable from one run
+ * to the next.
+ */
+public abstract class BenchmarkFixtures {
+
+  /** Seed for the population. */
+  public static final long SEED = 42L;
+  /** Seed for the providers and clinicians. */
+  public static final long CLINICIAN_SEED = 42L;
+  /** Fixed reference time for the simulation, so results do not depend on the current date. */
+  public static final long REFERENCE_TIME =
+      LocalDateTime.of(2020, 1, 1, 0, 0).toInstant(ZoneOffset.UTC).toEpochMilli();
+  /** The state used for every benchmark. */
+  public static final String STATE = "Massachusetts";
+
+  /**
+   * Disable all exporters, and send any output that is produced to a temporary folder.
+   * @throws IOException if the temporary folder cannot be created.
+   */
+  public static void exportOff() throws IOException {
+    Config.set("exporter.baseDirectory",
+        Files.createTempDirectory("synthea-jmh").toAbsolutePath().toString());
+    Config.set("exporter.use_uuid_filenames", "false");
+    Config.set("exporter.subfolders_by_id_substring", "false");
+    Config.set("exporter.ccda.export", "false");
+    Config.set("exporter.fhir_stu3.export", "false");
+    Config.set("exporter.fhir_dstu2.export", "false");
+    Config.set("exporter.fhir.export", "false");
+    Config.set("exporter.fhir.bulk_data", "false");
+    Config.set("exporter.text.export", "false");
+    Config.set("exporter.text.per_encounter_export", "false");
+    Config.set("exporter.csv.export", "false");
+    Config.set("exporter.split_records", "false");
+    Config.set("exporter.symptoms.csv.export", "false");
+    Config.set("exporter.symptoms.text.export", "false");
+    Config.set("exporter.cpcds.export", "false");
+    Config.set("exporter.cdw.export", "false");
+    Config.set("exporter.hospital.fhir_stu3.export", "false");
+    Config.set("exporter.hospital.fhir_dstu2.export", "false");
+    Config.set("exporter.hospital.fhir.export", "false");
+    Config.set("exporter.practitioner.fhir_stu3.export", "false");
+    Config.set("exporter.practitioner.fhir_dstu2.export", "false");
+    Config.set("exporter.practitioner.fhir.export", "false");
+    Config.set("exporter.cost_access_outcomes_report", "false");
+    Config.set("generate.terminology_service_url", "");
+    Config.set("generate.log_patients.detail", "none");
+    Config.set("generate.scheduler.progress_interval", "0");
+  }
+
+  /**
+   * Create a Generator with fixed seeds, reference time and stop time.
+   * @return the generator.
+   */
+  public static Generator generator() {
+    Generator.GeneratorOptions options = new Generator.GeneratorOptions();
+    options.population = 1;
+    options.seed = SEED;
+    options.clinicianSeed = CLINICIAN_SEED;
+    options.referenceTime = REFERENCE_TIME;
+    options.state = STATE;
+    Generator generator = new Generator(options, new Exporter.ExporterRuntimeOptions());
+    generator.stop = REFERENCE_TIME;
+    return generator;
+  }
+
+  /**
+   * Simulate a single person with a fixed seed.
+   * @param generator The generator, from {@link #generator()}.
+   * @param index The index of the person, which selects their seed.
+   * @return the simulated person.
+   */
+  public static Person person(Generator generator, int index) {
+    return generator.generatePerson(index, SEED + index);
+  }
+}
@@ -0,0 +1,53 @@
+package org.mitre.synthea.engine;
+
+import java.util.concurrent.TimeUnit;
+
+import org.mitre.synthea.BenchmarkFixtures;
+import org.mitre.synthea.world.agents.Person;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Simulates complete people with Generator.generatePerson. Each invocation uses the next of a
+ * fixed cycle of seeds, so every run simulates the same people in the same order.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 5, time = 10)
+@Fork(1)
+public class GeneratorBenchmark {
+
+  /** Number of distinct people to cycle through. */
+  private static final int PEOPLE = 32;
+
+  private Generator generator;
+  private int index;
+
+  /**
+   * Create the generator. This loads modules, providers and payers.
+   * @throws Exception on configuration errors.
+   */
+  @Setup
+  public void setup() throws Exception {
+    BenchmarkFixtures.exportOff();
+    generator = BenchmarkFixtures.generator();
+    index = 0;
+  }
+
+  @Benchmark
+  public Person generatePerson() {
+    Person person = BenchmarkFixtures.person(generator, index);
+    index = (index + 1) % PEOPLE;
+    return person;
+  }
+}
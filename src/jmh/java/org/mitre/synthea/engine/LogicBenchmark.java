@@ -0,0 +1,98 @@
+package org.mitre.synthea.engine;
+
+import com.google.gson.JsonParser;
+
+import java.util.concurrent.TimeUnit;
+
+import org.mitre.synthea.BenchmarkFixtures;
+import org.mitre.synthea.helpers.Utilities;
+import org.mitre.synthea.world.agents.Person;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Evaluates common Logic conditions against a fully simulated person with a fixed seed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LogicBenchmark {
+
+  private static final String AGE =
+      "{\"condition_type\":\"Age\",\"operator\":\"<\",\"quantity\":40,\"unit\":\"years\"}";
+  private static final String ACTIVE_CONDITION =
+      "{\"condition_type\":\"Active Condition\",\"codes\":[{\"system\":\"SNOMED-CT\","
+      + "\"code\":\"73211009\",\"display\":\"Diabetes mellitus\"}]}";
+  private static final String OBSERVATION =
+      "{\"condition_type\":\"Observation\",\"codes\":[{\"system\":\"LOINC\","
+      + "\"code\":\"4548-4\",\"display\":\"Hemoglobin A1c\"}],"
+      + "\"operator\":\">\",\"value\":6.5}";
+  private static final String PRIOR_STATE =
+      "{\"condition_type\":\"PriorState\",\"name\":\"Wellness_Encounter\","
+      + "\"within\":{\"quantity\":3,\"unit\":\"years\"}}";
+  private static final String COMPOUND =
+      "{\"condition_type\":\"And\",\"conditions\":[" + AGE + ",{\"condition_type\":\"Or\","
+      + "\"conditions\":[" + ACTIVE_CONDITION + "," + OBSERVATION + "]}]}";
+
+  private Person person;
+  private Logic age;
+  private Logic activeCondition;
+  private Logic observation;
+  private Logic priorState;
+  private Logic compound;
+
+  /**
+   * Simulate the person and parse the conditions.
+   * @throws Exception on configuration errors.
+   */
+  @Setup
+  public void setup() throws Exception {
+    BenchmarkFixtures.exportOff();
+    person = BenchmarkFixtures.person(BenchmarkFixtures.generator(), 0);
+    age = parse(AGE);
+    activeCondition = parse(ACTIVE_CONDITION);
+    observation = parse(OBSERVATION);
+    priorState = parse(PRIOR_STATE);
+    compound = parse(COMPOUND);
+  }
+
+  private static Logic parse(String json) {
+    return Utilities.getGson().fromJson(JsonParser.parseString(json), Logic.class);
+  }
+
+  @Benchmark
+  public boolean age() {
+    return age.test(person, BenchmarkFixtures.REFERENCE_TIME);
+  }
+
+  @Benchmark
+  public boolean activeCondition() {
+    return activeCondition.test(person, BenchmarkFixtures.REFERENCE_TIME);
+  }
+
+  @Benchmark
+  public boolean observation() {
+    return observation.test(person, BenchmarkFixtures.REFERENCE_TIME);
+  }
+
+  @Benchmark
+  public boolean priorState() {
+    return priorState.test(person, BenchmarkFixtures.REFERENCE_TIME);
+  }
+
+  @Benchmark
+  public boolean compound() {
+    return compound.test(person, BenchmarkFixtures.REFERENCE_TIME);
+  }
+}
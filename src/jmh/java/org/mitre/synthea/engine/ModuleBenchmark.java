@@ -0,0 +1,86 @@
+package org.mitre.synthea.engine;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.mitre.synthea.BenchmarkFixtures;
+import org.mitre.synthea.helpers.Utilities;
+import org.mitre.synthea.modules.LifecycleModule;
+import org.mitre.synthea.world.agents.Person;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Runs a single generic module with Module.process over a fixed number of years of weekly
+ * timesteps, for a freshly born person with a fixed seed.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ModuleBenchmark {
+
+  @Param({ "allergies", "asthma", "diabetes", "hypertension", "wellness_encounters" })
+  public String modulePath;
+
+  @Param({ "50" })
+  public int years;
+
+  private Generator generator;
+  private Module module;
+  private Map<String, Object> demographics;
+  private Person person;
+  private long timestep;
+
+  /**
+   * Load the module being benchmarked.
+   * @throws Exception on configuration errors.
+   */
+  @Setup(Level.Trial)
+  public void setupTrial() throws Exception {
+    BenchmarkFixtures.exportOff();
+    generator = BenchmarkFixtures.generator();
+    module = Module.getModuleByPath(modulePath);
+    if (module == null) {
+      throw new IllegalArgumentException("Unknown module: " + modulePath);
+    }
+    timestep = generator.timestep;
+    demographics = generator.randomDemographics(new Random(BenchmarkFixtures.SEED));
+  }
+
+  /**
+   * Create a newborn with the same seed and demographics for every invocation.
+   */
+  @Setup(Level.Invocation)
+  public void setupInvocation() {
+    person = new Person(BenchmarkFixtures.SEED);
+    person.attributes.putAll(demographics);
+    long birthdate = BenchmarkFixtures.REFERENCE_TIME - Utilities.convertTime("years", years);
+    person.attributes.put(Person.BIRTHDATE, birthdate);
+    person.attributes.put(Person.LOCATION, generator.location);
+    person.lastUpdated = birthdate;
+    LifecycleModule.birth(person, birthdate);
+  }
+
+  @Benchmark
+  public Person process() {
+    long time = person.lastUpdated;
+    while (time < BenchmarkFixtures.REFERENCE_TIME && !module.process(person, time)) {
+      time += timestep;
+    }
+    return person;
+  }
+}
@@ -0,0 +1,63 @@
+package org.mitre.synthea.engine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.mitre.synthea.BenchmarkFixtures;
+import org.mitre.synthea.world.agents.Person;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Follows every distributed transition in the loaded modules, which exercises
+ * Transition.pickDistributedTransition with the distributions the modules actually use.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TransitionBenchmark {
+
+  private Transition[] transitions;
+  private Person person;
+  private int index;
+
+  /**
+   * Collect the distributed transitions from every module.
+   * @throws Exception on configuration errors.
+   */
+  @Setup
+  public void setup() throws Exception {
+    BenchmarkFixtures.exportOff();
+    List<Transition> found = new ArrayList<Transition>();
+    for (Module module : Module.getModules()) {
+      for (String name : module.getStateNames()) {
+        Transition transition = module.getState(name).getTransition();
+        if (transition instanceof Transition.DistributedTransition) {
+          found.add(transition);
+        }
+      }
+    }
+    transitions = found.toArray(new Transition[0]);
+    person = new Person(BenchmarkFixtures.SEED);
+    index = 0;
+  }
+
+  @Benchmark
+  public String followDistributed() {
+    String next = transitions[index].follow(person, BenchmarkFixtures.REFERENCE_TIME);
+    index = (index + 1) % transitions.length;
+    return next;
+  }
+}
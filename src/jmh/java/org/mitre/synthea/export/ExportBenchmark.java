@@ -0,0 +1,69 @@
+package org.mitre.synthea.export;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.mitre.synthea.BenchmarkFixtures;
+import org.mitre.synthea.engine.Generator;
+import org.mitre.synthea.world.agents.Person;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Exports a fixed set of simulated people as FHIR R4 JSON and as CSV.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ExportBenchmark {
+
+  /** Number of distinct people to cycle through. */
+  private static final int PEOPLE = 8;
+
+  private Person[] people;
+  private int index;
+
+  /**
+   * Simulate the people to export.
+   * @throws Exception on configuration errors.
+   */
+  @Setup
+  public void setup() throws Exception {
+    BenchmarkFixtures.exportOff();
+    Generator generator = BenchmarkFixtures.generator();
+    people = new Person[PEOPLE];
+    for (int i = 0; i < PEOPLE; i++) {
+      people[i] = BenchmarkFixtures.person(generator, i);
+    }
+    index = 0;
+  }
+
+  private Person next() {
+    Person person = people[index];
+    index = (index + 1) % PEOPLE;
+    return person;
+  }
+
+  @Benchmark
+  public String fhirR4Json() {
+    return FhirR4.convertToFHIRJson(next(), BenchmarkFixtures.REFERENCE_TIME);
+  }
+
+  @Benchmark
+  public Person csv() throws IOException {
+    Person person = next();
+    CSVExporter.getInstance().export(person, BenchmarkFixtures.REFERENCE_TIME);
+    return person;
+  }
+}
@@ -0,0 +1,180 @@
+package org.mitre.synthea.modules;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.mitre.synthea.helpers.SimpleCSV;
+import org.mitre.synthea.helpers.Utilities;
+import org.mitre.synthea.world.agents.Payer;
+import org.mitre.synthea.world.agents.Person;
+import org.mitre.synthea.world.concepts.HealthRecord;
+import org.mitre.synthea.world.concepts.HealthRecord.Code;
+import org.mitre.synthea.world.concepts.HealthRecord.Encounter;
+import org.mitre.synthea.world.concepts.HealthRecord.EncounterType;
+import org.mitre.synthea.world.concepts.HealthRecord.Entry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Calculates the quality of life of a synthetic multimorbid patient once for every year of
+ * their life, as QualityOfLifeModule does during the simulation, either incrementally or with
+ * the original implementation, which calculated every year from scratch each time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QualityOfLifeBenchmark {
+
+  @Param({ "100" })
+  public int years;
+
+  private HealthRecord record;
+  private long[] times;
+
+  /**
+   * Build a record with monthly encounters, starting a condition with a disability weight
+   * every few months and ending one of the present conditions every year.
+   * @throws Exception if the disability weights cannot be read.
+   */
+  @Setup
+  public void setup() throws Exception {
+    Payer.loadNoInsurance();
+    Person person = person();
+    person.setPayerAtTime(0L, Payer.noInsurance);
+    record = person.defaultRecord;
+
+    List<String> codes = new ArrayList<String>();
+    Iterator<? extends Map<String, String>> csv =
+        SimpleCSV.parseLineByLine(Utilities.readResource("gbd_disability_weights.csv"));
+    while (csv.hasNext()) {
+      codes.add(csv.next().get("CODE"));
+    }
+
+    long month = Utilities.convertTime("days", 30);
+    long time = 0L;
+    for (int i = 0; i < years * 12; i++) {
+      record.encounterStart(time, EncounterType.WELLNESS);
+      if (i % 4 == 0) {
+        String code = codes.get((i / 4) % codes.size());
+        if (record.present.containsKey(code)) {
+          record.conditionEnd(time, code);
+        } else {
+          Entry condition = record.conditionStart(time, code);
+          condition.codes.add(new Code("SNOMED-CT", code, code));
+        }
+      }
+      if (i % 12 == 6 && !record.present.isEmpty()) {
+        record.conditionEnd(time, record.present.keySet().iterator().next());
+      }
+      time += month;
+    }
+
+    times = new long[years + 1];
+    for (int i = 0; i <= years; i++) {
+      times[i] = TimeUnit.DAYS.toMillis((long) (365.25 * i)) + 1;
+    }
+  }
+
+  /**
+   * A new person sharing the benchmark record, with no quality of life calculated yet.
+   */
+  private Person person() {
+    Person person = new Person(0L);
+    person.attributes.put(Person.BIRTHDATE, 0L);
+    if (record != null) {
+      person.defaultRecord = record;
+      person.record = record;
+    }
+    return person;
+  }
+
+  @Benchmark
+  public double incremental() {
+    Person person = person();
+    double total = 0.0;
+    for (long time : times) {
+      total += QualityOfLifeModule.calculate(person, time)[0];
+    }
+    return total;
+  }
+
+  @Benchmark
+  public double recalculate() {
+    Person person = person();
+    double total = 0.0;
+    for (long time : times) {
+      total += calculateFromScratch(person, time)[0];
+    }
+    return total;
+  }
+
+  /**
+   * The original calculation, which recalculates every year of life from the whole record.
+   */
+  private static double[] calculateFromScratch(Person person, long stop) {
+    double yll = 0.0;
+    double yld = 0.0;
+
+    int age = person.ageInYears(stop);
+    long birthdate = (long) person.attributes.get(Person.BIRTHDATE);
+
+    if (!person.alive(stop)) {
+      yll = ((0.00006 * Math.pow(age, 3))
+          - (0.0054 * Math.pow(age, 2)) - (0.8502 * age) + 86.16);
+    }
+
+    List<Entry> allConditions = new ArrayList<Entry>();
+    int coveredEntries = 0;
+    for (Encounter encounter : person.defaultRecord.encounters) {
+      allConditions.addAll(encounter.conditions);
+      coveredEntries += 1 + encounter.medications.size() + encounter.procedures.size()
+          + encounter.immunizations.size();
+    }
+    int uncoveredEntries = 0;
+    if (person.lossOfCareEnabled) {
+      for (Encounter encounter : person.lossOfCareRecord.encounters) {
+        allConditions.addAll(encounter.conditions);
+        uncoveredEntries += 1 + encounter.medications.size() + encounter.procedures.size()
+            + encounter.immunizations.size();
+      }
+    }
+    if (coveredEntries < 1) {
+      coveredEntries = 1;
+    }
+    // integer division, as in the original
+    double percentageOfCoveredCare = coveredEntries / (coveredEntries + uncoveredEntries);
+
+    double disabilityWeight = 0.0;
+    for (int i = 0; i < age + 1; i++) {
+      long yearStart = birthdate + TimeUnit.DAYS.toMillis((long) (365.25 * i));
+      long yearEnd = birthdate + (TimeUnit.DAYS.toMillis((long) (365.25 * (i + 1) - 1)));
+      disabilityWeight = 0.0;
+      for (Entry condition :
+          QualityOfLifeModule.conditionsInYear(allConditions, yearStart, yearEnd)) {
+        disabilityWeight += QualityOfLifeModule.disabilityWeight(condition.codes.get(0).code,
+            percentageOfCoveredCare);
+      }
+      disabilityWeight = Math.min(1.0, QualityOfLifeModule.weight(disabilityWeight, i + 1));
+      yld += disabilityWeight;
+    }
+
+    double daly = yll + yld;
+    double qaly = age - yld;
+    return new double[] { daly, qaly, 1 - disabilityWeight };
+  }
+}
@@ -0,0 +1,62 @@
+package org.mitre.synthea.world.agents;
+
+import java.util.concurrent.TimeUnit;
+
+import org.mitre.synthea.BenchmarkFixtures;
+import org.mitre.synthea.engine.Generator;
+import org.mitre.synthea.world.concepts.HealthRecord.EncounterType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Looks up providers with Provider.findService for a fixed set of simulated people.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ProviderBenchmark {
+
+  /** Number of distinct people to cycle through. */
+  private static final int PEOPLE = 16;
+
+  @Param({ "WELLNESS", "AMBULATORY", "EMERGENCY", "INPATIENT", "URGENTCARE" })
+  public EncounterType service;
+
+  private Person[] people;
+  private int index;
+
+  /**
+   * Simulate the people, which also loads the providers.
+   * @throws Exception on configuration errors.
+   */
+  @Setup
+  public void setup() throws Exception {
+    BenchmarkFixtures.exportOff();
+    Generator generator = BenchmarkFixtures.generator();
+    people = new Person[PEOPLE];
+    for (int i = 0; i < PEOPLE; i++) {
+      people[i] = BenchmarkFixtures.person(generator, i);
+    }
+    index = 0;
+  }
+
+  @Benchmark
+  public Provider findService() {
+    Provider provider =
+        Provider.findService(people[index], service, BenchmarkFixtures.REFERENCE_TIME);
+    index = (index + 1) % PEOPLE;
+    return provider;
+  }
+}
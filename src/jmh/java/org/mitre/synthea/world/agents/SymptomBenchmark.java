@@ -0,0 +1,120 @@
+package org.mitre.synthea.world.agents;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.mitre.synthea.BenchmarkFixtures;
+import org.mitre.synthea.helpers.Utilities;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Replays the symptom updates of a person with many symptoms from many modules, checking the
+ * symptom total against the encounter thresholds on every time step as EncounterModule does,
+ * either with the running total or by summing every symptom each time, as the previous
+ * implementation did.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SymptomBenchmark {
+
+  /** Weekly time steps over 20 years. */
+  private static final int STEPS = 52 * 20;
+  /** Symptom updates per time step. */
+  private static final int UPDATES = 2;
+  /** Number of modules that set each symptom. */
+  private static final int SOURCES = 4;
+  /** EncounterModule reads the symptom total this many times per time step. */
+  private static final int CHECKS = 7;
+  private static final int THRESHOLD = 500;
+
+  @Param({ "10", "50" })
+  public int symptoms;
+
+  private String[] types;
+  private String[] modules;
+  private long[] times;
+  private int[][] typeIndex;
+  private int[][] moduleIndex;
+  private int[][] values;
+
+  /**
+   * Draw the symptom updates for every time step.
+   */
+  @Setup
+  public void setup() {
+    types = new String[symptoms];
+    for (int i = 0; i < symptoms; i++) {
+      types[i] = "Symptom " + i;
+    }
+    modules = new String[SOURCES];
+    for (int i = 0; i < SOURCES; i++) {
+      modules[i] = "Module " + i;
+    }
+    Random random = new Random(BenchmarkFixtures.SEED);
+    long step = Utilities.convertTime("days", 7);
+    times = new long[STEPS];
+    typeIndex = new int[STEPS][UPDATES];
+    moduleIndex = new int[STEPS][UPDATES];
+    values = new int[STEPS][UPDATES];
+    for (int i = 0; i < STEPS; i++) {
+      times[i] = i * step;
+      for (int j = 0; j < UPDATES; j++) {
+        typeIndex[i][j] = random.nextInt(symptoms);
+        moduleIndex[i][j] = random.nextInt(SOURCES);
+        values[i][j] = random.nextInt(100);
+      }
+    }
+  }
+
+  private static int recalculateTotal(Person person) {
+    int total = 0;
+    for (String type : person.symptoms.keySet()) {
+      total += person.getSymptom(type);
+    }
+    return total;
+  }
+
+  private int simulate(boolean recalculate) {
+    Person person = new Person(0L);
+    int visits = 0;
+    for (int i = 0; i < STEPS; i++) {
+      for (int j = 0; j < UPDATES; j++) {
+        String module = modules[moduleIndex[i][j]];
+        person.setSymptom(module, module, types[typeIndex[i][j]], times[i], values[i][j], false);
+      }
+      int total = 0;
+      for (int k = 0; k < CHECKS; k++) {
+        total = recalculate ? recalculateTotal(person) : person.symptomTotal();
+      }
+      if (total > THRESHOLD) {
+        person.addressLargestSymptom();
+        visits++;
+      }
+    }
+    return visits;
+  }
+
+  @Benchmark
+  public int incremental() {
+    return simulate(false);
+  }
+
+  @Benchmark
+  public int recalculate() {
+    return simulate(true);
+  }
+}
@@ -0,0 +1,113 @@
+package org.mitre.synthea.world.concepts;
+
+import java.util.concurrent.TimeUnit;
+
+import org.mitre.synthea.helpers.Utilities;
+import org.mitre.synthea.world.agents.Payer;
+import org.mitre.synthea.world.agents.Person;
+import org.mitre.synthea.world.concepts.HealthRecord.Encounter;
+import org.mitre.synthea.world.concepts.HealthRecord.EncounterType;
+import org.mitre.synthea.world.concepts.HealthRecord.Observation;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Compares the indexed HealthRecord.getLatestObservation against the backwards scan over
+ * encounters that it replaced, on a synthetic patient with a long history.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HealthRecordBenchmark {
+
+  /** Observation types recorded at every encounter. */
+  private static final String[] VITALS = { "8302-2", "29463-7", "39156-5", "8480-6", "8462-4",
+      "8867-4", "9279-1", "72514-3", "2093-3", "2571-8" };
+  /** Recorded once, early in life. */
+  private static final String RARE = "RARE-1";
+  /** Never recorded. */
+  private static final String ABSENT = "ABSENT-1";
+
+  @Param({ "100" })
+  public int years;
+
+  private HealthRecord record;
+
+  /**
+   * Build a record with monthly encounters, each with a set of vital sign observations.
+   */
+  @Setup
+  public void setup() {
+    Payer.loadNoInsurance();
+    Person person = new Person(0L);
+    person.setPayerAtTime(0L, Payer.noInsurance);
+    record = new HealthRecord(person);
+    long time = 0L;
+    long month = Utilities.convertTime("days", 30);
+    for (int i = 0; i < years * 12; i++) {
+      Encounter encounter = record.encounterStart(time, EncounterType.WELLNESS);
+      for (String type : VITALS) {
+        encounter.addObservation(time, type, (double) i);
+      }
+      if (i == 1) {
+        encounter.addObservation(time, RARE, 1.0);
+      }
+      time += month;
+    }
+  }
+
+  @Benchmark
+  public Observation indexedRecent() {
+    return record.getLatestObservation(VITALS[5]);
+  }
+
+  @Benchmark
+  public Observation indexedRare() {
+    return record.getLatestObservation(RARE);
+  }
+
+  @Benchmark
+  public Observation indexedAbsent() {
+    return record.getLatestObservation(ABSENT);
+  }
+
+  @Benchmark
+  public Observation scanRecent() {
+    return scan(VITALS[5]);
+  }
+
+  @Benchmark
+  public Observation scanRare() {
+    return scan(RARE);
+  }
+
+  @Benchmark
+  public Observation scanAbsent() {
+    return scan(ABSENT);
+  }
+
+  /**
+   * The previous implementation of getLatestObservation.
+   */
+  private Observation scan(String type) {
+    for (int i = record.encounters.size() - 1; i >= 0; i--) {
+      Observation obs = record.encounters.get(i).findObservation(type);
+      if (obs != null) {
+        return obs;
+      }
+    }
+    return null;
+  }
+}
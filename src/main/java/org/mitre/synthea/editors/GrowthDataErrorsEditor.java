@@ -2,9 +2,12 @@ package org.mitre.synthea.editors;
 
 import com.google.gson.Gson;
 
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
+import org.apache.commons.lang3.Range;
 import org.mitre.synthea.engine.HealthRecordEditor;
 import org.mitre.synthea.helpers.RandomNumberGenerator;
 import org.mitre.synthea.helpers.Utilities;
@@ -81,6 +84,25 @@ public class GrowthDataErrorsEditor implements HealthRecordEditor {
     return person.ageInYears(time) <= MAX_AGE;
   }
 
+  /**
+   * Limits this editor to people from birth to MAX_AGE.
+   * @return The range of ages this editor applies to
+   */
+  @Override
+  public Range<Integer> getAgeRange() {
+    return Range.between(0, MAX_AGE);
+  }
+
+  /**
+   * Heights and weights are observations, so this editor only needs encounters with
+   * observations.
+   * @return The types of entries this editor looks at
+   */
+  @Override
+  public Set<EntryType> getEntryTypes() {
+    return EnumSet.of(EntryType.OBSERVATION);
+  }
+
   /**
    * Potentially mess up heights and weights in the encounters.
    * @param person The Synthea person to check on whether the module should be run
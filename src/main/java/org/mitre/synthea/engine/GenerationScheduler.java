@@ -0,0 +1,220 @@
+package org.mitre.synthea.engine;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.mitre.synthea.helpers.Config;
+
+/**
+ * GenerationScheduler runs the per-person simulation tasks submitted by the Generator.
+ * The number of workers defaults to the number of available processors, and submission
+ * is bounded so that large populations do not queue every task in memory up front.
+ * Progress and throughput are reported periodically while the scheduler drains.
+ */
+public class GenerationScheduler {
+
+  /** The kind of executor used to run generation tasks. */
+  public enum Type {
+    /** A fixed size pool of platform threads. */
+    FIXED,
+    /** A work-stealing ForkJoinPool. */
+    WORK_STEALING,
+    /** One virtual thread per task, when supported by the running JVM. */
+    VIRTUAL
+  }
+
+  private final ExecutorService executor;
+  private final Semaphore permits;
+  private final int threads;
+  private final int maxPending;
+  private final long progressInterval;
+  private final AtomicLong submitted;
+  private final AtomicLong completed;
+  private final AtomicLong failed;
+  private long startTime;
+  private long expected;
+  private ScheduledExecutorService reporter;
+
+  /**
+   * Create a GenerationScheduler based on the "generate.scheduler.*" configuration settings.
+   * @return a new scheduler.
+   */
+  public static GenerationScheduler fromConfig() {
+    int threads = Integer.parseInt(Config.get("generate.scheduler.threads", "0"));
+    int maxPending = Integer.parseInt(Config.get("generate.scheduler.max_pending", "0"));
+    Type type = Type.valueOf(
+        Config.get("generate.scheduler.type", "fixed").trim().toUpperCase());
+    long interval = Long.parseLong(Config.get("generate.scheduler.progress_interval", "30"));
+    return new GenerationScheduler(type, threads, maxPending, TimeUnit.SECONDS.toMillis(interval));
+  }
+
+  /**
+   * Create a new GenerationScheduler.
+   * @param type The kind of executor to run tasks on.
+   * @param threads The number of worker threads. Values less than 1 default to the number of
+   *     available processors. Ignored for virtual threads.
+   * @param maxPending The maximum number of tasks that may be submitted but not yet completed.
+   *     Values less than 1 default to four times the number of workers.
+   * @param progressInterval Milliseconds between progress reports. Values less than 1 disable
+   *     progress reporting.
+   */
+  public GenerationScheduler(Type type, int threads, int maxPending, long progressInterval) {
+    if (threads < 1) {
+      threads = Runtime.getRuntime().availableProcessors();
+    }
+    if (maxPending < 1) {
+      maxPending = threads * 4;
+    }
+    this.threads = threads;
+    this.maxPending = maxPending;
+    this.progressInterval = progressInterval;
+    this.permits = new Semaphore(maxPending);
+    this.submitted = new AtomicLong(0);
+    this.completed = new AtomicLong(0);
+    this.failed = new AtomicLong(0);
+    this.executor = createExecutor(type, threads);
+  }
+
+  private static ExecutorService createExecutor(Type type, int threads) {
+    switch (type) {
+      case WORK_STEALING:
+        return new ForkJoinPool(threads);
+      case VIRTUAL:
+        // Virtual threads are only available on newer JVMs, so look them up reflectively
+        // and fall back to a fixed pool when they are not present.
+        try {
+          Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+          return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException e) {
+          System.out.println("Virtual threads are not supported by this JVM. "
+              + "Using a fixed thread pool instead.");
+          return Executors.newFixedThreadPool(threads);
+        }
+      case FIXED:
+      default:
+        return Executors.newFixedThreadPool(threads);
+    }
+  }
+
+  /**
+   * Begin reporting progress against the expected number of tasks.
+   * @param expected The number of tasks expected to be submitted.
+   */
+  public void start(long expected) {
+    this.expected = expected;
+    this.startTime = System.currentTimeMillis();
+    if (progressInterval > 0 && reporter == null) {
+      reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "generation-progress");
+        t.setDaemon(true);
+        return t;
+      });
+      reporter.scheduleAtFixedRate(this::reportProgress,
+          progressInterval, progressInterval, TimeUnit.MILLISECONDS);
+    }
+  }
+
+  /**
+   * Submit a task, blocking while the maximum number of pending tasks are outstanding.
+   * @param task The task to run.
+   * @throws InterruptedException if interrupted while waiting for capacity.
+   */
+  public void submit(Runnable task) throws InterruptedException {
+    permits.acquire();
+    submitted.incrementAndGet();
+    try {
+      executor.execute(() -> {
+        try {
+          task.run();
+        } catch (Throwable t) {
+          // the task is responsible for reporting its own errors
+          failed.incrementAndGet();
+        } finally {
+          completed.incrementAndGet();
+          permits.release();
+        }
+      });
+    } catch (RuntimeException e) {
+      submitted.decrementAndGet();
+      permits.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Stop accepting tasks and wait for all submitted tasks to complete.
+   * @throws InterruptedException if interrupted while waiting.
+   */
+  public void awaitCompletion() throws InterruptedException {
+    executor.shutdown();
+    try {
+      while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+        // progress is reported by the reporter thread
+      }
+    } finally {
+      if (reporter != null) {
+        reporter.shutdownNow();
+        reporter = null;
+      }
+    }
+  }
+
+  /**
+   * Abandon any tasks that have not yet started.
+   */
+  public void shutdownNow() {
+    executor.shutdownNow();
+    if (reporter != null) {
+      reporter.shutdownNow();
+      reporter = null;
+    }
+  }
+
+  /**
+   * Print the current progress and throughput to the console.
+   */
+  public void reportProgress() {
+    long done = completed.get();
+    double seconds = Math.max(1L, System.currentTimeMillis() - startTime) / 1000.0;
+    System.out.printf("Progress: %d/%d complete, %d in flight, %.2f per second\n",
+        done, expected, submitted.get() - done, done / seconds);
+  }
+
+  /**
+   * Get the number of worker threads.
+   * @return the number of workers.
+   */
+  public int getThreads() {
+    return threads;
+  }
+
+  /**
+   * Get the maximum number of submitted but incomplete tasks.
+   * @return the maximum pending tasks.
+   */
+  public int getMaxPending() {
+    return maxPending;
+  }
+
+  /**
+   * Get the number of tasks completed so far, including failed ones.
+   * @return the number of completed tasks.
+   */
+  public long getCompleted() {
+    return completed.get();
+  }
+
+  /**
+   * Get the number of tasks that terminated with an exception.
+   * @return the number of failed tasks.
+   */
+  public long getFailed() {
+    return failed.get();
+  }
+}
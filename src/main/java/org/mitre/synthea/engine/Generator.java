@@ -15,14 +15,11 @@ import java.lang.reflect.Type;
 import java.nio.file.Path;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
 import java.util.UUID;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
@@ -35,7 +32,9 @@ import org.apache.commons.lang3.StringUtils;
 import org.mitre.synthea.editors.GrowthDataErrorsEditor;
 import org.mitre.synthea.export.CDWExporter;
 import org.mitre.synthea.export.Exporter;
+import org.mitre.synthea.export.ExportSettings;
 import org.mitre.synthea.helpers.Config;
+import org.mitre.synthea.helpers.ExpressionProcessor;
 import org.mitre.synthea.helpers.RandomNumberGenerator;
 import org.mitre.synthea.helpers.TransitionMetrics;
 import org.mitre.synthea.helpers.Utilities;
@@ -193,6 +192,9 @@ public class Generator implements RandomNumberGenerator {
     if (options.state == null) {
       options.state = DEFAULT_STATE;
     }
+    // parse the exporter settings now, so that malformed numbers are reported before any
+    // people are generated
+    ExportSettings.get();
     int stateIndex = Location.getIndex(options.state);
     if (Config.getAsBoolean("exporter.cdw.export")) {
       CDWExporter.getInstance().setKeyStart((stateIndex * 1_000_000) + 1);
@@ -317,48 +319,46 @@ public class Generator implements RandomNumberGenerator {
       Config.set("generate.append_numbers_to_person_names", "false");
     }
 
-    ExecutorService threadPool = Executors.newFixedThreadPool(8);
+    GenerationScheduler scheduler = GenerationScheduler.fromConfig();
 
-    if (options.initialPopulationSnapshotPath != null) {
-      FileInputStream fis = null;
-      List<Person> initialPopulation = null;
-      try {
-        fis = new FileInputStream(options.initialPopulationSnapshotPath);
-        ObjectInputStream ois = new ObjectInputStream(fis);
-        initialPopulation = (List<Person>) ois.readObject();
-        ois.close();
-      } catch (Exception ex) {
-        System.out.printf("Unable to load population snapshot, error: %s", ex.getMessage());
-      }
-      if (initialPopulation != null && initialPopulation.size() > 0) {
-        // default is to run until current system time.
-        if (options.daysToTravelForward > 0) {
-          stop = initialPopulation.get(0).lastUpdated 
-                  + Utilities.convertTime("days", options.daysToTravelForward);
+    try {
+      if (options.initialPopulationSnapshotPath != null) {
+        FileInputStream fis = null;
+        List<Person> initialPopulation = null;
+        try {
+          fis = new FileInputStream(options.initialPopulationSnapshotPath);
+          ObjectInputStream ois = new ObjectInputStream(fis);
+          initialPopulation = (List<Person>) ois.readObject();
+          ois.close();
+        } catch (Exception ex) {
+          System.out.printf("Unable to load population snapshot, error: %s", ex.getMessage());
         }
-        for (int i = 0; i < initialPopulation.size(); i++) {
+        if (initialPopulation != null && initialPopulation.size() > 0) {
+          // default is to run until current system time.
+          if (options.daysToTravelForward > 0) {
+            stop = initialPopulation.get(0).lastUpdated 
+                    + Utilities.convertTime("days", options.daysToTravelForward);
+          }
+          scheduler.start(initialPopulation.size());
+          for (int i = 0; i < initialPopulation.size(); i++) {
+            final int index = i;
+            final Person p = initialPopulation.get(i);        
+            scheduler.submit(() -> updateRecordExportPerson(p, index));
+          }
+        }
+      } else {
+        // Generate patients up to the specified population size.
+        scheduler.start(this.options.population);
+        for (int i = 0; i < this.options.population; i++) {
           final int index = i;
-          final Person p = initialPopulation.get(i);        
-          threadPool.submit(() -> updateRecordExportPerson(p, index));
+          final long seed = this.random.nextLong();
+          scheduler.submit(() -> generatePerson(index, seed));
         }
       }
-    } else {
-      // Generate patients up to the specified population size.
-      for (int i = 0; i < this.options.population; i++) {
-        final int index = i;
-        final long seed = this.random.nextLong();
-        threadPool.submit(() -> generatePerson(index, seed));
-      }
-    }
-
-    try {
-      threadPool.shutdown();
-      while (!threadPool.awaitTermination(30, TimeUnit.SECONDS)) {
-        System.out.println("Waiting for threads to finish... " + threadPool);
-      }
+      scheduler.awaitCompletion();
     } catch (InterruptedException e) {
       System.out.println("Generator interrupted. Attempting to shut down associated thread pool.");
-      threadPool.shutdownNow();
+      scheduler.shutdownNow();
     }
 
     // Save a snapshot of the generated population using Java Serialization
@@ -379,6 +379,12 @@ public class Generator implements RandomNumberGenerator {
     System.out.printf("Records: total=%d, alive=%d, dead=%d\n", totalGeneratedPopulation.get(),
             stats.get("alive").get(), stats.get("dead").get());
 
+    if (ExpressionProcessor.getCacheMisses() > 0) {
+      System.out.printf("Expressions: compiled=%d, reused=%d, compile time=%d ms\n",
+          ExpressionProcessor.getCacheMisses(), ExpressionProcessor.getCacheHits(),
+          TimeUnit.NANOSECONDS.toMillis(ExpressionProcessor.getCompileTimeNanos()));
+    }
+
     if (this.metrics != null) {
       metrics.printStats(totalGeneratedPopulation.get(), Module.getModules(getModulePredicate()));
     }
@@ -657,19 +663,13 @@ public class Generator implements RandomNumberGenerator {
     HealthInsuranceModule healthInsuranceModule = new HealthInsuranceModule();
     EncounterModule encounterModule = new EncounterModule();
 
+    ModuleSchedule modules = new ModuleSchedule(person);
+
     long time = person.lastUpdated;
     while (person.alive(time) && time < stop) {
       healthInsuranceModule.process(person, time + timestep);
       encounterModule.process(person, time);
-
-      Iterator<Module> iter = person.currentModules.iterator();
-      while (iter.hasNext()) {
-        Module module = iter.next();
-
-        if (module.process(person, time)) {
-          iter.remove(); // this module has completed/terminated.
-        }
-      }
+      modules.process(time);
       encounterModule.endEncounterModuleEncounters(person, time);
       person.lastUpdated = time;
       HealthRecordEditors.getInstance().executeAll(person, person.record, time, timestep);
@@ -1,16 +1,25 @@
 package org.mitre.synthea.engine;
 
 import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
 
+import org.apache.commons.lang3.Range;
 import org.mitre.synthea.world.agents.Person;
 import org.mitre.synthea.world.concepts.HealthRecord;
+import org.mitre.synthea.world.concepts.HealthRecord.Encounter;
 
 /**
  * The HealthRecordEditor offers an interface that can be implemented to modify a Synthea Person's
  * HealthRecord. At the end of every time step in the simulation, the Synthea framework will invoke
  * the shouldRun method. If the shouldRun function returns true, the framework will then invoke
  * the process method. The process method will be passed any encounters that were created in the
- * past time step.
+ * past time step, along with earlier encounters that were still open and so may have had entries
+ * added. An encounter that spans several time steps is passed in each of them.
+ * <p>
+ * An editor may also declare the ages of the people and the types of entries it applies to, so
+ * that the framework can skip it without calling shouldRun or process.
+ * </p>
  * <p>
  * HealthRecordEditors are intended to simulate actions that happen to an individual's health
  * record. This includes loss or corruption of information through user entry error or information
@@ -46,4 +55,56 @@ public interface HealthRecordEditor {
    * @param time The current time in the simulation
    */
   void process(Person person, List<HealthRecord.Encounter> encounters, long time);
+
+  /**
+   * Get the ages of the people this editor applies to. The editor is skipped, without calling
+   * shouldRun, for people outside of this range.
+   * @return The range of ages in years, or null for people of any age.
+   */
+  public default Range<Integer> getAgeRange() {
+    return null;
+  }
+
+  /**
+   * Get the types of entries this editor looks at. The editor is only passed the encounters
+   * that contain at least one entry of these types, and is skipped in time steps where there
+   * are none.
+   * @return The types of entries, or null to be passed every encounter in every time step.
+   */
+  public default Set<EntryType> getEntryTypes() {
+    return null;
+  }
+
+  /**
+   * The types of entries within an encounter.
+   */
+  public enum EntryType {
+    CONDITION(e -> e.conditions),
+    ALLERGY(e -> e.allergies),
+    OBSERVATION(e -> e.observations),
+    REPORT(e -> e.reports),
+    PROCEDURE(e -> e.procedures),
+    IMMUNIZATION(e -> e.immunizations),
+    MEDICATION(e -> e.medications),
+    CAREPLAN(e -> e.careplans),
+    IMAGING_STUDY(e -> e.imagingStudies),
+    DEVICE(e -> e.devices),
+    SUPPLY(e -> e.supplies);
+
+    private final Function<Encounter, List<?>> entries;
+
+    EntryType(Function<Encounter, List<?>> entries) {
+      this.entries = entries;
+    }
+
+    /**
+     * Check whether an encounter contains any entries of this type.
+     * @param encounter The encounter.
+     * @return True if the encounter has at least one entry of this type.
+     */
+    public boolean isIn(Encounter encounter) {
+      List<?> list = entries.apply(encounter);
+      return list != null && !list.isEmpty();
+    }
+  }
 }
@@ -2,8 +2,10 @@ package org.mitre.synthea.engine;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.stream.Collectors;
 
+import org.apache.commons.lang3.Range;
 import org.mitre.synthea.world.agents.Person;
 import org.mitre.synthea.world.concepts.HealthRecord;
 
@@ -39,8 +41,10 @@ public class HealthRecordEditors {
 
   /**
    * Runs all of the registered implementations of HealthRecordEditor. Will first check to see if
-   * the editor should be run by invoking... shouldRun. If it should run, will call process on
-   * the editor.
+   * the editor should be run by checking its age range and invoking... shouldRun. If it should
+   * run, will call process on the editor with the encounters added to the record in the last
+   * time step, and the earlier encounters that were still open, limited to those with the types
+   * of entries the editor looks at.
    * <p>
    * It's unlikely that this method should be called by anything outside of Generator.
    * </p>
@@ -51,15 +55,33 @@ public class HealthRecordEditors {
    */
   public void executeAll(Person person, HealthRecord record, long time, long step) {
     if (this.registeredEditors.size() > 0) {
-      long start = time - step;
-      List<HealthRecord.Encounter> encountersThisStep = record.encounters.stream()
-          .filter(e -> e.start >= start)
-          .collect(Collectors.toList());
-      this.registeredEditors.forEach(m -> {
-        if (m.shouldRun(person, record, time)) {
-          m.process(person, encountersThisStep, time);
+      // only the encounters added or still open since the last time step, rather than the
+      // whole record
+      List<HealthRecord.Encounter> encountersThisStep =
+          record.encountersSinceLastEdit(time - step);
+      for (HealthRecordEditor editor : this.registeredEditors) {
+        Range<Integer> ages = editor.getAgeRange();
+        if (ages != null && !ages.contains(person.ageInYears(time))) {
+          continue;
         }
-      });
+        if (!editor.shouldRun(person, record, time)) {
+          continue;
+        }
+        Set<HealthRecordEditor.EntryType> types = editor.getEntryTypes();
+        if (types == null) {
+          editor.process(person, encountersThisStep, time);
+          // editors change entries in place, so Guards must test them again
+          record.entriesChanged();
+        } else {
+          List<HealthRecord.Encounter> encounters = encountersThisStep.stream()
+              .filter(e -> types.stream().anyMatch(type -> type.isIn(e)))
+              .collect(Collectors.toList());
+          if (!encounters.isEmpty()) {
+            editor.process(person, encounters, time);
+            record.entriesChanged();
+          }
+        }
+      }
     }
   }
 
@@ -3,11 +3,15 @@ package org.mitre.synthea.engine;
 import java.io.Serializable;
 import java.util.Calendar;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 import java.util.TimeZone;
 
 import org.mitre.synthea.engine.Components.DateInput;
 import org.mitre.synthea.engine.Components.ExactWithUnit;
+import org.mitre.synthea.helpers.ChangeTracker;
 import org.mitre.synthea.helpers.Config;
 import org.mitre.synthea.helpers.Utilities;
 import org.mitre.synthea.world.agents.Person;
@@ -25,6 +29,8 @@ import org.mitre.synthea.world.concepts.HealthRecord.Medication;
  */
 public abstract class Logic implements Serializable {
   public List<String> remarks;
+  /** The inputs of this logic, which depend only on its definition. Created when needed. */
+  private transient volatile Inputs cachedInputs;
 
   /**
    * Test whether the logic is true for the given person at the given time.
@@ -35,6 +41,238 @@ public abstract class Logic implements Serializable {
    */
   public abstract boolean test(Person person, long time);
 
+  /**
+   * Get the inputs that this logic reads, such as attributes, codes and the current time.
+   * Only a change to one of these inputs can change the result of testing the logic.
+   * @return the inputs of this logic.
+   */
+  public Inputs getInputs() {
+    Inputs result = cachedInputs;
+    if (result == null) {
+      result = new Inputs();
+      addInputs(result);
+      // the inputs depend only on the definition, so computing them twice is harmless
+      cachedInputs = result;
+    }
+    return result;
+  }
+
+  /**
+   * Add the inputs that this logic reads. By default, the inputs of a logic are unknown, so it
+   * must be tested again on every time step.
+   * @param inputs the inputs to add to.
+   */
+  void addInputs(Inputs inputs) {
+    inputs.untracked = true;
+  }
+
+  /**
+   * Get a time after the given time at which the result of this logic may change even though
+   * none of the attributes or codes it reads have changed. Only used for logic that reads the
+   * current time.
+   * @param person Person the logic is executing against
+   * @param time Timestamp the logic was last tested at
+   * @return the earliest time the logic should be tested again, or Long.MAX_VALUE.
+   */
+  long nextChange(Person person, long time) {
+    return Long.MAX_VALUE;
+  }
+
+  /**
+   * Note the current state of the inputs of this logic for a person, after testing it.
+   * @param person Person the logic was tested against
+   * @param time Timestamp the logic was tested at
+   * @return a snapshot for {@link #changedSince(Person, long, Snapshot)}, or null if the
+   *     inputs of this logic cannot be tracked for the person.
+   */
+  Snapshot snapshot(Person person, long time) {
+    Inputs inputs = getInputs();
+    ChangeTracker attributes = person.getAttributeChanges();
+    if (inputs.untracked || attributes == null
+        || (inputs.readsRecord() && !recordTracked(person))) {
+      return null;
+    }
+    long retestAt = inputs.time ? nextChange(person, time) : Long.MAX_VALUE;
+    if (!inputs.readsRecord()) {
+      return new Snapshot(null, attributes.getVersion(), 0L, 0L, retestAt);
+    }
+    return new Snapshot(person.record, attributes.getVersion(),
+        person.record.getPresentChanges().getVersion(),
+        person.record.getObservationChanges().getVersion(), retestAt);
+  }
+
+  /**
+   * Check whether any of the inputs of this logic may have changed since a snapshot was taken,
+   * so that testing it again could give a different result.
+   * @param person Person the logic was tested against
+   * @param time The current time
+   * @param snapshot The snapshot taken when the logic was last tested
+   * @return false if testing the logic now would give the same result as last time.
+   */
+  boolean changedSince(Person person, long time, Snapshot snapshot) {
+    Inputs inputs = getInputs();
+    if (time >= snapshot.retestAt) {
+      return true;
+    }
+    ChangeTracker attributes = person.getAttributeChanges();
+    for (String attribute : inputs.attributes) {
+      if (attributes.changedSince(attribute, snapshot.attributeVersion)) {
+        return true;
+      }
+    }
+    for (String attribute : inputs.attributeValues) {
+      // values that can be changed in place can't be tracked
+      if (attributes.changedSince(attribute, snapshot.attributeVersion)
+          || !isImmutable(person.attributes.get(attribute))) {
+        return true;
+      }
+    }
+    if (inputs.readsRecord()) {
+      if (person.record != snapshot.record || !recordTracked(person)) {
+        return true;
+      }
+      ChangeTracker present = person.record.getPresentChanges();
+      if (inputs.anyPresent) {
+        if (present.changedSince(snapshot.presentVersion)) {
+          return true;
+        }
+      } else {
+        for (String code : inputs.presentCodes) {
+          if (present.changedSince(code, snapshot.presentVersion)) {
+            return true;
+          }
+        }
+      }
+      ChangeTracker observations = person.record.getObservationChanges();
+      for (String code : inputs.observationCodes) {
+        if (observations.changedSince(code, snapshot.observationVersion)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Whether the entries that logic reads are all in person.record. With multiple records, or
+   * with loss of care, logic also reads other records and the module history.
+   */
+  private static boolean recordTracked(Person person) {
+    return person.record != null && !person.hasMultipleRecords && !person.lossOfCareEnabled;
+  }
+
+  private static boolean isImmutable(Object value) {
+    return value == null || value instanceof String || value instanceof Boolean
+        || value instanceof Integer || value instanceof Long || value instanceof Double
+        || value instanceof Float || value instanceof Short || value instanceof Byte
+        || value instanceof Character || value instanceof Enum;
+  }
+
+  /**
+   * The inputs that a Logic reads. A Guard only tests its logic again once one of these has
+   * changed. Attributes, present entries and observations record their own changes
+   * (see {@link Person#getAttributeChanges()} and {@link HealthRecord#getPresentChanges()}),
+   * and logic that reads the current time says when its result may next change.
+   */
+  public static final class Inputs {
+    private boolean untracked;
+    private boolean time;
+    /** Attributes whose presence, or the identity of their value, is read. */
+    private final Set<String> attributes = new LinkedHashSet<String>();
+    /** Attributes whose values are compared. */
+    private final Set<String> attributeValues = new LinkedHashSet<String>();
+    /** Codes of present conditions, medications and care plans. */
+    private final Set<String> presentCodes = new LinkedHashSet<String>();
+    private boolean anyPresent;
+    /** Types of observations whose latest value is read. */
+    private final Set<String> observationCodes = new LinkedHashSet<String>();
+
+    private Inputs() {
+      // created by Logic.getInputs
+    }
+
+    /**
+     * Whether all of the inputs are known. If not, the logic must be tested every time.
+     * @return true if changes to the inputs can be tracked.
+     */
+    public boolean isTracked() {
+      return !untracked;
+    }
+
+    /**
+     * Whether the logic reads the current time, including the person's age.
+     * @return true if the result may change over time.
+     */
+    public boolean readsTime() {
+      return time;
+    }
+
+    /**
+     * Get the attributes that the logic reads.
+     * @return the attribute names.
+     */
+    public Set<String> getAttributes() {
+      Set<String> all = new LinkedHashSet<String>(attributes);
+      all.addAll(attributeValues);
+      return Collections.unmodifiableSet(all);
+    }
+
+    /**
+     * Get the codes of the conditions, medications and care plans the logic checks are active.
+     * @return the codes.
+     */
+    public Set<String> getPresentCodes() {
+      return Collections.unmodifiableSet(presentCodes);
+    }
+
+    /**
+     * Whether the logic may check whether any condition, medication or care plan is active,
+     * because the code is referenced by an attribute.
+     * @return true if a change to any present entry could change the result.
+     */
+    public boolean readsAnyPresent() {
+      return anyPresent;
+    }
+
+    /**
+     * Get the types of the observations the logic reads.
+     * @return the observation codes.
+     */
+    public Set<String> getObservationCodes() {
+      return Collections.unmodifiableSet(observationCodes);
+    }
+
+    private boolean readsRecord() {
+      return anyPresent || !presentCodes.isEmpty() || !observationCodes.isEmpty();
+    }
+
+    private void addCodes(Set<String> set, List<Code> codes) {
+      for (Code code : codes) {
+        set.add(code.code);
+      }
+    }
+  }
+
+  /**
+   * The state of the inputs of a Logic for one person when it was last tested.
+   */
+  static final class Snapshot implements Serializable {
+    private final HealthRecord record;
+    private final long attributeVersion;
+    private final long presentVersion;
+    private final long observationVersion;
+    private final long retestAt;
+
+    private Snapshot(HealthRecord record, long attributeVersion, long presentVersion,
+        long observationVersion, long retestAt) {
+      this.record = record;
+      this.attributeVersion = attributeVersion;
+      this.presentVersion = presentVersion;
+      this.observationVersion = observationVersion;
+      this.retestAt = retestAt;
+    }
+  }
+
   /**
    * Find the most recent entry, of a specific type of HealthRecord.Entry
    * within the patient history. May return null.
@@ -75,6 +313,11 @@ public abstract class Logic implements Serializable {
     public boolean test(Person person, long time) {
       return gender.equals(person.attributes.get(Person.GENDER));
     }
+
+    @Override
+    void addInputs(Inputs inputs) {
+      inputs.attributeValues.add(Person.GENDER);
+    }
   }
   
   /**
@@ -105,6 +348,17 @@ public abstract class Logic implements Serializable {
 
       return Utilities.compare(age, quantity, operator);
     }
+
+    @Override
+    void addInputs(Inputs inputs) {
+      inputs.attributeValues.add(Person.BIRTHDATE);
+      inputs.time = true;
+    }
+
+    @Override
+    long nextChange(Person person, long time) {
+      return person.nextAgeChange(time, "months".equals(unit));
+    }
   }
   
   /**
@@ -138,6 +392,42 @@ public abstract class Logic implements Serializable {
             + "not currently supported in Date logic.");
       }
     }
+
+    @Override
+    void addInputs(Inputs inputs) {
+      inputs.time = true;
+    }
+
+    @Override
+    long nextChange(Person person, long time) {
+      Calendar next = Calendar.getInstance(TimeZone.getTimeZone("UTC"));
+      if (year != null || month != null) {
+        // the start of the next year or month
+        next.setTimeInMillis(time);
+        next.set(Calendar.DAY_OF_MONTH, 1);
+        next.set(Calendar.HOUR_OF_DAY, 0);
+        next.set(Calendar.MINUTE, 0);
+        next.set(Calendar.SECOND, 0);
+        next.set(Calendar.MILLISECOND, 0);
+        if (year != null) {
+          next.set(Calendar.MONTH, Calendar.JANUARY);
+          next.add(Calendar.YEAR, 1);
+        } else {
+          next.add(Calendar.MONTH, 1);
+        }
+        return next.getTimeInMillis();
+      } else if (date != null) {
+        next.set(date.year, date.month - 1, date.day, date.hour, date.minute, date.second);
+        next.set(Calendar.MILLISECOND, date.millisecond);
+        long testTime = next.getTimeInMillis();
+        if (time < testTime) {
+          return testTime;
+        } else if (time == testTime) {
+          return testTime + 1;
+        }
+      }
+      return Long.MAX_VALUE;
+    }
   }
 
   /**
@@ -152,6 +442,11 @@ public abstract class Logic implements Serializable {
     public boolean test(Person person, long time) {
       return category.equals(person.attributes.get(Person.SOCIOECONOMIC_CATEGORY));
     }
+
+    @Override
+    void addInputs(Inputs inputs) {
+      inputs.attributeValues.add(Person.SOCIOECONOMIC_CATEGORY);
+    }
   }
   
   /**
@@ -165,6 +460,11 @@ public abstract class Logic implements Serializable {
     public boolean test(Person person, long time) {
       return race.equalsIgnoreCase((String) person.attributes.get(Person.RACE));
     }
+
+    @Override
+    void addInputs(Inputs inputs) {
+      inputs.attributeValues.add(Person.RACE);
+    }
   }
 
   /**
@@ -225,7 +525,7 @@ public abstract class Logic implements Serializable {
             last = (HealthRecord.Observation)
                 findEntryFromHistory(person, HealthRecord.Observation.class, code);
             if (Config.getAsBoolean("exporter.split_records.duplicate_data", false)) {
-              person.record.currentEncounter(time).observations.add(last);
+              person.record.currentEncounter(time).addObservation(last);
             }
           }
           if (last != null) {
@@ -261,6 +561,16 @@ public abstract class Logic implements Serializable {
         return Utilities.compare(observation.value, this.value, operator);
       }
     }
+
+    @Override
+    void addInputs(Inputs inputs) {
+      if (codes != null) {
+        inputs.addCodes(inputs.observationCodes, codes);
+      } else {
+        // the observation in the attribute could be changed in place
+        inputs.untracked = true;
+      }
+    }
   }
   
   /**
@@ -282,6 +592,15 @@ public abstract class Logic implements Serializable {
         throw new RuntimeException(message, e);
       }
     }
+
+    @Override
+    void addInputs(Inputs inputs) {
+      if (operator.equals("is nil") || operator.equals("is not nil")) {
+        inputs.attributes.add(attribute);
+      } else {
+        inputs.attributeValues.add(attribute);
+      }
+    }
   }
 
   /**
@@ -290,6 +609,22 @@ public abstract class Logic implements Serializable {
    */
   private abstract static class GroupedCondition extends Logic {
     protected Collection<Logic> conditions;
+
+    @Override
+    void addInputs(Inputs inputs) {
+      for (Logic condition : conditions) {
+        condition.addInputs(inputs);
+      }
+    }
+
+    @Override
+    long nextChange(Person person, long time) {
+      long next = Long.MAX_VALUE;
+      for (Logic condition : conditions) {
+        next = Math.min(next, condition.nextChange(person, time));
+      }
+      return next;
+    }
   }
   
   /**
@@ -328,6 +663,16 @@ public abstract class Logic implements Serializable {
     public boolean test(Person person, long time) {
       return !condition.test(person, time);
     }
+
+    @Override
+    void addInputs(Inputs inputs) {
+      condition.addInputs(inputs);
+    }
+
+    @Override
+    long nextChange(Person person, long time) {
+      return condition.nextChange(person, time);
+    }
   }
 
   /**
@@ -373,6 +718,11 @@ public abstract class Logic implements Serializable {
     public boolean test(Person person, long time) {
       return true;
     }
+
+    @Override
+    void addInputs(Inputs inputs) {
+      // reads nothing
+    }
   }
 
   /**
@@ -385,6 +735,11 @@ public abstract class Logic implements Serializable {
     public boolean test(Person person, long time) {
       return false;
     }
+
+    @Override
+    void addInputs(Inputs inputs) {
+      // reads nothing
+    }
   }
 
   /**
@@ -422,6 +777,19 @@ public abstract class Logic implements Serializable {
   private abstract static class ActiveLogic extends Logic {
     protected List<Code> codes;
     protected String referencedByAttribute;
+
+    @Override
+    void addInputs(Inputs inputs) {
+      if (codes != null) {
+        inputs.addCodes(inputs.presentCodes, codes);
+      } else if (referencedByAttribute != null) {
+        // the code is only known once the attribute is set
+        inputs.attributes.add(referencedByAttribute);
+        inputs.anyPresent = true;
+      } else {
+        inputs.untracked = true;
+      }
+    }
   }
 
   /**
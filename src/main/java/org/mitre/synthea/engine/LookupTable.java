@@ -0,0 +1,341 @@
+package org.mitre.synthea.engine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.apache.commons.lang3.Range;
+import org.mitre.synthea.world.agents.Person;
+
+/**
+ * An immutable lookup table, compiled from the rows of a lookup table CSV file. Lookups first
+ * follow the person's attribute values through a tree of maps, one level per attribute column,
+ * and then find the row whose age and time ranges contain the person's age and the current
+ * time through a sorted interval index. Lookups do not modify the table, so a table can be
+ * shared by all threads.
+ *
+ * <p>Where the ranges of two rows with the same attribute values overlap, the row that comes
+ * first in the file is used. As when rows were keyed in a HashMap, a row with the same attribute
+ * values whose ranges cover the ranges of an earlier row is a repeated key: its value replaces
+ * the value of the earlier row, which keeps its own ranges, and the rest of the later row's
+ * ranges are not used. Both cases are reported as warnings when the table is built.
+ *
+ * @param <T> The value of each row.
+ */
+final class LookupTable<T> {
+  private final String name;
+  private final String[] attributes;
+  private final boolean usesAge;
+  /** Nested maps of attribute values, with an IntervalIndex at the deepest level. */
+  private final Object root;
+  private final List<String> warnings;
+
+  private LookupTable(Builder<T> builder) {
+    this.name = builder.name;
+    this.attributes = builder.attributes.toArray(new String[0]);
+    this.usesAge = builder.usesAge;
+    this.warnings = new ArrayList<String>();
+
+    // group the rows by their attribute values, keeping them in file order
+    Map<List<String>, List<Row<T>>> groups = new HashMap<List<String>, List<Row<T>>>();
+    List<List<String>> order = new ArrayList<List<String>>();
+    for (Row<T> row : builder.rows) {
+      List<Row<T>> group = groups.get(row.values);
+      if (group == null) {
+        group = new ArrayList<Row<T>>();
+        groups.put(row.values, group);
+        order.add(row.values);
+      }
+      add(group, row);
+    }
+
+    Map<String, Object> tree = new HashMap<String, Object>();
+    Object top = null;
+    for (List<String> values : order) {
+      IntervalIndex<T> index = new IntervalIndex<T>(groups.get(values), usesAge);
+      if (values.isEmpty()) {
+        top = index;
+      } else {
+        insert(tree, values, index);
+      }
+    }
+    this.root = (attributes.length == 0) ? top : tree;
+  }
+
+  /**
+   * Add a row to the rows with the same attribute values, checking it against the earlier rows.
+   */
+  private void add(List<Row<T>> group, Row<T> row) {
+    for (int i = 0; i < group.size(); i++) {
+      Row<T> earlier = group.get(i);
+      if (row.contains(earlier)) {
+        // the same key, since HashMap.put matched a row whose ranges covered an earlier row's
+        if (earlier.sameRanges(row)) {
+          warnings.add("row " + row.line + " replaces row " + earlier.line
+              + ", which has the same attributes and ranges");
+        } else {
+          warnings.add("row " + row.line + " replaces row " + earlier.line
+              + ", which has the same attributes and ranges within its ranges;"
+              + " only the ranges of row " + earlier.line + " are used");
+        }
+        group.set(i, earlier.withValue(row.line, row.value));
+        return;
+      }
+    }
+    for (Row<T> earlier : group) {
+      if (earlier.contains(row)) {
+        warnings.add("row " + row.line + " is unreachable, because row " + earlier.line
+            + " has the same attributes and covers its ranges");
+      } else if (earlier.overlaps(row)) {
+        warnings.add("row " + row.line + " overlaps row " + earlier.line
+            + ", which is used where they overlap");
+      }
+    }
+    group.add(row);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static void insert(Map<String, Object> tree, List<String> values, Object index) {
+    Map<String, Object> node = tree;
+    for (int i = 0; i < values.size() - 1; i++) {
+      node = (Map<String, Object>) node.computeIfAbsent(values.get(i).intern(),
+          k -> new HashMap<String, Object>());
+    }
+    node.put(values.get(values.size() - 1).intern(), index);
+  }
+
+  /**
+   * Get the name of this table.
+   * @return table name
+   */
+  public String getName() {
+    return name;
+  }
+
+  /**
+   * Get the names of the attribute columns, not including the age and time columns.
+   * @return attribute names, in column order
+   */
+  public List<String> getAttributes() {
+    return Collections.unmodifiableList(Arrays.asList(attributes));
+  }
+
+  /**
+   * Get the problems found with the rows of this table when it was built.
+   * @return descriptions of overlapping, unreachable or replaced rows
+   */
+  public List<String> getWarnings() {
+    return Collections.unmodifiableList(warnings);
+  }
+
+  /**
+   * Find the row that matches the given person at the given time.
+   * @param person The person to look up.
+   * @param time The current time.
+   * @return the value of the matching row, or null if no row matches.
+   */
+  @SuppressWarnings("unchecked")
+  public T get(Person person, long time) {
+    Object node = root;
+    for (String attribute : attributes) {
+      Object value = person.attributes.get(attribute);
+      if (value == null) {
+        throw new RuntimeException("LOOKUP TABLE ERROR: Attribute '"
+            + attribute + "' in CSV table '" + name
+            + "' does not exist as one of this person's attributes.");
+      }
+      node = ((Map<String, Object>) node).get(value.toString());
+      if (node == null) {
+        return null;
+      }
+    }
+    if (node == null) {
+      return null;
+    }
+    long age = usesAge ? person.ageInYears(time) : 0L;
+    return ((IntervalIndex<T>) node).get(age, time);
+  }
+
+  /**
+   * Collects the rows of a lookup table before it is built.
+   * @param <T> The value of each row.
+   */
+  static final class Builder<T> {
+    private final String name;
+    private final List<String> attributes;
+    private final boolean usesAge;
+    private final List<Row<T>> rows;
+
+    /**
+     * Start a new lookup table.
+     * @param name Name of the table, used in messages.
+     * @param attributes Names of the attribute columns, not including age and time.
+     * @param usesAge Whether the table has an age range column.
+     */
+    Builder(String name, List<String> attributes, boolean usesAge) {
+      this.name = name;
+      this.attributes = new ArrayList<String>(attributes);
+      this.usesAge = usesAge;
+      this.rows = new ArrayList<Row<T>>();
+    }
+
+    /**
+     * Add a row to the table.
+     * @param line Line number of the row in the CSV file, used in messages.
+     * @param values Attribute values of the row, in the same order as the attribute names.
+     * @param ageRange Age range of the row, or null if the table does not use age.
+     * @param timeRange Time range of the row, or null if the table does not use time.
+     * @param value The value to return for people that match the row.
+     * @return this builder
+     */
+    Builder<T> add(int line, List<String> values, Range<Integer> ageRange,
+        Range<Long> timeRange, T value) {
+      if (values.size() != attributes.size()) {
+        throw new IllegalArgumentException("LOOKUP TABLE '" + name + "' ERROR: row " + line
+            + " has " + values.size() + " attribute values, expected " + attributes.size());
+      }
+      rows.add(new Row<T>(line, new ArrayList<String>(values), ageRange, timeRange, value));
+      return this;
+    }
+
+    /**
+     * Build the table, printing a warning for any overlapping or unreachable rows.
+     * @return the lookup table
+     */
+    LookupTable<T> build() {
+      LookupTable<T> table = new LookupTable<T>(this);
+      for (String warning : table.warnings) {
+        System.out.println("LOOKUP TABLE '" + name + "' WARNING: " + warning);
+      }
+      return table;
+    }
+  }
+
+  /**
+   * A single row of the table, with inclusive age and time bounds.
+   */
+  private static final class Row<T> {
+    private final int line;
+    private final List<String> values;
+    private final long ageLow;
+    private final long ageHigh;
+    private final long timeLow;
+    private final long timeHigh;
+    private final T value;
+
+    private Row(int line, List<String> values, Range<Integer> ageRange, Range<Long> timeRange,
+        T value) {
+      this.line = line;
+      this.values = values;
+      this.ageLow = (ageRange == null) ? Long.MIN_VALUE : ageRange.getMinimum();
+      this.ageHigh = (ageRange == null) ? Long.MAX_VALUE : ageRange.getMaximum();
+      this.timeLow = (timeRange == null) ? Long.MIN_VALUE : timeRange.getMinimum();
+      this.timeHigh = (timeRange == null) ? Long.MAX_VALUE : timeRange.getMaximum();
+      this.value = value;
+    }
+
+    private Row(int line, List<String> values, long ageLow, long ageHigh, long timeLow,
+        long timeHigh, T value) {
+      this.line = line;
+      this.values = values;
+      this.ageLow = ageLow;
+      this.ageHigh = ageHigh;
+      this.timeLow = timeLow;
+      this.timeHigh = timeHigh;
+      this.value = value;
+    }
+
+    /**
+     * Get a row with the ranges of this row and the value of a later row.
+     */
+    private Row<T> withValue(int line, T value) {
+      return new Row<T>(line, values, ageLow, ageHigh, timeLow, timeHigh, value);
+    }
+
+    private boolean sameRanges(Row<T> other) {
+      return ageLow == other.ageLow && ageHigh == other.ageHigh
+          && timeLow == other.timeLow && timeHigh == other.timeHigh;
+    }
+
+    private boolean contains(Row<T> other) {
+      return ageLow <= other.ageLow && other.ageHigh <= ageHigh
+          && timeLow <= other.timeLow && other.timeHigh <= timeHigh;
+    }
+
+    private boolean overlaps(Row<T> other) {
+      return ageLow <= other.ageHigh && other.ageLow <= ageHigh
+          && timeLow <= other.timeHigh && other.timeLow <= timeHigh;
+    }
+  }
+
+  /**
+   * The rows for one set of attribute values. The primary axis (age if the table uses age,
+   * otherwise time) is split into segments at every range boundary, and each segment lists the
+   * rows covering it in file order. A lookup is a binary search for the segment, then a check
+   * of the other axis for each row in the segment.
+   */
+  private static final class IntervalIndex<T> {
+    private final boolean ageIsPrimary;
+    /** The first value of each segment, in ascending order. */
+    private final long[] starts;
+    /** The rows covering each segment. */
+    private final Row<T>[][] segments;
+
+    @SuppressWarnings("unchecked")
+    private IntervalIndex(List<Row<T>> rows, boolean ageIsPrimary) {
+      this.ageIsPrimary = ageIsPrimary;
+      TreeSet<Long> boundaries = new TreeSet<Long>();
+      for (Row<T> row : rows) {
+        boundaries.add(low(row));
+        if (high(row) != Long.MAX_VALUE) {
+          boundaries.add(high(row) + 1);
+        }
+      }
+      starts = new long[boundaries.size()];
+      segments = new Row[boundaries.size()][];
+      int i = 0;
+      for (long start : boundaries) {
+        List<Row<T>> covering = new ArrayList<Row<T>>();
+        for (Row<T> row : rows) {
+          if (low(row) <= start && start <= high(row)) {
+            covering.add(row);
+          }
+        }
+        starts[i] = start;
+        segments[i] = covering.toArray(new Row[0]);
+        i++;
+      }
+    }
+
+    private long low(Row<T> row) {
+      return ageIsPrimary ? row.ageLow : row.timeLow;
+    }
+
+    private long high(Row<T> row) {
+      return ageIsPrimary ? row.ageHigh : row.timeHigh;
+    }
+
+    private T get(long age, long time) {
+      long primary = ageIsPrimary ? age : time;
+      int segment = Arrays.binarySearch(starts, primary);
+      if (segment < 0) {
+        // not a boundary, so use the segment that starts before it
+        segment = -segment - 2;
+        if (segment < 0) {
+          return null;
+        }
+      }
+      for (Row<T> row : segments[segment]) {
+        if (row.ageLow <= age && age <= row.ageHigh
+            && row.timeLow <= time && time <= row.timeHigh) {
+          return row.value;
+        }
+      }
+      return null;
+    }
+  }
+}
@@ -23,7 +23,8 @@ import java.nio.file.spi.FileSystemProvider;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
-import java.util.LinkedList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -51,6 +52,11 @@ import org.mitre.synthea.world.agents.Person;
  * and the list of modules is shared between the generated population. Because we share modules 
  * across the population, it is important that States are cloned before they are executed. 
  * This keeps the "master" copy of the module clean.
+ *
+ * <p>The state definitions of a module are immutable once loaded, so clones of a Module share
+ * the same state map. Only the states a person actually enters are cloned, and those clones
+ * (kept in the person's module history) carry the per-person execution state such as entry and
+ * exit times and delays.
  */
 public class Module implements Cloneable, Serializable {
 
@@ -198,7 +204,7 @@ public class Module implements Cloneable, Serializable {
 
   private static String applyOverrides(String jsonString, Properties overrides,
           String moduleFileName) {
-    DocumentContext ctx = JsonPath.using(JSON_PATH_CONFIG).parse(jsonString);
+    Map<String, Double> moduleOverrides = new LinkedHashMap<String, Double>();
     overrides.forEach((key, value) -> {
       // use :: for the separator because filenames cannot contain :
       String[] parts = ((String)key).split("::");
@@ -206,9 +212,17 @@ public class Module implements Cloneable, Serializable {
       if (module.equals(moduleFileName)) {
         String jsonPath = parts[1];
         Double numberValue = Double.parseDouble((String)value);
-        ctx.set(jsonPath, numberValue);
+        moduleOverrides.put(jsonPath, numberValue);
       }
     });
+    if (moduleOverrides.isEmpty()) {
+      // most modules have no overrides, so don't parse them with JsonPath
+      return jsonString;
+    }
+    DocumentContext ctx = JsonPath.using(JSON_PATH_CONFIG).parse(jsonString);
+    for (Entry<String, Double> override : moduleOverrides.entrySet()) {
+      ctx.set(override.getKey(), override.getValue());
+    }
     return ctx.jsonString();
   }
 
@@ -231,14 +245,27 @@ public class Module implements Cloneable, Serializable {
    *     supplied predicate. Submodules are loaded, but not included.
    */
   public static List<Module> getModules(Predicate<String> pathPredicate) {
-    List<Module> list = new ArrayList<Module>();
+    List<ModuleSupplier> suppliers = new ArrayList<ModuleSupplier>();
+    List<ModuleSupplier> unloaded = new ArrayList<ModuleSupplier>();
     modules.forEach((k, v) -> {
+      if (v.submodule || v.core || pathPredicate.test(v.path)) {
+        suppliers.add(v);
+        if (!v.loaded) {
+          unloaded.add(v);
+        }
+      }
+    });
+    // the first call loads every module, which is much faster in parallel
+    unloaded.parallelStream().forEach(ModuleSupplier::load);
+
+    List<Module> list = new ArrayList<Module>();
+    for (ModuleSupplier v : suppliers) {
       if (v.submodule) {
         v.get(); // ensure submodules get loaded
-      } else if (v.core || pathPredicate.test(v.path)) {
+      } else {
         list.add(v.get());
       }
-    });
+    }
     return list;
   }
 
@@ -292,27 +319,26 @@ public class Module implements Cloneable, Serializable {
     }
 
     JsonObject jsonStates = definition.get("states").getAsJsonObject();
-    states = new ConcurrentHashMap<String, State>();
+    Map<String, State> stateDefinitions = new HashMap<String, State>();
     for (Entry<String, JsonElement> entry : jsonStates.entrySet()) {
       State state = State.build(this, entry.getKey(), entry.getValue().getAsJsonObject());
-      states.put(entry.getKey(), state);
+      stateDefinitions.put(entry.getKey(), state);
     }
+    states = Collections.unmodifiableMap(stateDefinitions);
   }
 
   /**
    * Clone this module. Never provide the original.
+   * The state definitions are shared with the original, since they are never executed directly;
+   * {@link #process(Person, long, boolean)} clones each state as the person enters it.
    */
   public Module clone() {
     Module clone = new Module();
     clone.name = this.name;
     clone.submodule = this.submodule;
+    clone.gmfVersion = this.gmfVersion;
     clone.remarks = this.remarks;
-    if (this.states != null) {
-      clone.states = new ConcurrentHashMap<String, State>();
-      for (String key : this.states.keySet()) {
-        clone.states.put(key, this.states.get(key).clone());
-      }
-    }
+    clone.states = this.states;
     return clone;
   }
 
@@ -349,7 +375,7 @@ public class Module implements Cloneable, Serializable {
     person.history = null;
     // what current state is this person in?
     if (!person.attributes.containsKey(this.name)) {
-      person.history = new LinkedList<State>();
+      person.history = new ModuleHistory();
       person.history.add(initialState());
       person.attributes.put(this.name, person.history);
     }
@@ -389,6 +415,33 @@ public class Module implements Cloneable, Serializable {
     return (current instanceof State.Terminal);
   }
 
+  /**
+   * Get the earliest time at which processing this Module could move the given Person on from
+   * their current state. A Person waiting in a Delay or Procedure state cannot leave it before
+   * the end of the delay, so until then processing the Module has no effect.
+   *
+   * @param person
+   *          : the person being simulated
+   * @return the end of the current delay, or Long.MIN_VALUE if the Module should be processed
+   *     on every time step.
+   */
+  @SuppressWarnings("unchecked")
+  public long getNextProcessTime(Person person) {
+    if (states == null) {
+      // Java modules do their own scheduling
+      return Long.MIN_VALUE;
+    }
+    List<State> history = (List<State>) person.attributes.get(this.name);
+    if (history == null || history.isEmpty()) {
+      return Long.MIN_VALUE;
+    }
+    State current = history.get(0);
+    if (current instanceof State.Delayable && ((State.Delayable) current).next != null) {
+      return ((State.Delayable) current).next;
+    }
+    return Long.MIN_VALUE;
+  }
+
   private State initialState() {
     return states.get("Initial").clone(); // all Initial states have name Initial
   }
@@ -416,7 +469,9 @@ public class Module implements Cloneable, Serializable {
   }
 
   /**
-   * ModuleSupplier allows for lazy loading of Modules.
+   * ModuleSupplier allows for lazy loading of Modules. Only the first call to {@link #get()}
+   * loads the module, and other threads calling it at the same time wait for that load to
+   * finish. Once the module is loaded, {@link #get()} does not lock.
    */
   public static class ModuleSupplier implements Supplier<Module> {
 
@@ -424,7 +479,7 @@ public class Module implements Cloneable, Serializable {
     public final boolean submodule;
     public final String path;
 
-    private boolean loaded;
+    private volatile boolean loaded;
     private Callable<Module> loader;
     private Module module;
     private Throwable fault;
@@ -457,19 +512,32 @@ public class Module implements Cloneable, Serializable {
       loader = null;
     }
 
-    @Override
-    public synchronized Module get() {
-      if (!loaded) {
-        try {
-          module = loader.call();
-        } catch (Throwable e) {
-          e.printStackTrace();
-          fault = e;
-        } finally {
-          loaded = true;
-          loader = null;
+    /**
+     * Load the module, unless it has already been loaded.
+     */
+    private void load() {
+      if (loaded) {
+        return;
+      }
+      synchronized (this) {
+        if (!loaded) {
+          try {
+            module = loader.call();
+          } catch (Throwable e) {
+            e.printStackTrace();
+            fault = e;
+          } finally {
+            loader = null;
+            // publishes module and fault to threads that read loaded without locking
+            loaded = true;
+          }
         }
       }
+    }
+
+    @Override
+    public Module get() {
+      load();
       if (fault != null) {
         throw new RuntimeException(fault);
       }
@@ -0,0 +1,201 @@
+package org.mitre.synthea.engine;
+
+import java.io.Serializable;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.mitre.synthea.helpers.Config;
+
+/**
+ * ModuleHistory is the history of states a person has passed through in a single module.
+ * As with the list it replaces, index 0 is the most recent (current) state and the last index
+ * is the oldest retained state. New states may only be added at the front, so
+ * {@link #add(State)} and {@link #addAll(Collection)} also add to the front rather than
+ * appending.
+ *
+ * <p>Internally the states are kept in chronological order, along with an index from state name
+ * to the most recent occurrence of that name, so that {@link #hadPriorState(String, String, Long)}
+ * does not need to walk the whole history.
+ *
+ * <p>If "generate.module_history.max_entries" is set to a positive number, the oldest entries
+ * beyond that number are evicted. The name index (and the exit time of the most recent
+ * occurrence of each name) is kept for evicted entries, so prior state checks still see them,
+ * but iterating over the history only returns the retained entries.
+ */
+public class ModuleHistory extends AbstractList<State> implements Serializable {
+  private static final long serialVersionUID = 5471632480718374823L;
+
+  /** Retained states, oldest first. */
+  private final ArrayList<State> states;
+  /** Name of each state to the sequence number of its most recent occurrence. */
+  private final Map<String, Integer> lastOccurrence;
+  /** Name of each evicted state to the exit time of its most recent occurrence. */
+  private final Map<String, Long> evictedExits;
+  /** Sequence number of states.get(0), i.e. the number of evicted states. */
+  private int evicted;
+  private final int maxEntries;
+
+  /**
+   * Create a new, empty ModuleHistory using the maximum number of entries currently set by
+   * "generate.module_history.max_entries".
+   */
+  public ModuleHistory() {
+    this(Integer.parseInt(Config.get("generate.module_history.max_entries", "0")));
+  }
+
+  /**
+   * Create a new, empty ModuleHistory.
+   * @param maxEntries The maximum number of retained entries, or 0 for unlimited.
+   */
+  public ModuleHistory(int maxEntries) {
+    this.states = new ArrayList<State>();
+    this.lastOccurrence = new HashMap<String, Integer>();
+    this.evictedExits = new HashMap<String, Long>();
+    this.evicted = 0;
+    this.maxEntries = maxEntries;
+  }
+
+  @Override
+  public State get(int index) {
+    return states.get(states.size() - 1 - index);
+  }
+
+  @Override
+  public int size() {
+    return states.size();
+  }
+
+  /**
+   * Add a state to the history. Only index 0 (the front, most recent) is supported.
+   */
+  @Override
+  public void add(int index, State state) {
+    if (index != 0) {
+      throw new UnsupportedOperationException(
+          "States may only be added to the front of a ModuleHistory");
+    }
+    states.add(state);
+    lastOccurrence.put(state.name, evicted + states.size() - 1);
+    modCount++;
+    compact();
+  }
+
+  /**
+   * Add a state to the front of the history, making it the most recent state.
+   * Unlike most lists, this does not append the state to the end.
+   */
+  @Override
+  public boolean add(State state) {
+    add(0, state);
+    return true;
+  }
+
+  /**
+   * Add states to the front of the history, as {@link #addAll(int, Collection)} with index 0.
+   */
+  @Override
+  public boolean addAll(Collection<? extends State> collection) {
+    return addAll(0, collection);
+  }
+
+  /**
+   * Add states to the front of the history. The given collection is ordered like a history,
+   * with the most recent state first.
+   */
+  @Override
+  public boolean addAll(int index, Collection<? extends State> collection) {
+    if (index != 0) {
+      throw new UnsupportedOperationException(
+          "States may only be added to the front of a ModuleHistory");
+    }
+    List<? extends State> list = (collection instanceof List)
+        ? (List<? extends State>) collection : new ArrayList<State>(collection);
+    for (int i = list.size() - 1; i >= 0; i--) {
+      add(0, list.get(i));
+    }
+    return !list.isEmpty();
+  }
+
+  private void compact() {
+    if (maxEntries <= 0 || states.size() <= maxEntries + Math.max(1, maxEntries / 4)) {
+      return;
+    }
+    // evict in batches so the cost of shifting the retained entries is amortized
+    int count = states.size() - maxEntries;
+    for (int i = 0; i < count; i++) {
+      State state = states.get(i);
+      if (lastOccurrence.get(state.name) == evicted + i) {
+        evictedExits.put(state.name, state.exited);
+      }
+    }
+    states.subList(0, count).clear();
+    evicted += count;
+  }
+
+  /**
+   * Get the number of entries that have been evicted from this history.
+   * @return the number of evicted entries.
+   */
+  public int getEvictedCount() {
+    return evicted;
+  }
+
+  /**
+   * Check for prior existence of the specified state, with the same semantics as walking the
+   * history from the most recent state backwards: the check fails if a state named `since` is
+   * found first, or if a state that exited at or before `within` is found first.
+   *
+   * <p>Because each state is entered when the previous one exits, exit times never decrease
+   * from older to newer entries, so the `within` check only needs to look at the most recent
+   * occurrence of the state and any entries after it that have not yet exited.
+   *
+   * @param name The name of the state to look for.
+   * @param since Optional name of a state that must not have occurred after `name`.
+   * @param within Optional time before which `name` must not have exited.
+   * @return true if the state occurred and meets the `since` and `within` criteria.
+   */
+  public boolean hadPriorState(String name, String since, Long within) {
+    Integer nameSeq = lastOccurrence.get(name);
+    if (nameSeq == null) {
+      return false;
+    }
+    if (since != null) {
+      Integer sinceSeq = lastOccurrence.get(since);
+      if (sinceSeq != null && sinceSeq >= nameSeq) {
+        return false;
+      }
+    }
+    if (within != null) {
+      Long exited = null;
+      if (nameSeq < evicted) {
+        exited = evictedExits.get(name);
+        if (exited == null && !states.isEmpty()) {
+          exited = firstExit(0);
+        }
+      } else {
+        exited = firstExit(nameSeq - evicted);
+      }
+      if (exited != null && exited <= within) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * Find the earliest exit time at or after the given chronological position.
+   */
+  private Long firstExit(int position) {
+    for (int i = position; i < states.size(); i++) {
+      Long exited = states.get(i).exited;
+      if (exited != null) {
+        return exited;
+      }
+    }
+    return null;
+  }
+}
@@ -0,0 +1,111 @@
+package org.mitre.synthea.engine;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import org.mitre.synthea.world.agents.Person;
+
+/**
+ * ModuleSchedule processes the current modules of a person, skipping the modules that are
+ * waiting in a Delay or Procedure state until their delay ends.
+ *
+ * <p>The modules are kept in a priority queue ordered by the next time they need to be
+ * processed (see {@link Module#getNextProcessTime(Person)}). On each time step, the modules
+ * that are due are processed in the same order as the person's list of current modules, so
+ * the person's random numbers are drawn in the same order as if every module were processed
+ * on every time step, and the simulation produces the same results. Once the person dies,
+ * the remaining modules are all processed, so that they terminate and are removed.
+ */
+final class ModuleSchedule {
+  private static final Comparator<Scheduled> BY_TIME =
+      Comparator.<Scheduled>comparingLong(s -> s.time).thenComparingInt(s -> s.order);
+  private static final Comparator<Scheduled> BY_ORDER =
+      Comparator.comparingInt(s -> s.order);
+
+  private final Person person;
+  private final PriorityQueue<Scheduled> queue;
+  /** Modules being processed in the current time step, reused across time steps. */
+  private final List<Scheduled> due;
+
+  /**
+   * Schedule the current modules of a person.
+   * @param person The person, whose current modules are updated as modules complete.
+   */
+  ModuleSchedule(Person person) {
+    this.person = person;
+    this.queue = new PriorityQueue<Scheduled>(Math.max(1, person.currentModules.size()), BY_TIME);
+    this.due = new ArrayList<Scheduled>(person.currentModules.size());
+    int order = 0;
+    for (Module module : person.currentModules) {
+      queue.add(new Scheduled(module, order++, module.getNextProcessTime(person)));
+    }
+  }
+
+  /**
+   * Process every module that is due at the given time. Modules that complete are removed from
+   * the person's current modules.
+   * @param time The time of the current time step.
+   */
+  void process(long time) {
+    while (!queue.isEmpty() && queue.peek().time <= time) {
+      due.add(queue.poll());
+    }
+    due.sort(BY_ORDER);
+    boolean alive = person.alive(time);
+    if (!alive) {
+      addDueAfter(-1, 0);
+    }
+    for (int i = 0; i < due.size(); i++) {
+      Scheduled scheduled = due.get(i);
+      if (scheduled.module.process(person, time)) {
+        // this module has completed/terminated.
+        person.currentModules.remove(scheduled.module);
+      } else {
+        scheduled.time = scheduled.module.getNextProcessTime(person);
+        queue.add(scheduled);
+      }
+      if (alive && !person.alive(time)) {
+        // the person died during this time step
+        alive = false;
+        addDueAfter(scheduled.order, i + 1);
+      }
+    }
+    due.clear();
+  }
+
+  /**
+   * Once the person has died, every module after the given position is processed, including
+   * the ones still waiting for a delay, so that they terminate and are removed from the
+   * person's current modules, as they would be if every module were processed on every step.
+   * @param order Modules after this position in the person's current modules are due.
+   * @param from The index in the due list of the first module that has not been processed.
+   */
+  private void addDueAfter(int order, int from) {
+    Iterator<Scheduled> iter = queue.iterator();
+    while (iter.hasNext()) {
+      Scheduled scheduled = iter.next();
+      if (scheduled.order > order) {
+        due.add(scheduled);
+        iter.remove();
+      }
+    }
+    due.subList(from, due.size()).sort(BY_ORDER);
+  }
+
+  private static final class Scheduled {
+    private final Module module;
+    /** Position of the module in the person's current modules when they were scheduled. */
+    private final int order;
+    /** The module does not need to be processed before this time. */
+    private long time;
+
+    private Scheduled(Module module, int order, long time) {
+      this.module = module;
+      this.order = order;
+      this.time = time;
+    }
+  }
+}
@@ -1,5 +1,8 @@
 package org.mitre.synthea.engine;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
@@ -7,6 +10,9 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
 import java.lang.reflect.InvocationTargetException;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.math.RoundingMode;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.nio.file.Files;
@@ -17,7 +23,11 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import javax.xml.stream.XMLStreamException;
 
 import org.apache.commons.lang3.ArrayUtils;
@@ -25,8 +35,8 @@ import org.apache.commons.math.ode.DerivativeException;
 import org.mitre.synthea.helpers.ChartRenderer;
 import org.mitre.synthea.helpers.ChartRenderer.MultiTableChartConfig;
 import org.mitre.synthea.helpers.ChartRenderer.MultiTableSeriesConfig;
+import org.mitre.synthea.helpers.Config;
 import org.sbml.jsbml.Model;
-import org.sbml.jsbml.SBMLDocument;
 import org.sbml.jsbml.SBMLException;
 import org.sbml.jsbml.validator.ModelOverdeterminedException;
 import org.sbml.jsbml.xml.stax.SBMLReader;
@@ -54,13 +64,24 @@ public class PhysiologySimulator {
   private static final URL MODELS_RESOURCE = ClassLoader.getSystemClassLoader()
       .getResource("physiology/models");
   private static final Map<String, Class<?>> SOLVER_CLASSES;
-  private static Map<String, Model> MODEL_CACHE;
+  private static final Map<String, Model> MODEL_CACHE;
+  /** Idle interpreter and solver pairs, by model path, solver name and step size. */
+  private static final Map<String, Queue<Engine>> ENGINE_POOL;
+  /** Significant digits inputs are rounded to in result keys, or 0 to not reuse results. */
+  private static volatile int inputDigits;
+  /**
+   * Previous simulation results, by engine, duration and quantized inputs, weighed in
+   * kilobytes. Null unless inputs are quantized, since inputs are continuous values that are
+   * almost never exactly equal.
+   */
+  private static volatile Cache<ResultKey, MultiTable> resultCache;
   private static Path SBML_PATH;
   private static Path OUTPUT_PATH = Paths.get("output", "physiology");
   
-  private final Model model;
-  private final SBMLinterpreter interpreter;
-  private final AbstractDESSolver solver;
+  private final String engineKey;
+  private final String modelPath;
+  private final String solverName;
+  private final double stepSize;
   private final String[] modelFields;
   private final double[] modelDefaults;
   private final double simDuration;
@@ -157,8 +178,39 @@ public class PhysiologySimulator {
       throw new RuntimeException(ex);
     }
     
-    // Initialize our model cache
-    MODEL_CACHE = new HashMap<String, Model>();
+    // Initialize our caches, which are shared by all threads
+    MODEL_CACHE = new ConcurrentHashMap<String, Model>();
+    ENGINE_POOL = new ConcurrentHashMap<String, Queue<Engine>>();
+    configureResultCache(
+        Integer.parseInt(Config.get("physiology.cache.significant_digits", "0")),
+        Long.parseLong(Config.get("physiology.cache.max_megabytes", "256")));
+  }
+
+  /**
+   * Set how simulation results are reused, discarding any previous results.
+   * @param significantDigits Inputs that are equal when rounded to this many significant digits
+   *     share results. If 0, results are not reused.
+   * @param maxMegabytes Maximum memory used by the reused results.
+   */
+  static synchronized void configureResultCache(int significantDigits, long maxMegabytes) {
+    if (significantDigits > 0) {
+      resultCache = CacheBuilder.newBuilder()
+          .maximumWeight(1024L * maxMegabytes)
+          .weigher((ResultKey key, MultiTable table) -> kilobytes(table))
+          .build();
+    } else {
+      resultCache = null;
+    }
+    inputDigits = significantDigits;
+  }
+
+  /**
+   * Get the number of simulation results kept for reuse.
+   * @return the number of results.
+   */
+  static long getCachedResultCount() {
+    Cache<ResultKey, MultiTable> cache = resultCache;
+    return (cache == null) ? 0 : cache.size();
   }
   
   /**
@@ -186,32 +238,62 @@ public class PhysiologySimulator {
    */
   public PhysiologySimulator(String modelPath, String solverName, double stepSize,
       double simDuration) {
-    
-    // Get the model from cache if it has already been loaded
-    if (MODEL_CACHE.containsKey(modelPath)) {
-      model = MODEL_CACHE.get(modelPath);
-    } else {
+    this.modelPath = modelPath;
+    this.solverName = solverName;
+    this.stepSize = stepSize;
+    this.simDuration = simDuration;
+    this.engineKey = modelPath + "|" + solverName + "|" + stepSize;
+
+    Engine engine = borrowEngine();
+    try {
+      modelFields = engine.interpreter.getIdentifiers().clone();
+      modelDefaults = engine.interpreter.getInitialValues().clone();
+    } finally {
+      returnEngine(engine);
+    }
+  }
+
+  /**
+   * Get the SBML model for the given file, loading it if it has not been loaded yet.
+   * @param modelPath Path to the SBML file to load relative to resources/physiology
+   * @return the model
+   */
+  private static Model getModel(String modelPath) {
+    return MODEL_CACHE.computeIfAbsent(modelPath, path -> {
       // Load and instantiate the model from the SBML file
-      Path modelFilepath = Paths.get(SBML_PATH.toString(), modelPath);
+      Path modelFilepath = Paths.get(SBML_PATH.toString(), path);
       SBMLReader reader = new SBMLReader();
       File inputFile = new File(modelFilepath.toString());
-      SBMLDocument doc;
       try {
-        doc = reader.readSBML(inputFile);
+        return reader.readSBML(inputFile).getModel();
       } catch (IOException | XMLStreamException ex) {
         throw new RuntimeException(ex);
       }
-      model = doc.getModel();
-      
-      // Add the loaded model to the cache so we don't need to load it again
-      MODEL_CACHE.put(modelPath, model);
-    }
-    interpreter = getInterpreter(model);
-    solver = getSolver(solverName);
-    solver.setStepSize(stepSize);
-    modelFields = interpreter.getIdentifiers();
-    modelDefaults = interpreter.getInitialValues();
-    this.simDuration = simDuration;
+    });
+  }
+
+  /**
+   * Take an idle interpreter and solver for this simulator's model from the pool, creating
+   * a new pair if none are idle. Callers must give it back with {@link #returnEngine(Engine)}.
+   * @return an interpreter and solver that no other thread is using
+   */
+  private Engine borrowEngine() {
+    Engine engine = ENGINE_POOL.computeIfAbsent(engineKey,
+        key -> new ConcurrentLinkedQueue<Engine>()).poll();
+    if (engine == null) {
+      AbstractDESSolver solver = getSolver(solverName);
+      solver.setStepSize(stepSize);
+      engine = new Engine(getInterpreter(getModel(modelPath)), solver);
+    }
+    return engine;
+  }
+
+  /**
+   * Give a borrowed interpreter and solver back to the pool.
+   * @param engine the interpreter and solver from {@link #borrowEngine()}
+   */
+  private void returnEngine(Engine engine) {
+    ENGINE_POOL.get(engineKey).offer(engine);
   }
   
   /**
@@ -238,15 +320,6 @@ public class PhysiologySimulator {
    *        solution to differential equations
    */
   public MultiTable run(Map<String, Double> inputs) throws DerivativeException {
-    try {
-      // Reinitialize the interpreter to prevent old values from affecting the new simulation
-      interpreter.init(true);
-    } catch (ModelOverdeterminedException | SBMLException ex) {
-      // This shouldn't ever happen here since the interpreter has already been instantiated
-      // at least once
-      throw new RuntimeException(ex);
-    }
-    
     // Create a copy of the default parameters to use
     double[] params = Arrays.copyOf(modelDefaults, modelDefaults.length);
 
@@ -260,12 +333,97 @@ public class PhysiologySimulator {
       }
     }
     
-    // Solve the ODE for the specified duration and return the results
-    MultiTable results = solver.solve(interpreter, params, 0, simDuration);
-    
+    // Round the inputs in the key so that nearly identical simulations share a result. The
+    // solver is always given the exact inputs.
+    Cache<ResultKey, MultiTable> cache = resultCache;
+    int digits = inputDigits;
+    ResultKey key = null;
+    MultiTable results;
+    if (cache != null && digits > 0) {
+      double[] keyParams = new double[params.length];
+      for (int i = 0; i < params.length; i++) {
+        keyParams[i] = quantize(params[i], digits);
+      }
+      key = new ResultKey(engineKey, simDuration, keyParams);
+      results = cache.getIfPresent(key);
+      if (results != null) {
+        // callers may modify the results, so never share the cached table
+        return copy(results);
+      }
+    }
+
+    Engine engine = borrowEngine();
+    try {
+      try {
+        // Reinitialize the interpreter to prevent old values from affecting the new simulation
+        engine.interpreter.init(true);
+      } catch (ModelOverdeterminedException | SBMLException ex) {
+        // This shouldn't ever happen here since the interpreter has already been instantiated
+        // at least once
+        throw new RuntimeException(ex);
+      }
+
+      // Solve the ODE for the specified duration and return the results
+      results = engine.solver.solve(engine.interpreter, params, 0, simDuration);
+    } finally {
+      returnEngine(engine);
+    }
+    if (key != null) {
+      cache.put(key, results);
+      return copy(results);
+    }
+
     return results;
   }
 
+  /**
+   * Copy simulation results, including the values of every block.
+   * @param results results to copy
+   * @return a copy that shares no values with the given results
+   */
+  static MultiTable copy(MultiTable results) {
+    // filtering on every time point copies all of the time points and values
+    MultiTable copy = results.filter(results.getTimePoints());
+    copy.setName(results.getName());
+    copy.setTimeName(results.getTimeName());
+    return copy;
+  }
+
+  /**
+   * Estimate the memory used by the values of simulation results.
+   * @param results simulation results
+   * @return the size of the time points and values in kilobytes, at least 1
+   */
+  private static int kilobytes(MultiTable results) {
+    long values = (long) results.getRowCount() * (results.getColumnCount() + 1);
+    return (int) Math.max(1L, Math.min(Integer.MAX_VALUE, values * Double.BYTES / 1024));
+  }
+
+  /**
+   * Round a value to the given number of significant digits.
+   * @param value value to round
+   * @param digits number of significant digits to keep
+   * @return the rounded value
+   */
+  static double quantize(double value, int digits) {
+    if (value == 0.0 || Double.isNaN(value) || Double.isInfinite(value)) {
+      return value;
+    }
+    return new BigDecimal(value).round(new MathContext(digits, RoundingMode.HALF_EVEN))
+        .doubleValue();
+  }
+
+  /**
+   * Discard all previous simulation results and idle interpreters and solvers.
+   */
+  public static void clearCaches() {
+    Cache<ResultKey, MultiTable> cache = resultCache;
+    if (cache != null) {
+      cache.invalidateAll();
+    }
+    ENGINE_POOL.clear();
+  }
+
   /**
    * Checks whether a string is a valid solver name.
    * @param solverName solver name string to check
@@ -369,7 +527,53 @@ public class PhysiologySimulator {
    * @return initial value
    */
   public double getParamDefault(String param) {
-    return modelDefaults[ArrayUtils.indexOf(interpreter.getIdentifiers(), param)];
+    return modelDefaults[ArrayUtils.indexOf(modelFields, param)];
+  }
+
+  /**
+   * An SBML interpreter and the solver to run it with. Neither can be used by more than one
+   * simulation at a time.
+   */
+  private static class Engine {
+    private final SBMLinterpreter interpreter;
+    private final AbstractDESSolver solver;
+
+    private Engine(SBMLinterpreter interpreter, AbstractDESSolver solver) {
+      this.interpreter = interpreter;
+      this.solver = solver;
+    }
+  }
+
+  /**
+   * Identifies a simulation by its model, solver, step size, duration and inputs.
+   */
+  private static class ResultKey {
+    private final String engineKey;
+    private final double simDuration;
+    private final double[] params;
+    private final int hash;
+
+    private ResultKey(String engineKey, double simDuration, double[] params) {
+      this.engineKey = engineKey;
+      this.simDuration = simDuration;
+      this.params = params;
+      this.hash = Objects.hash(engineKey, simDuration) * 31 + Arrays.hashCode(params);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (!(obj instanceof ResultKey)) {
+        return false;
+      }
+      ResultKey other = (ResultKey) obj;
+      return hash == other.hash && simDuration == other.simDuration
+          && engineKey.equals(other.engineKey) && Arrays.equals(params, other.params);
+    }
   }
 
   /**
@@ -343,17 +343,20 @@ public abstract class State implements Cloneable, Serializable {
     }
     
     private void setup() {
-      simulator = new PhysiologySimulator(model, solver, stepSize, simDuration);
-      paramTypes = new HashMap<String, String>();
-      
-      for (String param : simulator.getParameters()) {
-        // Assume all physiology model inputs are lists of Decimal objects which is typically
-        // the case
-        // TODO: Look into whether SBML supports other parameter types, and if so, how we might map
-        // those types to CQL types
-        paramTypes.put(param, "List<Decimal>");
+      // simulators only hold settings and can be shared, so clones keep the original's one
+      if (simulator == null) {
+        simulator = new PhysiologySimulator(model, solver, stepSize, simDuration);
+        paramTypes = new HashMap<String, String>();
+
+        for (String param : simulator.getParameters()) {
+          // Assume all physiology model inputs are lists of Decimal objects which is typically
+          // the case
+          // TODO: Look into whether SBML supports other parameter types, and if so, how we
+          // might map those types to CQL types
+          paramTypes.put(param, "List<Decimal>");
+        }
       }
-      
+
       for (IoMapper mapper : inputs) {
         mapper.initialize(paramTypes);
       }
@@ -599,22 +602,37 @@ public abstract class State implements Cloneable, Serializable {
    * transitions in some ways, but also have an important difference. A conditional transition
    * tests conditions once and uses the result to immediately choose the next state. A Guard
    * state will test the same condition on every time-step until the condition passes, at which
-   * point it progresses to the next state.
+   * point it progresses to the next state. Once the condition has failed, it is only tested again
+   * after one of the attributes, codes or time thresholds it depends on has changed
+   * (see {@link Logic#getInputs()}), since until then it would fail again.
    */
   public static class Guard extends State {
     private Logic allow;
+    /**
+     * The inputs of the logic when it last failed, or null if it must be tested again. Like
+     * Delayable.next, this is per-person state, so it is unset in clone().
+     */
+    private Logic.Snapshot waiting;
 
     @Override
     public Guard clone() {
       Guard clone = (Guard) super.clone();
+      clone.waiting = null;
       return clone;
     }
 
     @Override
     public boolean process(Person person, long time) {
+      if (waiting != null && !allow.changedSince(person, time, waiting)) {
+        // nothing the logic reads has changed, so it would fail again
+        return false;
+      }
       boolean exit = allow.test(person, time);
       if (exit) {
         this.exited = time;
+        waiting = null;
+      } else {
+        waiting = allow.snapshot(person, time);
       }
       return exit;
     }
@@ -5,9 +5,10 @@ import com.google.gson.JsonObject;
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.commons.lang3.Range;
 import org.mitre.synthea.helpers.Config;
@@ -119,12 +120,11 @@ public abstract class Transition implements Serializable {
    */
   public static class LookupTableTransition extends Transition {
 
-    // Map of lookupTables
-    private static HashMap<String, HashMap<LookupTableKey, List<DistributedTransitionOption>>>
-        lookupTables = new HashMap<String, HashMap<LookupTableKey,
-        List<DistributedTransitionOption>>>();
+    // Map of lookupTables, loaded once and shared by all threads
+    private static final ConcurrentMap<String, LookupTable<List<DistributedTransitionOption>>>
+        lookupTables =
+        new ConcurrentHashMap<String, LookupTable<List<DistributedTransitionOption>>>();
     private final List<LookupTableTransitionOption> transitions;
-    private List<String> attributes;
     private List<DistributedTransitionOption> defaultTransitions;
     private String lookupTableName;
 
@@ -141,9 +141,7 @@ public abstract class Transition implements Serializable {
         throw new RuntimeException(
           "LOOKUP TABLE JSON ERROR: Table name cannot be null.");
       }
-      if (!lookupTables.containsKey(lookupTableName)) {
-        loadLookupTable();
-      }
+      lookupTables.computeIfAbsent(lookupTableName, name -> loadLookupTable());
     }
 
     /**
@@ -164,12 +162,9 @@ public abstract class Transition implements Serializable {
     /**
      * Loads the current lookuptable.
      */
-    private void loadLookupTable() {
+    private LookupTable<List<DistributedTransitionOption>> loadLookupTable() {
 
       System.out.println("Loading Lookup Table: " + lookupTableName);
-      // Hashmap for the new lookup table.
-      HashMap<LookupTableKey, List<DistributedTransitionOption>> newTable
-          = new HashMap<LookupTableKey, List<DistributedTransitionOption>>();
       
       // Load in this transitions's CSV file.
       String fileName = Config.get("generate.lookup_tables") + lookupTableName;
@@ -186,25 +181,37 @@ public abstract class Transition implements Serializable {
 
       // Retrieve CSV column headers.
       List<String> columnHeaders = new ArrayList<String>(lookupTable.get(0).keySet());
-      // Parse the list of attributes.
-      this.attributes = new ArrayList<String>(columnHeaders.subList(0,
-          columnHeaders.size() - this.transitions.size()));
+      // Parse the list of attributes, not including age and time.
+      List<String> columns = columnHeaders.subList(0,
+          columnHeaders.size() - this.transitions.size());
+      boolean usesAge = columns.contains("age");
+      boolean usesTime = columns.contains("time");
+      List<String> attributes = new ArrayList<String>(columns);
+      attributes.remove("age");
+      attributes.remove("time");
       // Parse the list of states to transition to.
       List<String> transitionStates = columnHeaders.subList((columnHeaders.size()
           - this.transitions.size()), columnHeaders.size());
 
-      // Create keys and insert each row of CSV into lookup table map.
+      LookupTable.Builder<List<DistributedTransitionOption>> builder =
+          new LookupTable.Builder<List<DistributedTransitionOption>>(
+              fileName, attributes, usesAge);
+
+      // Insert each row of CSV into lookup table.
+      int line = 1;
       for (Map<String, String> currentRow : lookupTable) {
+        line++;
         // Extract attributes from current CSV row.
-        List<String> rowAttributes = new ArrayList<String>(currentRow.values());
-        rowAttributes = rowAttributes.subList(0, this.attributes.size());
+        List<String> rowAttributes = new ArrayList<String>(attributes.size());
+        for (String attribute : attributes) {
+          rowAttributes.add(currentRow.get(attribute));
+        }
         // Create age range for lookup table key if age is an attribute.
         Range<Integer> ageRange = null;
         Range<Long> timeRange = null;
-        if (this.attributes.contains("age")) {
-          Integer ageIndex = this.attributes.indexOf("age");
-          // Remove and parse the age range.
-          String value = rowAttributes.remove(ageIndex.intValue());
+        if (usesAge) {
+          // Parse the age range.
+          String value = currentRow.get("age");
           if (!value.contains("-")
               || value.substring(0, value.indexOf("-")).length() < 1
               || value.substring(value.indexOf("-") + 1).length() < 1) {
@@ -217,10 +224,9 @@ public abstract class Transition implements Serializable {
               Integer.parseInt(value.substring(0, value.indexOf("-"))),
               Integer.parseInt(value.substring(value.indexOf("-") + 1)));
         }
-        if (this.attributes.contains("time")) {
-          Integer timeIndex = this.attributes.indexOf("time");
-          // Remove and parse the age range.
-          String value = rowAttributes.remove(timeIndex.intValue());
+        if (usesTime) {
+          // Parse the time range.
+          String value = currentRow.get("time");
           if (!value.contains("-")
               || value.substring(0, value.indexOf("-")).length() < 1
               || value.substring(value.indexOf("-") + 1).length() < 1) {
@@ -233,18 +239,14 @@ public abstract class Transition implements Serializable {
               Long.parseLong(value.substring(0, value.indexOf("-"))),
               Long.parseLong(value.substring(value.indexOf("-") + 1)));
         }
-        // Attributes key to inert into lookup table.
-        LookupTableKey attributesLookupKey =
-            new LookupTableKey(rowAttributes, ageRange, timeRange);
         // Transition probabilities to insert into lookup table.
         List<DistributedTransitionOption> transitionProbabilities
             = createDistributedTransitionOptions(currentRow, transitionStates);
         // Insert the parsed attributes and transition probabilities into lookup table.
-        newTable.put(attributesLookupKey, transitionProbabilities);
+        builder.add(line, rowAttributes, ageRange, timeRange, transitionProbabilities);
       }
 
-      // Put new table into Hash map of all lookup tables.
-      lookupTables.put(lookupTableName, newTable);
+      return builder.build();
     }
 
     /**
@@ -274,31 +276,11 @@ public abstract class Transition implements Serializable {
 
     @Override
     public String follow(Person person, long time) {
-      Integer age = null;
-      // Extract Person's list of relevant attributes.
-      ArrayList<String> personsAttributes = new ArrayList<String>();
-      for (String currentAttribute : this.attributes) {
-        if (currentAttribute.equalsIgnoreCase("age")) {
-          age = person.ageInYears(time);
-        } else if (currentAttribute.equalsIgnoreCase("time")) {
-          // do nothing, we already have it
-        } else {
-          if (!person.attributes.containsKey(currentAttribute)) {
-            throw new RuntimeException("LOOKUP TABLE ERROR: Attribute '"
-                + currentAttribute + "' in CSV table '" + this.lookupTableName
-                + "' does not exist as one of this person's attributes.");
-          }
-          String personsAttribute
-              = person.attributes.get(currentAttribute).toString();
-          personsAttributes.add(personsAttribute);
-        }
-      }
-      // Create key from person's attributes to get distributions
-      LookupTableKey personsAttributesLookupKey = new LookupTableKey(personsAttributes, age, time);
-      if (lookupTables.get(lookupTableName).containsKey(personsAttributesLookupKey)) {
+      List<DistributedTransitionOption> options =
+          lookupTables.get(lookupTableName).get(person, time);
+      if (options != null) {
         // Person matches, use their attribute's list of distributedtransitionoptions
-        return pickDistributedTransition(
-          lookupTables.get(lookupTableName).get(personsAttributesLookupKey), person);
+        return pickDistributedTransition(options, person);
       } else {
         // No attribute match, use default transition.
         return pickDistributedTransition(this.defaultTransitions, person);
@@ -0,0 +1,306 @@
+package org.mitre.synthea.export;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import org.mitre.synthea.helpers.Config;
+
+/**
+ * BulkDataWriter writes FHIR bulk data (NDJSON) files, one resource per line.
+ *
+ * <p>Each output file has a long-lived buffered writer and a lock-free queue of pending lines.
+ * Exporter threads only add lines to the queue; a single background thread drains the queues
+ * and writes them out. If too many lines are pending, the exporter thread that notices drains
+ * the queue itself, so memory use stays bounded when the disk is slower than the simulation.
+ *
+ * <p>If "exporter.fhir.bulk_data.max_file_size" is set to a positive number of bytes, files are
+ * rolled once they reach that size, and named with a sequence number, e.g.
+ * Observation.000.ndjson, Observation.001.ndjson, etc. Otherwise each resource type has a
+ * single file, e.g. Observation.ndjson.
+ *
+ * <p>Lines are appended to any existing files. Unlike writing each line straight to its file,
+ * lines are buffered: a line reaches the file once 1000 lines have been written to that file
+ * since the last flush, or within about a second otherwise. A crash or kill can therefore lose
+ * up to a second of exported lines. Call {@link #shutdown()} once all records have been exported
+ * to write any pending lines and close the files. Lines appended after the writer has been
+ * closed are still written, but straight to the file, one line at a time.
+ */
+public class BulkDataWriter {
+  private static final String EXTENSION = ".ndjson";
+  /** How long the background thread waits when there is nothing to write. */
+  private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+  /** Longest time written lines stay in a buffer before being flushed to the file. */
+  private static final long FLUSH_NANOS = TimeUnit.SECONDS.toNanos(1);
+  /** Number of lines written to a file after which it is flushed. */
+  private static final int FLUSH_LINES = 1000;
+
+  private static volatile BulkDataWriter instance;
+
+  private final long maxFileSize;
+  private final int maxPending;
+  private final Map<Path, Sink> sinks;
+  private final AtomicInteger pending;
+  private final Thread drainer;
+  private volatile boolean running;
+  private volatile IOException failure;
+
+  /**
+   * Get the shared BulkDataWriter, creating it if there is none or it has been shut down.
+   * @return the shared BulkDataWriter.
+   */
+  public static BulkDataWriter getInstance() {
+    BulkDataWriter writer = instance;
+    if (writer == null) {
+      synchronized (BulkDataWriter.class) {
+        writer = instance;
+        if (writer == null) {
+          writer = new BulkDataWriter(
+              Long.parseLong(Config.get("exporter.fhir.bulk_data.max_file_size", "0")),
+              Integer.parseInt(Config.get("exporter.fhir.bulk_data.max_pending", "10000")));
+          instance = writer;
+        }
+      }
+    }
+    return writer;
+  }
+
+  /**
+   * Write all pending lines and close the shared BulkDataWriter, if there is one.
+   * A later call to {@link #getInstance()} creates a new writer.
+   */
+  public static synchronized void shutdown() {
+    if (instance != null) {
+      try {
+        instance.close();
+      } catch (IOException e) {
+        e.printStackTrace();
+      }
+      instance = null;
+    }
+  }
+
+  /**
+   * Create a new BulkDataWriter. Most callers should use {@link #getInstance()}.
+   * @param maxFileSize Size in bytes at which files are rolled, or 0 to never roll files.
+   * @param maxPending Number of pending lines at which exporter threads write lines themselves.
+   */
+  BulkDataWriter(long maxFileSize, int maxPending) {
+    this.maxFileSize = maxFileSize;
+    this.maxPending = Math.max(1, maxPending);
+    this.sinks = new ConcurrentHashMap<Path, Sink>();
+    this.pending = new AtomicInteger(0);
+    this.running = true;
+    this.drainer = new Thread(this::drainLoop, "bulk-data-writer");
+    this.drainer.setDaemon(true);
+    this.drainer.start();
+  }
+
+  /**
+   * Append a line to a bulk data file.
+   * @param directory The folder for the file.
+   * @param resourceType The resource type, which names the file.
+   * @param line The line to write, without a line separator.
+   *     If this writer has already been closed, the line is written straight to the file.
+   */
+  public void append(Path directory, String resourceType, String line) {
+    Sink sink = sinks.computeIfAbsent(directory.resolve(resourceType), Sink::new);
+    sink.queue.offer(line);
+    int count = pending.incrementAndGet();
+    if (!running) {
+      // closed before or while the line was added, so nothing else will write it out
+      synchronized (sink) {
+        drain(sink);
+        sink.close();
+      }
+    } else if (count > maxPending) {
+      drain(sink);
+    }
+  }
+
+  /**
+   * Write all lines that have been appended so far and flush the files.
+   * @throws IOException if any lines could not be written.
+   */
+  public void flush() throws IOException {
+    for (Sink sink : sinks.values()) {
+      synchronized (sink) {
+        drain(sink);
+        sink.flush();
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  /**
+   * Write all pending lines, close the files and stop the background thread.
+   * @throws IOException if any lines could not be written.
+   */
+  public void close() throws IOException {
+    running = false;
+    LockSupport.unpark(drainer);
+    try {
+      drainer.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    for (Sink sink : sinks.values()) {
+      synchronized (sink) {
+        drain(sink);
+        sink.close();
+      }
+    }
+    sinks.clear();
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  private void drainLoop() {
+    long lastFlush = System.nanoTime();
+    while (running) {
+      boolean wrote = false;
+      for (Sink sink : sinks.values()) {
+        wrote |= drain(sink) > 0;
+      }
+      // when there is nothing new, or lines have been buffered for too long,
+      // push what has been written so far out to the files
+      if (!wrote || System.nanoTime() - lastFlush >= FLUSH_NANOS) {
+        for (Sink sink : sinks.values()) {
+          synchronized (sink) {
+            sink.flush();
+          }
+        }
+        lastFlush = System.nanoTime();
+      }
+      if (!wrote) {
+        LockSupport.parkNanos(this, IDLE_NANOS);
+      }
+    }
+  }
+
+  /**
+   * Write out the pending lines of a single file.
+   * @return the number of lines written.
+   */
+  private int drain(Sink sink) {
+    int count = 0;
+    synchronized (sink) {
+      try {
+        String line;
+        while ((line = sink.queue.poll()) != null) {
+          sink.write(line);
+          count++;
+        }
+      } catch (IOException e) {
+        if (failure == null) {
+          e.printStackTrace();
+        }
+        failure = e;
+      }
+    }
+    if (count > 0) {
+      pending.addAndGet(-count);
+    }
+    return count;
+  }
+
+  /**
+   * The pending lines and open writer for a single resource type.
+   */
+  private class Sink {
+    private final Path base;
+    private final ConcurrentLinkedQueue<String> queue;
+    private BufferedWriter writer;
+    private int unflushed;
+    private long size;
+    private int sequence;
+
+    private Sink(Path base) {
+      this.base = base;
+      this.queue = new ConcurrentLinkedQueue<String>();
+      this.sequence = 0;
+    }
+
+    private void write(String line) throws IOException {
+      if (writer == null) {
+        open();
+      } else if (maxFileSize > 0 && size >= maxFileSize) {
+        writer.close();
+        unflushed = 0;
+        sequence++;
+        open();
+      }
+      writer.write(line);
+      writer.newLine();
+      if (maxFileSize > 0) {
+        size += line.getBytes(StandardCharsets.UTF_8).length + System.lineSeparator().length();
+      }
+      if (++unflushed >= FLUSH_LINES) {
+        flush();
+      }
+    }
+
+    private void flush() {
+      if (unflushed > 0) {
+        try {
+          writer.flush();
+        } catch (IOException e) {
+          if (failure == null) {
+            e.printStackTrace();
+          }
+          failure = e;
+        }
+        unflushed = 0;
+      }
+    }
+
+    private void close() {
+      if (writer != null) {
+        flush();
+        try {
+          writer.close();
+        } catch (IOException e) {
+          if (failure == null) {
+            e.printStackTrace();
+          }
+          failure = e;
+        }
+        writer = null;
+      }
+    }
+
+    private void open() throws IOException {
+      Path file = file();
+      if (maxFileSize > 0) {
+        // skip past files that are already full from a previous run
+        while (Files.exists(file) && Files.size(file) >= maxFileSize) {
+          sequence++;
+          file = file();
+        }
+        size = Files.exists(file) ? Files.size(file) : 0L;
+      }
+      writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+          StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+    }
+
+    private Path file() {
+      String name = base.getFileName().toString();
+      if (maxFileSize > 0) {
+        name = String.format("%s.%03d", name, sequence);
+      }
+      return base.resolveSibling(name + EXTENSION);
+    }
+  }
+}
@@ -15,6 +15,7 @@ import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.mitre.synthea.helpers.Config;
@@ -160,7 +161,7 @@ public class CDWExporter {
    *  initialize the required files and associated writers.
    */
   private CDWExporter() {
-    sids = new HashMap<OutputStreamWriter,AtomicInteger>();
+    sids = new ConcurrentHashMap<OutputStreamWriter,AtomicInteger>();
     
     try {
       File output = Exporter.getOutputFolder("cdw", null);
@@ -1612,9 +1613,7 @@ public class CDWExporter {
   }
 
   private int getNextKey(OutputStreamWriter table) {
-    synchronized (sids) {
-      return sids.computeIfAbsent(table, k -> new AtomicInteger(sidStart)).getAndIncrement();
-    }
+    return sids.computeIfAbsent(table, k -> new AtomicInteger(sidStart)).getAndIncrement();
   }
   
   /**
@@ -3,7 +3,6 @@ package org.mitre.synthea.export;
 import static org.mitre.synthea.export.ExportHelper.dateFromTimestamp;
 import static org.mitre.synthea.export.ExportHelper.iso8601Timestamp;
 
-import com.google.common.collect.Table;
 import com.google.gson.JsonObject;
 
 import java.io.File;
@@ -22,7 +21,6 @@ import java.util.GregorianCalendar;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
 import org.apache.commons.io.output.NullOutputStream;
@@ -31,6 +29,7 @@ import org.mitre.synthea.helpers.Config;
 import org.mitre.synthea.helpers.RandomCodeGenerator;
 import org.mitre.synthea.helpers.RandomNumberGenerator;
 import org.mitre.synthea.helpers.Utilities;
+import org.mitre.synthea.helpers.UtilizationTable;
 import org.mitre.synthea.modules.QualityOfLifeModule;
 import org.mitre.synthea.world.agents.Clinician;
 import org.mitre.synthea.world.agents.Payer;
@@ -340,9 +339,8 @@ public class CSVExporter {
   public void exportOrganizationsAndProviders() throws IOException {
     for (Provider org : Provider.getProviderList()) {
       // Check utilization for hospital before we export
-      Table<Integer, String, AtomicInteger> utilization = org.getUtilization();
-      int totalEncounters =
-          utilization.column(Provider.ENCOUNTERS).values().stream().mapToInt(ai -> ai.get()).sum();
+      UtilizationTable utilization = org.getUtilization();
+      int totalEncounters = utilization.total(Provider.ENCOUNTERS);
       if (totalEncounters > 0) {
         organization(org, totalEncounters);
         Map<String, ArrayList<Clinician>> providers = org.clinicianMap;
@@ -420,6 +418,10 @@ public class CSVExporter {
    */
   public void export(Person person, long time) throws IOException {
     String personID = patient(person, time);
+    // only export conditions with codes retrieved from the terminology service, if one is used
+    boolean onlySelectedCodes =
+        !StringUtils.isEmpty(Config.get("generate.terminology_service_url"))
+        && !RandomCodeGenerator.selectedCodes.isEmpty();
 
     for (Encounter encounter : person.record.encounters) {
 
@@ -427,15 +429,8 @@ public class CSVExporter {
       String payerID = encounter.claim.payer.uuid;
 
       for (HealthRecord.Entry condition : encounter.conditions) {
-        /* condition to ignore codes other then retrieved from terminology url */
-        if (!StringUtils.isEmpty(Config.get("generate.terminology_service_url"))
-            && !RandomCodeGenerator.selectedCodes.isEmpty()) {
-          if (RandomCodeGenerator.selectedCodes.stream()
-              .filter(code -> code.code.equals(condition.codes.get(0).code))
-              .findFirst().isPresent()) {
-            condition(personID, encounterID, condition);
-          }
-        } else {
+        if (!onlySelectedCodes
+            || RandomCodeGenerator.selectedCodes.contains(condition.codes.get(0).code)) {
           condition(personID, encounterID, condition);
         }
       }
@@ -478,7 +473,7 @@ public class CSVExporter {
     }
     CSVExporter.getInstance().exportPayerTransitions(person, time);
 
-    int yearsOfHistory = Integer.parseInt(Config.get("exporter.years_of_history"));
+    int yearsOfHistory = ExportSettings.get().yearsOfHistory;
     Calendar cutOff = new GregorianCalendar(1900, 0, 1);
     if (yearsOfHistory > 0) {
       cutOff = Calendar.getInstance();
@@ -0,0 +1,100 @@
+package org.mitre.synthea.export;
+
+import org.mitre.synthea.helpers.Config;
+
+/**
+ * The exporter properties that are read for every exported person, parsed once from the
+ * configuration instead of on every read.
+ *
+ * <p>Settings are immutable. {@link #get()} returns the settings for the current configuration,
+ * and only parses the properties again after they have changed (for example, when a test sets
+ * a property), so reading the settings does not lock. Flags are read as
+ * {@link Config#getAsBoolean(String)} reads them, so any value other than "true" is false, and
+ * numbers that cannot be parsed are reported with a warning and replaced by their default.
+ */
+public final class ExportSettings {
+  private static volatile ExportSettings current;
+
+  /** The Config version these settings were parsed from. */
+  private final long version;
+
+  public final boolean fhirStu3;
+  public final boolean fhirDstu2;
+  public final boolean fhir;
+  public final boolean fhirBulkData;
+  public final boolean fhirStreaming;
+  public final boolean ccda;
+  public final boolean csv;
+  public final boolean cpcds;
+  public final boolean text;
+  public final boolean textPerEncounter;
+  public final boolean symptomsCsv;
+  public final boolean symptomsText;
+  public final boolean cdw;
+  public final boolean clinicalNote;
+  public final boolean useUuidFilenames;
+  /** Years of history to export, or 0 to export the whole record. */
+  public final int yearsOfHistory;
+  /** 0 to export only the symptoms within the years of history, otherwise all symptoms. */
+  public final int symptomsMode;
+
+  private ExportSettings(long version) {
+    this.version = version;
+    fhirStu3 = getBoolean("exporter.fhir_stu3.export");
+    fhirDstu2 = getBoolean("exporter.fhir_dstu2.export");
+    fhir = getBoolean("exporter.fhir.export");
+    fhirBulkData = getBoolean("exporter.fhir.bulk_data");
+    fhirStreaming = getBoolean("exporter.fhir.streaming");
+    ccda = getBoolean("exporter.ccda.export");
+    csv = getBoolean("exporter.csv.export");
+    cpcds = getBoolean("exporter.cpcds.export");
+    text = getBoolean("exporter.text.export");
+    textPerEncounter = getBoolean("exporter.text.per_encounter_export");
+    symptomsCsv = getBoolean("exporter.symptoms.csv.export");
+    symptomsText = getBoolean("exporter.symptoms.text.export");
+    cdw = getBoolean("exporter.cdw.export");
+    clinicalNote = getBoolean("exporter.clinical_note.export");
+    useUuidFilenames = getBoolean("exporter.use_uuid_filenames");
+    yearsOfHistory = getInt("exporter.years_of_history", 0);
+    symptomsMode = getInt("exporter.symptoms.mode", 0);
+  }
+
+  /**
+   * Get the settings for the current configuration.
+   * @return the settings.
+   */
+  public static ExportSettings get() {
+    ExportSettings settings = current;
+    long version = Config.getVersion();
+    if (settings == null || settings.version != version) {
+      // settings are immutable, so it does not matter if several threads parse them at once
+      settings = new ExportSettings(version);
+      current = settings;
+    }
+    return settings;
+  }
+
+  /**
+   * Read a boolean property as Config.getAsBoolean does: only "true", ignoring case, is true.
+   */
+  private static boolean getBoolean(String key) {
+    return Boolean.parseBoolean(Config.get(key));
+  }
+
+  /**
+   * Read an integer property, warning and using the default value if it is not a number.
+   */
+  private static int getInt(String key, int defaultValue) {
+    String value = Config.get(key);
+    if (value == null || value.trim().isEmpty()) {
+      return defaultValue;
+    }
+    try {
+      return Integer.parseInt(value.trim());
+    } catch (NumberFormatException e) {
+      System.err.println(String.format("WARNING: %s should be a whole number, but is \"%s\". "
+          + "Using %d instead.", key, value, defaultValue));
+      return defaultValue;
+    }
+  }
+}
@@ -5,17 +5,18 @@ import ca.uhn.fhir.parser.IParser;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 import java.nio.file.StandardOpenOption;
-import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.function.Consumer;
 import java.util.function.Predicate;
 import org.apache.commons.lang3.tuple.ImmutablePair;
 import org.apache.commons.lang3.tuple.Pair;
@@ -59,7 +60,7 @@ public abstract class Exporter {
     private SupportedFhirVersion fhirVersion;
     
     public ExporterRuntimeOptions() {
-      yearsOfHistory = Integer.parseInt(Config.get("exporter.years_of_history"));
+      yearsOfHistory = ExportSettings.get().yearsOfHistory;
     }
     
     /**
@@ -122,7 +123,7 @@ public abstract class Exporter {
     if (options.deferExports) {
       deferredExports.add(new ImmutablePair<Person, Long>(person, stopTime));
     } else {
-      int yearsOfHistory = Integer.parseInt(Config.get("exporter.years_of_history"));
+      int yearsOfHistory = ExportSettings.get().yearsOfHistory;
       if (yearsOfHistory > 0) {
         person = filterForExport(person, yearsOfHistory, stopTime);
       }
@@ -180,116 +181,130 @@ public abstract class Exporter {
       valueSetCodeResolver.resolve();
     }
 
-    if (Config.getAsBoolean("exporter.fhir_stu3.export")) {
-      File outDirectory = getOutputFolder("fhir_stu3", person);
-      if (Config.getAsBoolean("exporter.fhir.bulk_data")) {
+    ExportSettings settings = ExportSettings.get();
+    if (settings.fhirStu3) {
+      Path outDirectory = OutputLayout.getFolder("fhir_stu3", person);
+      if (settings.fhirBulkData) {
         org.hl7.fhir.dstu3.model.Bundle bundle = FhirStu3.convertToFHIR(person, stopTime);
         IParser parser = FhirStu3.getContext().newJsonParser().setPrettyPrint(false);
+        BulkDataWriter bulkData = BulkDataWriter.getInstance();
         for (org.hl7.fhir.dstu3.model.Bundle.BundleEntryComponent entry : bundle.getEntry()) {
-          String filename = entry.getResource().getResourceType().toString() + ".ndjson";
-          Path outFilePath = outDirectory.toPath().resolve(filename);
+          String resourceType = entry.getResource().getResourceType().toString();
           String entryJson = parser.encodeResourceToString(entry.getResource());
-          appendToFile(outFilePath, entryJson);
+          bulkData.append(outDirectory, resourceType, entryJson);
         }
       } else {
         String bundleJson = FhirStu3.convertToFHIRJson(person, stopTime);
-        Path outFilePath = outDirectory.toPath().resolve(filename(person, fileTag, "json"));
+        Path outFilePath = outDirectory.resolve(filename(person, fileTag, "json"));
         writeNewFile(outFilePath, bundleJson);
       }
     }
-    if (Config.getAsBoolean("exporter.fhir_dstu2.export")) {
-      File outDirectory = getOutputFolder("fhir_dstu2", person);
-      if (Config.getAsBoolean("exporter.fhir.bulk_data")) {
+    if (settings.fhirDstu2) {
+      Path outDirectory = OutputLayout.getFolder("fhir_dstu2", person);
+      if (settings.fhirBulkData) {
         ca.uhn.fhir.model.dstu2.resource.Bundle bundle = FhirDstu2.convertToFHIR(person, stopTime);
         IParser parser = FhirDstu2.getContext().newJsonParser().setPrettyPrint(false);
+        BulkDataWriter bulkData = BulkDataWriter.getInstance();
         for (ca.uhn.fhir.model.dstu2.resource.Bundle.Entry entry : bundle.getEntry()) {
-          String filename = entry.getResource().getResourceName() + ".ndjson";
-          Path outFilePath = outDirectory.toPath().resolve(filename);
+          String resourceType = entry.getResource().getResourceName();
           String entryJson = parser.encodeResourceToString(entry.getResource());
-          appendToFile(outFilePath, entryJson);
+          bulkData.append(outDirectory, resourceType, entryJson);
         }
       } else {
         String bundleJson = FhirDstu2.convertToFHIRJson(person, stopTime);
-        Path outFilePath = outDirectory.toPath().resolve(filename(person, fileTag, "json"));
+        Path outFilePath = outDirectory.resolve(filename(person, fileTag, "json"));
         writeNewFile(outFilePath, bundleJson);
       }
     }
-    if (Config.getAsBoolean("exporter.fhir.export")) {
-      File outDirectory = getOutputFolder("fhir", person);
-      if (Config.getAsBoolean("exporter.fhir.bulk_data")) {
-        org.hl7.fhir.r4.model.Bundle bundle = FhirR4.convertToFHIR(person, stopTime);
+    if (settings.fhir) {
+      Path outDirectory = OutputLayout.getFolder("fhir", person);
+      boolean streaming = settings.fhirStreaming;
+      if (settings.fhirBulkData) {
         IParser parser = FhirR4.getContext().newJsonParser().setPrettyPrint(false);
-        for (org.hl7.fhir.r4.model.Bundle.BundleEntryComponent entry : bundle.getEntry()) {
-          String filename = entry.getResource().getResourceType().toString() + ".ndjson";
-          Path outFilePath = outDirectory.toPath().resolve(filename);
+        BulkDataWriter bulkData = BulkDataWriter.getInstance();
+        Consumer<org.hl7.fhir.r4.model.Bundle.BundleEntryComponent> append = entry -> {
+          String resourceType = entry.getResource().getResourceType().toString();
           String entryJson = parser.encodeResourceToString(entry.getResource());
-          appendToFile(outFilePath, entryJson);
+          bulkData.append(outDirectory, resourceType, entryJson);
+        };
+        if (streaming) {
+          FhirR4.convertToFHIR(person, stopTime, append);
+        } else {
+          FhirR4.convertToFHIR(person, stopTime).getEntry().forEach(append);
+        }
+      } else if (streaming) {
+        Path outFilePath = outDirectory.resolve(filename(person, fileTag, "json"));
+        try (Writer writer = Files.newBufferedWriter(outFilePath, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE_NEW)) {
+          FhirR4.writeFHIRJson(person, stopTime, writer);
+        } catch (IOException e) {
+          e.printStackTrace();
         }
       } else {
         String bundleJson = FhirR4.convertToFHIRJson(person, stopTime);
-        Path outFilePath = outDirectory.toPath().resolve(filename(person, fileTag, "json"));
+        Path outFilePath = outDirectory.resolve(filename(person, fileTag, "json"));
         writeNewFile(outFilePath, bundleJson);
       }
       FhirGroupExporterR4.addPatient((String) person.attributes.get(Person.ID));
     }
-    if (Config.getAsBoolean("exporter.ccda.export")) {
+    if (settings.ccda) {
       String ccdaXml = CCDAExporter.export(person, stopTime);
-      File outDirectory = getOutputFolder("ccda", person);
-      Path outFilePath = outDirectory.toPath().resolve(filename(person, fileTag, "xml"));
+      Path outDirectory = OutputLayout.getFolder("ccda", person);
+      Path outFilePath = outDirectory.resolve(filename(person, fileTag, "xml"));
       writeNewFile(outFilePath, ccdaXml);
     }
-    if (Config.getAsBoolean("exporter.csv.export")) {
+    if (settings.csv) {
       try {
         CSVExporter.getInstance().export(person, stopTime);
       } catch (IOException e) {
         e.printStackTrace();
       }
     }
-    if (Config.getAsBoolean("exporter.cpcds.export")) {
+    if (settings.cpcds) {
       try {
         CPCDSExporter.getInstance().export(person, stopTime);
       } catch (IOException e) {
         e.printStackTrace();
       }
     }
-    if (Config.getAsBoolean("exporter.text.export")) {
+    if (settings.text) {
       try {
         TextExporter.exportAll(person, fileTag, stopTime);
       } catch (IOException e) {
         e.printStackTrace();
       }
     }
-    if (Config.getAsBoolean("exporter.text.per_encounter_export")) {
+    if (settings.textPerEncounter) {
       try {
         TextExporter.exportEncounter(person, stopTime);
       } catch (IOException e) {
         e.printStackTrace();
       }
     }
-    if (Config.getAsBoolean("exporter.symptoms.csv.export")) {
+    if (settings.symptomsCsv) {
       try {
         SymptomCSVExporter.getInstance().export(person, stopTime);
       } catch (IOException e) {
         e.printStackTrace();
       }
     }
-    if (Config.getAsBoolean("exporter.symptoms.text.export")) {
+    if (settings.symptomsText) {
       try {
         SymptomTextExporter.exportAll(person, fileTag, stopTime);
       } catch (IOException e) {
         e.printStackTrace();
       }
     }
-    if (Config.getAsBoolean("exporter.cdw.export")) {
+    if (settings.cdw) {
       try {
         CDWExporter.getInstance().export(person, stopTime);
       } catch (IOException e) {
         e.printStackTrace();
       }
     }
-    if (Config.getAsBoolean("exporter.clinical_note.export")) {
-      File outDirectory = getOutputFolder("notes", person);
-      Path outFilePath = outDirectory.toPath().resolve(filename(person, fileTag, "txt"));
+    if (settings.clinicalNote) {
+      Path outDirectory = OutputLayout.getFolder("notes", person);
+      Path outFilePath = outDirectory.resolve(filename(person, fileTag, "txt"));
       String consolidatedNotes = ClinicalNoteExporter.export(person);
       writeNewFile(outFilePath, consolidatedNotes);
     }
@@ -327,27 +342,6 @@ public abstract class Exporter {
     }
   }
 
-  /**
-   * Append contents to the end of a file.
-   * @param file Path to the new file.
-   * @param contents The contents of the file.
-   */
-  private static synchronized void appendToFile(Path file, String contents) {
-    try {
-      if (Files.notExists(file)) {
-        Files.createFile(file);
-      }
-    } catch (Exception e) {
-      // Ignore... multi-threaded race condition to create a file that didn't exist,
-      // but does now because one of the other exporter threads beat us to it.
-    }
-    try {
-      Files.write(file, Collections.singleton(contents), StandardOpenOption.APPEND);
-    } catch (IOException e) {
-      e.printStackTrace();
-    }
-  }
-
   /**
    * Run any exporters that require the full dataset to be generated prior to exporting.
    * (E.g., an aggregate statistical exporter)
@@ -374,7 +368,10 @@ public abstract class Exporter {
       }
       deferredExports.clear();
     }
-    
+
+    // write out any bulk data that is still pending and close the files
+    BulkDataWriter.shutdown();
+
     String bulk = Config.get("exporter.fhir.bulk_data");
 
     // Before we force bulk data to be off...
@@ -532,6 +529,7 @@ public abstract class Exporter {
 
     // finally filter out any empty encounters
     filterEntries(record.encounters, Collections.emptyList(), cutoffDate, endTime, keepEncounter);
+    record.resetObservationIndex();
 
     return record;
   }
@@ -611,6 +609,7 @@ public abstract class Exporter {
             iter.remove();
           }
         }
+        record.resetObservationIndex();
       }
     } else {
       Iterator<Encounter> iter = person.record.encounters.iterator();
@@ -621,13 +620,15 @@ public abstract class Exporter {
           iter.remove();
         }
       }
+      person.record.resetObservationIndex();
     }
   }
 
   /**
    * Get the folder where the patient record should be stored.
    * See the configuration settings "exporter.subfolders_by_id_substring" and
-   * "exporter.baseDirectory".
+   * "exporter.baseDirectory". The folder is created the first time it is used, see
+   * OutputLayout.
    *
    * @param folderName The base folder to use.
    * @param person     The person being exported.
@@ -635,24 +636,7 @@ public abstract class Exporter {
    *     settings.
    */
   public static File getOutputFolder(String folderName, Person person) {
-    List<String> folders = new ArrayList<>();
-
-    folders.add(folderName);
-
-    if (person != null
-        && Config.getAsBoolean("exporter.subfolders_by_id_substring")) {
-      String id = (String) person.attributes.get(Person.ID);
-
-      folders.add(id.substring(0, 2));
-      folders.add(id.substring(0, 3));
-    }
-
-    String baseDirectory = Config.get("exporter.baseDirectory");
-
-    File f = Paths.get(baseDirectory, folders.toArray(new String[0])).toFile();
-    f.mkdirs();
-
-    return f;
+    return OutputLayout.getFolder(folderName, person).toFile();
   }
 
   /**
@@ -665,7 +649,7 @@ public abstract class Exporter {
    * @return The filename only (not a path).
    */
   public static String filename(Person person, String tag, String extension) {
-    if (Config.getAsBoolean("exporter.use_uuid_filenames")) {
+    if (ExportSettings.get().useUuidFilenames) {
       return person.attributes.get(Person.ID) + tag + "." + extension;
     } else {
       // ensure unique filenames for now
@@ -7,8 +7,6 @@ import ca.uhn.fhir.model.dstu2.resource.Practitioner;
 import ca.uhn.fhir.model.dstu2.valueset.BundleTypeEnum;
 import ca.uhn.fhir.model.primitive.IntegerDt;
 
-import com.google.common.collect.Table;
-
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -19,9 +17,9 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import org.mitre.synthea.helpers.Config;
+import org.mitre.synthea.helpers.UtilizationTable;
 import org.mitre.synthea.world.agents.Clinician;
 import org.mitre.synthea.world.agents.Provider;
 
@@ -44,9 +42,8 @@ public abstract class FhirPractitionerExporterDstu2 {
       }
       for (Provider h : Provider.getProviderList()) {
         // filter - exports only those hospitals in use
-        Table<Integer, String, AtomicInteger> utilization = h.getUtilization();
-        int totalEncounters = utilization.column(Provider.ENCOUNTERS).values().stream()
-            .mapToInt(ai -> ai.get()).sum();
+        UtilizationTable utilization = h.getUtilization();
+        int totalEncounters = utilization.total(Provider.ENCOUNTERS);
         if (totalEncounters > 0) {
           Map<String, ArrayList<Clinician>> clinicians = h.clinicianMap;
           for (String specialty : clinicians.keySet()) {
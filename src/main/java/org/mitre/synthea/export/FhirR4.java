@@ -1,15 +1,19 @@
 package org.mitre.synthea.export;
 
 import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.IParser;
 
 import com.google.common.collect.HashBasedTable;
 import com.google.common.collect.Table;
 import com.google.gson.Gson;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
 
 import java.awt.geom.Point2D;
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Date;
@@ -17,6 +21,7 @@ import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import org.hl7.fhir.r4.model.Address;
@@ -254,13 +259,48 @@ public class FhirR4 {
    * @return FHIR Bundle containing the Person's health record
    */
   public static Bundle convertToFHIR(Person person, long stopTime) {
+    Bundle bundle = newBundle();
+    convertToFHIR(person, stopTime, bundle, null);
+    return bundle;
+  }
+
+  /**
+   * Convert the given Person into FHIR resources, passing each entry to the given consumer
+   * as soon as the encounter that produced it has been converted, rather than collecting the
+   * whole health record into a single Bundle. Entries are passed in the same order they would
+   * appear in the Bundle returned by {@link #convertToFHIR(Person, long)}.
+   *
+   * @param person   Person to generate the FHIR resources for
+   * @param stopTime Time the simulation ended
+   * @param consumer Receives each entry of the Person's health record
+   */
+  public static void convertToFHIR(Person person, long stopTime,
+      Consumer<BundleEntryComponent> consumer) {
+    Bundle bundle = newBundle();
+    convertToFHIR(person, stopTime, bundle, new EntryStream(bundle, consumer));
+  }
+
+  private static Bundle newBundle() {
     Bundle bundle = new Bundle();
     if (TRANSACTION_BUNDLE) {
       bundle.setType(BundleType.TRANSACTION);
     } else {
       bundle.setType(BundleType.COLLECTION);
     }
+    return bundle;
+  }
 
+  /**
+   * Convert the given Person into FHIR entries within the given Bundle.
+   *
+   * @param person   Person to generate the FHIR resources for
+   * @param stopTime Time the simulation ended
+   * @param bundle   The Bundle to add entries to
+   * @param stream   If not null, entries are passed on and removed from the Bundle after
+   *                 each encounter
+   */
+  private static void convertToFHIR(Person person, long stopTime, Bundle bundle,
+      EntryStream stream) {
     BundleEntryComponent personEntry = basicInfo(person, bundle, stopTime);
 
     for (Encounter encounter : person.record.encounters) {
@@ -332,13 +372,122 @@ public class FhirR4 {
 
       explanationOfBenefit(personEntry, bundle, encounterEntry, person,
           encounterClaim, encounter);
+
+      if (stream != null) {
+        stream.flush();
+      }
     }
 
     if (USE_US_CORE_IG) {
       // Add Provenance to the Bundle
-      provenance(bundle, person, stopTime);
+      List<String> targets;
+      if (stream == null) {
+        targets = bundle.getEntry().stream()
+            .map(BundleEntryComponent::getFullUrl).collect(Collectors.toList());
+      } else {
+        targets = stream.fullUrls;
+      }
+      provenance(bundle, targets, person, stopTime);
+    }
+    if (stream != null) {
+      stream.flush();
+    }
+  }
+
+  /**
+   * Write the given Person to the given Writer as a JSON FHIR Bundle of the Person and the
+   * associated entries from their health record. Unlike {@link #convertToFHIRJson(Person, long)},
+   * each resource is written as soon as it has been converted, so the whole Bundle is never held
+   * in memory. The JSON is not pretty printed.
+   *
+   * @param person   Person to generate the FHIR JSON for
+   * @param stopTime Time the simulation ended
+   * @param writer   Writer to write the JSON to. It is flushed but not closed.
+   * @throws IOException if the JSON could not be written
+   */
+  public static void writeFHIRJson(Person person, long stopTime, Writer writer)
+      throws IOException {
+    IParser parser = FHIR_CTX.newJsonParser().setPrettyPrint(false);
+    JsonWriter json = new JsonWriter(writer);
+    json.beginObject();
+    json.name("resourceType").value("Bundle");
+    json.name("type").value(TRANSACTION_BUNDLE
+        ? BundleType.TRANSACTION.toCode() : BundleType.COLLECTION.toCode());
+    json.name("entry").beginArray();
+    try {
+      convertToFHIR(person, stopTime, entry -> {
+        try {
+          json.beginObject();
+          json.name("fullUrl").value(entry.getFullUrl());
+          json.name("resource").jsonValue(parser.encodeResourceToString(entry.getResource()));
+          if (entry.hasRequest()) {
+            BundleEntryRequestComponent request = entry.getRequest();
+            json.name("request").beginObject();
+            json.name("method").value(request.getMethod().toCode());
+            json.name("url").value(request.getUrl());
+            if (request.hasIfNoneExist()) {
+              json.name("ifNoneExist").value(request.getIfNoneExist());
+            }
+            json.endObject();
+          }
+          json.endObject();
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+    json.endArray();
+    json.endObject();
+    json.flush();
+  }
+
+  /**
+   * Passes the entries of a Bundle under construction on to a consumer, then removes them from
+   * the Bundle. Entries that later resources look up by searching the Bundle (organizations,
+   * locations, practitioners and conditions) are kept, but are only passed on once.
+   */
+  private static class EntryStream {
+    private final Bundle bundle;
+    private final Consumer<BundleEntryComponent> consumer;
+    /** Full URLs of every entry passed on, for the Provenance resource. */
+    private final List<String> fullUrls;
+    /** The number of entries at the start of the Bundle that have already been passed on. */
+    private int passed;
+
+    private EntryStream(Bundle bundle, Consumer<BundleEntryComponent> consumer) {
+      this.bundle = bundle;
+      this.consumer = consumer;
+      this.fullUrls = new ArrayList<String>();
+      this.passed = 0;
+    }
+
+    private void flush() {
+      List<BundleEntryComponent> entries = bundle.getEntry();
+      List<BundleEntryComponent> kept = new ArrayList<BundleEntryComponent>(entries.size());
+      for (int i = 0; i < entries.size(); i++) {
+        BundleEntryComponent entry = entries.get(i);
+        if (i >= passed) {
+          consumer.accept(entry);
+          if (USE_US_CORE_IG) {
+            fullUrls.add(entry.getFullUrl());
+          }
+        }
+        switch (entry.getResource().fhirType()) {
+          case "Organization":
+          case "Location":
+          case "Practitioner":
+          case "Condition":
+            kept.add(entry);
+            break;
+          default:
+            break;
+        }
+      }
+      bundle.setEntry(kept);
+      passed = kept.size();
     }
-    return bundle;
   }
 
   /**
@@ -1794,11 +1943,13 @@ public class FhirR4 {
    * targets all the entries in the Bundle.
    *
    * @param bundle The finished complete Bundle.
+   * @param targets The full URLs of every entry in the record.
    * @param person The person.
    * @param stopTime The time the simulation stopped.
    * @return BundleEntryComponent containing a Provenance resource.
    */
-  private static BundleEntryComponent provenance(Bundle bundle, Person person, long stopTime) {
+  private static BundleEntryComponent provenance(Bundle bundle, List<String> targets,
+      Person person, long stopTime) {
     Provenance provenance = new Provenance();
     if (USE_US_CORE_IG) {
       Meta meta = new Meta();
@@ -1806,8 +1957,8 @@ public class FhirR4 {
           "http://hl7.org/fhir/us/core/StructureDefinition/us-core-provenance");
       provenance.setMeta(meta);
     }
-    for (BundleEntryComponent entry : bundle.getEntry()) {
-      provenance.addTarget(new Reference(entry.getFullUrl()));
+    for (String target : targets) {
+      provenance.addTarget(new Reference(target));
     }
     provenance.setRecorded(new Date(stopTime));
 
@@ -7,8 +7,6 @@ import ca.uhn.fhir.model.dstu2.resource.Organization;
 import ca.uhn.fhir.model.dstu2.valueset.BundleTypeEnum;
 import ca.uhn.fhir.model.primitive.IntegerDt;
 
-import com.google.common.collect.Table;
-
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
@@ -18,9 +16,9 @@ import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import org.mitre.synthea.helpers.Config;
+import org.mitre.synthea.helpers.UtilizationTable;
 import org.mitre.synthea.world.agents.Provider;
 
 public abstract class HospitalExporterDstu2 {
@@ -41,9 +39,8 @@ public abstract class HospitalExporterDstu2 {
       }
       for (Provider h : Provider.getProviderList()) {
         // filter - exports only those hospitals in use
-        Table<Integer, String, AtomicInteger> utilization = h.getUtilization();
-        int totalEncounters = utilization.column(Provider.ENCOUNTERS).values().stream()
-            .mapToInt(ai -> ai.get()).sum();
+        UtilizationTable utilization = h.getUtilization();
+        int totalEncounters = utilization.total(Provider.ENCOUNTERS);
         if (totalEncounters > 0) {
           Entry entry = FhirDstu2.provider(bundle, h);
           addHospitalExtensions(h, (Organization) entry.getResource());
@@ -73,34 +70,30 @@ public abstract class HospitalExporterDstu2 {
    * Add FHIR extensions to capture additional information.
    */
   public static void addHospitalExtensions(Provider h, Organization organizationResource) {
-    Table<Integer, String, AtomicInteger> utilization = h.getUtilization();
+    UtilizationTable utilization = h.getUtilization();
     // calculate totals for utilization
-    int totalEncounters = utilization.column(Provider.ENCOUNTERS).values().stream()
-        .mapToInt(ai -> ai.get()).sum();
+    int totalEncounters = utilization.total(Provider.ENCOUNTERS);
     ExtensionDt encountersExtension = new ExtensionDt();
     encountersExtension.setUrl(SYNTHEA_URI + "utilization-encounters-extension");
     IntegerDt encountersValue = new IntegerDt(totalEncounters);
     encountersExtension.setValue(encountersValue);
     organizationResource.addUndeclaredExtension(encountersExtension);
 
-    int totalProcedures = utilization.column(Provider.PROCEDURES).values().stream()
-        .mapToInt(ai -> ai.get()).sum();
+    int totalProcedures = utilization.total(Provider.PROCEDURES);
     ExtensionDt proceduresExtension = new ExtensionDt();
     proceduresExtension.setUrl(SYNTHEA_URI + "utilization-procedures-extension");
     IntegerDt proceduresValue = new IntegerDt(totalProcedures);
     proceduresExtension.setValue(proceduresValue);
     organizationResource.addUndeclaredExtension(proceduresExtension);
 
-    int totalLabs = utilization.column(Provider.LABS).values().stream().mapToInt(ai -> ai.get())
-        .sum();
+    int totalLabs = utilization.total(Provider.LABS);
     ExtensionDt labsExtension = new ExtensionDt();
     labsExtension.setUrl(SYNTHEA_URI + "utilization-labs-extension");
     IntegerDt labsValue = new IntegerDt(totalLabs);
     labsExtension.setValue(labsValue);
     organizationResource.addUndeclaredExtension(labsExtension);
 
-    int totalPrescriptions = utilization.column(Provider.PRESCRIPTIONS).values().stream()
-        .mapToInt(ai -> ai.get()).sum();
+    int totalPrescriptions = utilization.total(Provider.PRESCRIPTIONS);
     ExtensionDt prescriptionsExtension = new ExtensionDt();
     prescriptionsExtension.setUrl(SYNTHEA_URI + "utilization-prescriptions-extension");
     IntegerDt prescriptionsValue = new IntegerDt(totalPrescriptions);
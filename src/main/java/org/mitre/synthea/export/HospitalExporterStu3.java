@@ -1,7 +1,6 @@
 package org.mitre.synthea.export;
 
 import ca.uhn.fhir.context.FhirContext;
-import com.google.common.collect.Table;
 
 import java.io.File;
 import java.io.IOException;
@@ -12,7 +11,6 @@ import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.concurrent.atomic.AtomicInteger;
 
 import org.hl7.fhir.dstu3.model.Bundle;
 import org.hl7.fhir.dstu3.model.Bundle.BundleEntryComponent;
@@ -21,6 +19,7 @@ import org.hl7.fhir.dstu3.model.Extension;
 import org.hl7.fhir.dstu3.model.IntegerType;
 import org.hl7.fhir.dstu3.model.Organization;
 import org.mitre.synthea.helpers.Config;
+import org.mitre.synthea.helpers.UtilizationTable;
 import org.mitre.synthea.world.agents.Provider;
 
 public abstract class HospitalExporterStu3 {
@@ -41,9 +40,8 @@ public abstract class HospitalExporterStu3 {
       }
       for (Provider h : Provider.getProviderList()) {
         // filter - exports only those hospitals in use
-        Table<Integer, String, AtomicInteger> utilization = h.getUtilization();
-        int totalEncounters = utilization.column(Provider.ENCOUNTERS).values().stream()
-            .mapToInt(ai -> ai.get()).sum();
+        UtilizationTable utilization = h.getUtilization();
+        int totalEncounters = utilization.total(Provider.ENCOUNTERS);
         if (totalEncounters > 0) {
           BundleEntryComponent entry = FhirStu3.provider(bundle, h);
           addHospitalExtensions(h, (Organization) entry.getResource());
@@ -73,31 +71,27 @@ public abstract class HospitalExporterStu3 {
    * Add FHIR extensions to capture additional information.
    */
   public static void addHospitalExtensions(Provider h, Organization organizationResource) {
-    Table<Integer, String, AtomicInteger> utilization = h.getUtilization();
+    UtilizationTable utilization = h.getUtilization();
     // calculate totals for utilization
-    int totalEncounters = utilization.column(Provider.ENCOUNTERS).values().stream()
-        .mapToInt(ai -> ai.get()).sum();
+    int totalEncounters = utilization.total(Provider.ENCOUNTERS);
     Extension encountersExtension = new Extension(SYNTHEA_URI + "utilization-encounters-extension");
     IntegerType encountersValue = new IntegerType(totalEncounters);
     encountersExtension.setValue(encountersValue);
     organizationResource.addExtension(encountersExtension);
 
-    int totalProcedures = utilization.column(Provider.PROCEDURES).values().stream()
-        .mapToInt(ai -> ai.get()).sum();
+    int totalProcedures = utilization.total(Provider.PROCEDURES);
     Extension proceduresExtension = new Extension(SYNTHEA_URI + "utilization-procedures-extension");
     IntegerType proceduresValue = new IntegerType(totalProcedures);
     proceduresExtension.setValue(proceduresValue);
     organizationResource.addExtension(proceduresExtension);
 
-    int totalLabs = utilization.column(Provider.LABS).values().stream().mapToInt(ai -> ai.get())
-        .sum();
+    int totalLabs = utilization.total(Provider.LABS);
     Extension labsExtension = new Extension(SYNTHEA_URI + "utilization-labs-extension");
     IntegerType labsValue = new IntegerType(totalLabs);
     labsExtension.setValue(labsValue);
     organizationResource.addExtension(labsExtension);
 
-    int totalPrescriptions = utilization.column(Provider.PRESCRIPTIONS).values().stream()
-        .mapToInt(ai -> ai.get()).sum();
+    int totalPrescriptions = utilization.total(Provider.PRESCRIPTIONS);
     Extension prescriptionsExtension = new Extension(
         SYNTHEA_URI + "utilization-prescriptions-extension");
     IntegerType prescriptionsValue = new IntegerType(totalPrescriptions);
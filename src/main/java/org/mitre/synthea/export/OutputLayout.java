@@ -0,0 +1,119 @@
+package org.mitre.synthea.export;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.mitre.synthea.helpers.Config;
+import org.mitre.synthea.world.agents.Person;
+
+/**
+ * Resolves the folders that exported files are written to. Each folder is created the first
+ * time it is used and then cached, so exporting a person does not touch the file system until
+ * the files themselves are written.
+ *
+ * <p>With "exporter.subfolders_by_id_substring", each person's files go in nested folders named
+ * after the start of their id: by default "ab/abc" for an id starting with "abc", and one more
+ * level for each increment of "exporter.subfolders_by_id_substring.depth". The first time a
+ * format is exported, every 2 and 3 hex character folder is created at once. Deeper folders are
+ * created as they are needed.
+ */
+public final class OutputLayout {
+  private static final char[] HEX = "0123456789abcdef".toCharArray();
+  /** The deepest level of shard folders that is created up front. */
+  private static final int PRECREATED_DEPTH = 2;
+
+  /** key: base directory, folder name and shard, value: the created folder. */
+  private static final Map<String, Path> FOLDERS = new ConcurrentHashMap<String, Path>();
+  /** Base directory and folder name of each format whose shard folders have been created. */
+  private static final Set<String> SHARDED = ConcurrentHashMap.newKeySet();
+
+  private OutputLayout() {
+    // static methods only
+  }
+
+  /**
+   * Get the folder where the files of a format should be stored, creating it if necessary.
+   * See the configuration settings "exporter.baseDirectory",
+   * "exporter.subfolders_by_id_substring" and "exporter.subfolders_by_id_substring.depth".
+   *
+   * @param folderName The base folder of the format.
+   * @param person The person being exported, or null for files that are not for one person.
+   * @return Either the base folder of the format, or the person's shard folder within it.
+   */
+  public static Path getFolder(String folderName, Person person) {
+    String baseDirectory = Config.get("exporter.baseDirectory");
+    String id = null;
+    int depth = 0;
+    if (person != null && Config.getAsBoolean("exporter.subfolders_by_id_substring")) {
+      id = (String) person.attributes.get(Person.ID);
+      depth = Math.max(1, Math.min(id.length() - 1,
+          Integer.parseInt(Config.get("exporter.subfolders_by_id_substring.depth", "2"))));
+    }
+    String key = baseDirectory + '\0' + folderName + '\0'
+        + ((id == null) ? "" : id.substring(0, depth + 1));
+    Path folder = FOLDERS.get(key);
+    if (folder == null) {
+      String shardId = id;
+      int shardDepth = depth;
+      folder = FOLDERS.computeIfAbsent(key,
+          k -> create(baseDirectory, folderName, shardId, shardDepth));
+    }
+    return folder;
+  }
+
+  /**
+   * Create a folder, and the shard folders of its format the first time it is sharded.
+   */
+  private static Path create(String baseDirectory, String folderName, String id, int depth) {
+    Path folder = Paths.get(baseDirectory, folderName);
+    if (id != null) {
+      if (SHARDED.add(baseDirectory + '\0' + folderName)) {
+        createShards(folder, "", Math.min(depth, PRECREATED_DEPTH));
+      }
+      for (int level = 1; level <= depth; level++) {
+        folder = folder.resolve(id.substring(0, level + 1));
+      }
+    }
+    folder.toFile().mkdirs();
+    return folder;
+  }
+
+  /**
+   * Create every shard folder below the given folder, down to the given depth.
+   * @param folder The folder to create shards in.
+   * @param prefix The characters of the id that the folder is named after, if it is a shard.
+   * @param depth The number of levels of shards to create.
+   */
+  private static void createShards(Path folder, String prefix, int depth) {
+    if (depth == 0) {
+      folder.toFile().mkdirs();
+      return;
+    }
+    if (prefix.isEmpty()) {
+      // the first level is named after two characters
+      for (char first : HEX) {
+        for (char second : HEX) {
+          String shard = new String(new char[] { first, second });
+          createShards(folder.resolve(shard), shard, depth - 1);
+        }
+      }
+    } else {
+      for (char next : HEX) {
+        String shard = prefix + next;
+        createShards(folder.resolve(shard), shard, depth - 1);
+      }
+    }
+  }
+
+  /**
+   * Forget the folders that have been created, so that they are checked again when next used.
+   * Use this if folders may have been removed while exporting.
+   */
+  public static void reset() {
+    FOLDERS.clear();
+    SHARDED.clear();
+  }
+}
@@ -155,10 +155,11 @@ public class SymptomCSVExporter {
     List<Long> list = new LinkedList<Long>(infos.keySet());
     Collections.sort(list);
     
-    int yearsOfHistory = Integer.parseInt(Config.get("exporter.years_of_history"));
+    ExportSettings settings = ExportSettings.get();
+    int yearsOfHistory = settings.yearsOfHistory;
     
     for (Long time: list) {
-      int symptomExporterMode = Integer.parseInt(Config.get("exporter.symptoms.mode"));
+      int symptomExporterMode = settings.symptomsMode;
       boolean toBeExported = true;
       if (symptomExporterMode == 0) {        
         long cutoffDate = endTime - Utilities.convertTime("years", yearsOfHistory);
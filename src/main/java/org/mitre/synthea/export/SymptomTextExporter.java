@@ -2,7 +2,6 @@ package org.mitre.synthea.export;
 
 import static org.mitre.synthea.export.ExportHelper.dateFromTimestamp;
 
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -83,10 +82,11 @@ public class SymptomTextExporter {
     List<Long> list = new LinkedList<Long>(infos.keySet());
     Collections.sort(list);
     
-    int yearsOfHistory = Integer.parseInt(Config.get("exporter.years_of_history"));
+    ExportSettings settings = ExportSettings.get();
+    int yearsOfHistory = settings.yearsOfHistory;
     
     for (Long time: list) {
-      int symptomExporterMode = Integer.parseInt(Config.get("exporter.symptoms.mode"));
+      int symptomExporterMode = settings.symptomsMode;
       boolean toBeExported = true;
       if (symptomExporterMode == 0) {        
         long cutoffDate = endTime - Utilities.convertTime("years", yearsOfHistory);
@@ -133,8 +133,8 @@ public class SymptomTextExporter {
     breakline(textRecord);    
 
     // finally write to the file
-    File outDirectory = Exporter.getOutputFolder("symptoms/text", person);
-    Path outFilePath = outDirectory.toPath().resolve(Exporter.filename(person, fileTag, "txt"));
+    Path outDirectory = OutputLayout.getFolder("symptoms/text", person);
+    Path outFilePath = outDirectory.resolve(Exporter.filename(person, fileTag, "txt"));
     Files.write(outFilePath, textRecord, StandardOpenOption.CREATE_NEW);
   }
 
@@ -4,7 +4,6 @@ import static org.mitre.synthea.export.ExportHelper.dateFromTimestamp;
 
 import com.google.common.base.Strings;
 
-import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -272,8 +271,8 @@ public class TextExporter {
     breakline(textRecord);
 
     // finally write to the file
-    File outDirectory = Exporter.getOutputFolder("text", person);
-    Path outFilePath = outDirectory.toPath().resolve(Exporter.filename(person, fileTag, "txt"));
+    Path outDirectory = OutputLayout.getFolder("text", person);
+    Path outFilePath = outDirectory.resolve(Exporter.filename(person, fileTag, "txt"));
     Files.write(outFilePath, textRecord, StandardOpenOption.CREATE_NEW);
   }
 
@@ -354,8 +353,8 @@ public class TextExporter {
       encounterNumber++;
 
       //write to the file
-      File outDirectory2 = Exporter.getOutputFolder("text_encounters", person);
-      Path outFilePath2 = outDirectory2.toPath().resolve(Exporter.filename(person,
+      Path outDirectory2 = OutputLayout.getFolder("text_encounters", person);
+      Path outFilePath2 = outDirectory2.resolve(Exporter.filename(person,
           Integer.toString(encounterNumber), "txt"));
       Files.write(outFilePath2, textRecord, StandardOpenOption.CREATE_NEW);
     }      
@@ -0,0 +1,77 @@
+package org.mitre.synthea.helpers;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Records when each key of some data last changed, so that code which depends on a few keys can
+ * tell whether any of them changed since it last looked, without comparing the data itself.
+ *
+ * <p>Every change is given a version number one higher than the previous change. Callers note
+ * the current version with {@link #getVersion()} and later ask whether a key changed since that
+ * version. Like the Person that owns the data, a ChangeTracker is not thread safe.
+ */
+public class ChangeTracker implements Serializable {
+  private static final long serialVersionUID = 3021477934817406381L;
+
+  /** Version of the most recent change. */
+  private long version;
+  /** Version of the most recent change that may have affected every key. */
+  private long allChanged;
+  /** key: changed key, value: the version it last changed in. */
+  private final Map<Object, long[]> changes = new HashMap<Object, long[]>();
+
+  /**
+   * Record that the value of a key changed.
+   * @param key The key that changed.
+   */
+  public void changed(Object key) {
+    version++;
+    long[] changed = changes.get(key);
+    if (changed == null) {
+      changes.put(key, new long[] { version });
+    } else {
+      changed[0] = version;
+    }
+  }
+
+  /**
+   * Record that the value of any key may have changed.
+   */
+  public void changedAll() {
+    version++;
+    allChanged = version;
+  }
+
+  /**
+   * Get the version of the most recent change.
+   * @return the current version.
+   */
+  public long getVersion() {
+    return version;
+  }
+
+  /**
+   * Check whether the value of a key may have changed since the given version.
+   * @param key The key to check.
+   * @param since A version returned by {@link #getVersion()}.
+   * @return true if the key changed after that version.
+   */
+  public boolean changedSince(Object key, long since) {
+    if (allChanged > since) {
+      return true;
+    }
+    long[] changed = changes.get(key);
+    return changed != null && changed[0] > since;
+  }
+
+  /**
+   * Check whether the value of any key may have changed since the given version.
+   * @param since A version returned by {@link #getVersion()}.
+   * @return true if any key changed after that version.
+   */
+  public boolean changedSince(long since) {
+    return version > since;
+  }
+}
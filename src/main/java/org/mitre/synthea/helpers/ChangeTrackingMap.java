@@ -0,0 +1,132 @@
+package org.mitre.synthea.helpers;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * A ConcurrentHashMap that records the keys whose values are put or removed in a
+ * {@link ChangeTracker}.
+ *
+ * <p>Changes made through the key and entry set views are recorded, except for removing
+ * entries through an iterator. Changes to the values themselves, such as adding to a List that
+ * is a value of the map, are not seen.
+ *
+ * @param <K> the type of keys.
+ * @param <V> the type of values.
+ */
+public class ChangeTrackingMap<K, V> extends ConcurrentHashMap<K, V> {
+  private static final long serialVersionUID = -4311795306472160213L;
+
+  private final ChangeTracker changes = new ChangeTracker();
+
+  /**
+   * Get the record of the keys that have changed.
+   * @return the change tracker of this map.
+   */
+  public ChangeTracker getChanges() {
+    return changes;
+  }
+
+  @Override
+  public V put(K key, V value) {
+    V previous = super.put(key, value);
+    changes.changed(key);
+    return previous;
+  }
+
+  @Override
+  public V putIfAbsent(K key, V value) {
+    V previous = super.putIfAbsent(key, value);
+    if (previous == null) {
+      changes.changed(key);
+    }
+    return previous;
+  }
+
+  @Override
+  public void putAll(Map<? extends K, ? extends V> m) {
+    for (Map.Entry<? extends K, ? extends V> e : m.entrySet()) {
+      put(e.getKey(), e.getValue());
+    }
+  }
+
+  @Override
+  public V remove(Object key) {
+    V previous = super.remove(key);
+    if (previous != null) {
+      changes.changed(key);
+    }
+    return previous;
+  }
+
+  @Override
+  public boolean remove(Object key, Object value) {
+    boolean removed = super.remove(key, value);
+    if (removed) {
+      changes.changed(key);
+    }
+    return removed;
+  }
+
+  @Override
+  public V replace(K key, V value) {
+    V previous = super.replace(key, value);
+    if (previous != null) {
+      changes.changed(key);
+    }
+    return previous;
+  }
+
+  @Override
+  public boolean replace(K key, V oldValue, V newValue) {
+    boolean replaced = super.replace(key, oldValue, newValue);
+    if (replaced) {
+      changes.changed(key);
+    }
+    return replaced;
+  }
+
+  @Override
+  public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+    V value = super.computeIfAbsent(key, mappingFunction);
+    changes.changed(key);
+    return value;
+  }
+
+  @Override
+  public V computeIfPresent(K key,
+      BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+    V value = super.computeIfPresent(key, remappingFunction);
+    changes.changed(key);
+    return value;
+  }
+
+  @Override
+  public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+    V value = super.compute(key, remappingFunction);
+    changes.changed(key);
+    return value;
+  }
+
+  @Override
+  public V merge(K key, V value,
+      BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+    V merged = super.merge(key, value, remappingFunction);
+    changes.changed(key);
+    return merged;
+  }
+
+  @Override
+  public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+    super.replaceAll(function);
+    changes.changedAll();
+  }
+
+  @Override
+  public void clear() {
+    super.clear();
+    changes.changedAll();
+  }
+}
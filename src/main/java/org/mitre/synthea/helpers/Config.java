@@ -5,11 +5,26 @@ import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 
+/**
+ * The configuration properties, loaded from synthea.properties and any other properties files.
+ *
+ * <p>Properties are read from an immutable copy that is replaced whenever they are changed, so
+ * reading a property never locks, unlike reading the synchronized Properties table directly.
+ * The simulation reads properties far more often than they change.
+ */
 public abstract class Config {
-  private static Properties properties = new Properties();
+  private static final Properties properties = new Properties();
+  /** Immutable copy of the properties, replaced whenever they change. */
+  private static volatile Map<String, String> values = Collections.emptyMap();
+  /** Incremented whenever the properties change. */
+  private static volatile long version;
 
   static {
     try {
@@ -24,14 +39,41 @@ public abstract class Config {
    * Load properties from a file.
    */
   public static void load(File propsFile) throws FileNotFoundException, IOException {
-    properties.load(new FileReader(propsFile));
+    synchronized (properties) {
+      properties.load(new FileReader(propsFile));
+      changed();
+    }
   }
 
   /**
    * Load properties from an input stream. (ex, when running inside a JAR)
    */
   public static void load(InputStream stream) throws IOException {
-    properties.load(stream);
+    synchronized (properties) {
+      properties.load(stream);
+      changed();
+    }
+  }
+
+  /**
+   * Replace the copy of the properties that is read, after they have changed.
+   */
+  private static void changed() {
+    Map<String, String> copy = new HashMap<String, String>();
+    for (String key : properties.stringPropertyNames()) {
+      copy.put(key, properties.getProperty(key));
+    }
+    values = Collections.unmodifiableMap(copy);
+    version++;
+  }
+
+  /**
+   * Get the number of times the properties have changed, so that settings parsed from them
+   * can tell when they must be parsed again.
+   * @return a number that is incremented whenever a property is loaded, set or removed.
+   */
+  public static long getVersion() {
+    return version;
   }
 
   /**
@@ -41,7 +83,7 @@ public abstract class Config {
    * @return value for the property, or null if not found
    */
   public static String get(String key) {
-    return properties.getProperty(key);
+    return values.get(key);
   }
   
   /**
@@ -52,7 +94,8 @@ public abstract class Config {
    * @return value for the property, or defaultValue if not found
    */
   public static String get(String key, String defaultValue) {
-    return properties.getProperty(key, defaultValue);
+    String value = values.get(key);
+    return (value == null) ? defaultValue : value;
   }
 
   /**
@@ -73,7 +116,7 @@ public abstract class Config {
    * @return value for the property, or defaultValue if not found
    */
   public static boolean getAsBoolean(String key, boolean defaultValue) {
-    if (properties.containsKey(key)) {
+    if (values.containsKey(key)) {
       return getAsBoolean(key);
     } else {
       return defaultValue;
@@ -87,7 +130,10 @@ public abstract class Config {
    * @param value property value
    */
   public static void set(String key, String value) {
-    properties.setProperty(key, value);
+    synchronized (properties) {
+      properties.setProperty(key, value);
+      changed();
+    }
   }
 
   /**
@@ -102,7 +148,7 @@ public abstract class Config {
    * @return Set of property key names
    */
   public static Set<String> allPropertyNames() {
-    return properties.stringPropertyNames();
+    return new HashSet<String>(values.keySet());
   }
 
   /**
@@ -111,8 +157,11 @@ public abstract class Config {
    * @param key property name
    */
   public static void remove(String key) {
-    if (properties.containsKey(key)) {
-      properties.remove(key);
+    synchronized (properties) {
+      if (properties.containsKey(key)) {
+        properties.remove(key);
+        changed();
+      }
     }
   }
 
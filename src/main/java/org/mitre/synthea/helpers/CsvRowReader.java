@@ -0,0 +1,240 @@
+package org.mitre.synthea.helpers;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Predicate;
+
+/**
+ * Reads CSV data with a header row from a Reader one row at a time. The fields of each row are
+ * kept in buffers that are reused for every row, and are only copied into Strings when the row
+ * filter asks for them. Only rows that pass the filter are converted into Maps, containing only
+ * the projected columns.
+ *
+ * <p>Fields may be quoted with double quotes, and a double quote inside a quoted field is
+ * written as two double quotes. Lines may end with LF, CRLF or CR, and empty lines are skipped.
+ * A byte order mark at the start of the data is ignored.
+ */
+final class CsvRowReader implements Iterator<LinkedHashMap<String, String>>, SimpleCSV.Row,
+    Closeable {
+  private final Reader reader;
+  private final char[] input = new char[8192];
+  private int position;
+  private int limit;
+  private boolean closed;
+  private int line;
+
+  /** Characters of the fields of the current row, one after the other. */
+  private char[] chars = new char[256];
+  private int length;
+  /** Start and end of each field of the current row in chars. */
+  private int[] starts = new int[16];
+  private int[] ends = new int[16];
+  private int count;
+  /** Fields of the current row that have already been copied into Strings. */
+  private String[] values = new String[16];
+
+  private final String[] header;
+  private final Map<String, Integer> columns;
+  /** Indexes of the projected columns, in header order. */
+  private final int[] projection;
+  private final Predicate<SimpleCSV.Row> filter;
+  private LinkedHashMap<String, String> next;
+
+  /**
+   * Read the header row and prepare to read the rows.
+   * @param reader Source of CSV data. It is closed once the last row has been read.
+   * @param projection Columns to include in the Maps, or null to include every column.
+   * @param filter Rows to convert into Maps, or null to convert every row.
+   * @throws IOException if the header cannot be read.
+   */
+  CsvRowReader(Reader reader, Collection<String> projection, Predicate<SimpleCSV.Row> filter)
+      throws IOException {
+    this.reader = reader;
+    this.filter = filter;
+    if (peek() == '\uFEFF') {
+      position++;
+    }
+    if (readRow()) {
+      header = new String[count];
+      for (int i = 0; i < count; i++) {
+        header[i] = field(i);
+      }
+    } else {
+      header = new String[0];
+    }
+    columns = new HashMap<String, Integer>();
+    int[] indexes = new int[header.length];
+    int projected = 0;
+    for (int i = 0; i < header.length; i++) {
+      columns.put(header[i], i);
+      if (projection == null || projection.contains(header[i])) {
+        indexes[projected++] = i;
+      }
+    }
+    this.projection = Arrays.copyOf(indexes, projected);
+  }
+
+  @Override
+  public String get(String column) {
+    Integer index = columns.get(column);
+    if (index == null || index >= count) {
+      return null;
+    }
+    return field(index);
+  }
+
+  @Override
+  public boolean hasNext() {
+    try {
+      while (next == null && readRow()) {
+        if (count > header.length) {
+          throw new IOException("Too many entries on line " + line + ": expected at most "
+              + header.length + ", found " + count);
+        }
+        if (filter == null || filter.test(this)) {
+          next = new LinkedHashMap<String, String>();
+          for (int index : projection) {
+            if (index < count) {
+              next.put(header[index], field(index));
+            }
+          }
+        }
+      }
+    } catch (IOException e) {
+      close();
+      throw new UncheckedIOException(e);
+    }
+    return next != null;
+  }
+
+  @Override
+  public LinkedHashMap<String, String> next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    LinkedHashMap<String, String> row = next;
+    next = null;
+    return row;
+  }
+
+  @Override
+  public void close() {
+    if (!closed) {
+      closed = true;
+      try {
+        reader.close();
+      } catch (IOException e) {
+        // nothing more will be read, so there is nothing to recover
+      }
+    }
+  }
+
+  private String field(int index) {
+    if (values[index] == null) {
+      values[index] = new String(chars, starts[index], ends[index] - starts[index]);
+    }
+    return values[index];
+  }
+
+  private int peek() throws IOException {
+    if (position == limit) {
+      if (closed) {
+        return -1;
+      }
+      limit = reader.read(input, 0, input.length);
+      position = 0;
+      if (limit <= 0) {
+        limit = 0;
+        close();
+        return -1;
+      }
+    }
+    return input[position];
+  }
+
+  private int read() throws IOException {
+    int c = peek();
+    if (c != -1) {
+      position++;
+    }
+    return c;
+  }
+
+  private void append(int c) {
+    if (length == chars.length) {
+      chars = Arrays.copyOf(chars, chars.length * 2);
+    }
+    chars[length++] = (char) c;
+  }
+
+  private void endField(int start) {
+    if (count == starts.length) {
+      starts = Arrays.copyOf(starts, count * 2);
+      ends = Arrays.copyOf(ends, count * 2);
+      values = new String[count * 2];
+    }
+    starts[count] = start;
+    ends[count] = length;
+    values[count] = null;
+    count++;
+  }
+
+  /**
+   * Read the fields of the next non-empty line into the buffers.
+   * @return false if there are no more rows.
+   */
+  private boolean readRow() throws IOException {
+    length = 0;
+    count = 0;
+    int c = read();
+    while (c == '\n' || c == '\r') {
+      line++;
+      c = read();
+    }
+    if (c == -1) {
+      return false;
+    }
+    line++;
+    while (true) {
+      int start = length;
+      if (c == '"') {
+        c = read();
+        while (c != -1) {
+          if (c == '"') {
+            c = read();
+            if (c != '"') {
+              break;
+            }
+          } else if (c == '\n') {
+            line++;
+          }
+          append(c);
+          c = read();
+        }
+      }
+      // anything after a closing quote is kept, as it is in an unquoted field
+      while (c != ',' && c != '\n' && c != '\r' && c != -1) {
+        append(c);
+        c = read();
+      }
+      endField(start);
+      if (c != ',') {
+        break;
+      }
+      c = read();
+    }
+    if (c == '\r' && peek() == '\n') {
+      read();
+    }
+    return true;
+  }
+}
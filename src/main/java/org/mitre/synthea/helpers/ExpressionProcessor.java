@@ -18,6 +18,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
@@ -43,11 +44,15 @@ public class ExpressionProcessor {
       new ConcurrentHashMap<String, VitalSign>();
   private static final Set<String> attributeSet =
       Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
-  private final LibraryManager libraryManager = new LibraryManager(modelManager);
+  /** Compiled libraries, by the CQL they were compiled from. */
+  private static final ConcurrentMap<String, Library> libraryCache =
+      new ConcurrentHashMap<String, Library>();
+  private static final AtomicLong cacheHits = new AtomicLong(0);
+  private static final AtomicLong cacheMisses = new AtomicLong(0);
+  private static final AtomicLong compileNanos = new AtomicLong(0);
   private String expression;
   private Library library;
   private Context context;
-  private String elm;
   private Map<String,String> paramTypeMap;
   private BiMap<String,String> cqlParamMap;
 
@@ -65,7 +70,8 @@ public class ExpressionProcessor {
    * @return result of the expression
    */
 
-  private String cqlToElm(String cql) {
+  private static String cqlToElm(String cql) {
+    LibraryManager libraryManager = new LibraryManager(modelManager);
     CqlTranslator translator = CqlTranslator.fromText(cql, modelManager, libraryManager);
     
     if (translator.getErrors().size() > 0) {
@@ -101,20 +107,68 @@ public class ExpressionProcessor {
     String cleanExpression = replaceParameters(expression);
     String wrappedExpression = convertParameterizedExpressionToCql(cleanExpression);
 
-    // Compile our constructed CQL expression into elm once for execution
+    // Each thread only needs its own Context; the compiled library is shared
+    this.library = getLibrary(wrappedExpression);
+    this.context = new Context(library);
+    this.expression = expression;
+  }
+
+  /**
+   * Get the compiled library for the given CQL, compiling it if no other ExpressionProcessor
+   * has used the same CQL yet.
+   * @param cql CQL library source
+   * @return compiled library, which may be shared between threads
+   */
+  private static Library getLibrary(String cql) {
+    Library library = libraryCache.get(cql);
+    if (library != null) {
+      cacheHits.incrementAndGet();
+      return library;
+    }
     // The compiler isn't thread safe, so only allow one thread at a time
-    this.elm = cqlToElm(wrappedExpression);
     synchronized (ExpressionProcessor.class) {
+      library = libraryCache.get(cql);
+      if (library != null) {
+        cacheHits.incrementAndGet();
+        return library;
+      }
+      long start = System.nanoTime();
+      String elm = cqlToElm(cql);
       try {
-        this.library = CqlLibraryReader.read(new ByteArrayInputStream(
+        library = CqlLibraryReader.read(new ByteArrayInputStream(
             elm.getBytes(StandardCharsets.UTF_8)));
       } catch (IOException | JAXBException ex) {
         throw new RuntimeException(ex);
       }
+      compileNanos.addAndGet(System.nanoTime() - start);
+      cacheMisses.incrementAndGet();
+      libraryCache.put(cql, library);
+      return library;
     }
+  }
 
-    this.context = new Context(library);
-    this.expression = expression;
+  /**
+   * Returns the number of times a compiled expression was reused.
+   * @return number of cache hits
+   */
+  public static long getCacheHits() {
+    return cacheHits.get();
+  }
+
+  /**
+   * Returns the number of expressions that had to be compiled.
+   * @return number of cache misses
+   */
+  public static long getCacheMisses() {
+    return cacheMisses.get();
+  }
+
+  /**
+   * Returns the total time spent compiling expressions.
+   * @return compile time in nanoseconds
+   */
+  public static long getCompileTimeNanos() {
+    return compileNanos.get();
   }
   
   /**
@@ -380,7 +434,8 @@ public class ExpressionProcessor {
 
     wrappedExpression.append("\n\ncontext Patient\n\n");
     
-    String[] statements = expression.split("\n");
+    // Trim each line so that expressions differing only in whitespace share a library
+    String[] statements = expression.trim().split("\\s*\n\\s*");
     
     for (int i = 0; i < statements.length; i++) {
       if (i == statements.length - 1) {
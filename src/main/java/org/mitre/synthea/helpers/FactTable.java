@@ -2,9 +2,11 @@ package org.mitre.synthea.helpers;
 
 import java.io.IOException;
 import java.io.Writer;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The FactTable helper class aids in the export of database-style
@@ -19,33 +21,36 @@ public class FactTable {
   private static final String NEWLINE = System.lineSeparator();
   /** Table column headers. Comma-separated. */
   private String header;
-  /** This is the ID sequence generator. */
-  private AtomicInteger id;
-  /** Lookup the ID for a key. */
-  private Map<String,Integer> keys;
-  /** Lookup the fact by ID. */
-  private Map<Integer,String> facts;
-  /** Synchronization lock. */
-  private static final Object LOCK = new Object();
-  
+  /** Lookup the ID for a key. Lookups of existing keys never lock. */
+  private final Map<String,Integer> keys;
+  /**
+   * Lookup the fact by ID. Each run of consecutive IDs (a new run starts whenever the next ID
+   * is set) is stored in an array indexed by ID, in the order the IDs were assigned.
+   * Guarded by this table's lock, along with nextId.
+   */
+  private final List<Segment> segments;
+  /** The next ID to assign. */
+  private int nextId;
+  /** The segment new facts are added to, or null if the next fact starts a new segment. */
+  private Segment current;
+
   /**
    * Create a FactTable with an ID that starts at 1
    * and increments with each new key/fact.
    */
   public FactTable() {
-    id = new AtomicInteger(1);
-    keys = new HashMap<String,Integer>();
-    facts = new HashMap<Integer,String>();
+    keys = new ConcurrentHashMap<String,Integer>();
+    segments = new ArrayList<Segment>();
+    nextId = 1;
   }
 
   /**
    * Set the next ID.
    * @param id The value of the next ID.
    */
-  public void setNextId(int id) {
-    synchronized (LOCK) {
-      this.id = new AtomicInteger(id);
-    }
+  public synchronized void setNextId(int id) {
+    this.nextId = id;
+    this.current = null;
   }
   
   /**
@@ -62,9 +67,7 @@ public class FactTable {
    * @return The ID for the fact. For example, 1 or 2.
    */
   public int getFactId(String key) {
-    synchronized (LOCK) {
-      return keys.get(key);
-    }
+    return keys.get(key);
   }
 
   /**
@@ -73,10 +76,8 @@ public class FactTable {
    * @return The fact. For example, 'Male' or 'Female'.
    */
   public String getFactByKey(String key) {
-    synchronized (LOCK) {
-      Integer id = keys.get(key);
-      return facts.get(id);
-    }
+    Integer id = keys.get(key);
+    return (id == null) ? null : getFactById(id);
   }
 
   /**
@@ -84,10 +85,16 @@ public class FactTable {
    * @param id The ID for the fact. For example, 1 or 2.
    * @return The fact. For example, 'Male' or 'Female'.
    */
-  public String getFactById(Integer id) {
-    synchronized (LOCK) {
-      return facts.get(id);
+  public synchronized String getFactById(Integer id) {
+    // later segments win, as they would overwrite earlier facts with the same ID
+    for (int i = segments.size() - 1; i >= 0; i--) {
+      Segment segment = segments.get(i);
+      int index = id - segment.firstId;
+      if (index >= 0 && index < segment.size) {
+        return segment.facts[index];
+      }
     }
+    return null;
   }
 
   /**
@@ -101,37 +108,91 @@ public class FactTable {
    * @return The ID for the fact. For example, 1 or 2.
    */
   public int addFact(String key, String fact) {
-    synchronized (LOCK) {
-      if (keys.containsKey(key)) {
-        return keys.get(key);
-      }
+    Integer id = keys.get(key);
+    if (id == null) {
+      // only threads adding the same key wait for each other here
+      id = keys.computeIfAbsent(key, k -> store(fact));
+    }
+    return id;
+  }
 
-      int next = id.getAndIncrement();
-      keys.put(key, next);
-      facts.put(next, fact);
-      return next;
+  /**
+   * Assign the next ID to a fact.
+   * @param fact The fact.
+   * @return The ID for the fact.
+   */
+  private synchronized int store(String fact) {
+    if (current == null) {
+      current = new Segment(nextId);
+      segments.add(current);
     }
+    current.add(fact);
+    return nextId++;
   }
   
   /**
-   * Write the contents of the FactTable to a file.
+   * Write the contents of the FactTable to a file, in order of ID. Facts added while the
+   * table is being written are not included.
    * @param writer The open Writer to use to record the FactTable.
    * @throws IOException On errors.
    */
   public void write(Writer writer) throws IOException {
-    synchronized (LOCK) {
-      writer.write(header);
-      writer.write(NEWLINE);
-      for (Integer key : facts.keySet()) {
-        writer.write(key.toString());
+    // copy the segments, so the table is only locked while they are copied
+    List<Segment> snapshot = new ArrayList<Segment>();
+    synchronized (this) {
+      for (Segment segment : segments) {
+        snapshot.add(segment.copy());
+      }
+    }
+    snapshot.sort((a, b) -> Integer.compare(a.firstId, b.firstId));
+
+    writer.write(header);
+    writer.write(NEWLINE);
+    for (Segment segment : snapshot) {
+      for (int i = 0; i < segment.size; i++) {
+        writer.write(Integer.toString(segment.firstId + i));
         writer.write(',');
-        String fact = facts.get(key);
+        String fact = segment.facts[i];
         if (fact != null) {
-          writer.write(facts.get(key));
+          writer.write(fact);
         }
         writer.write(NEWLINE);
       }
-      writer.flush();
+    }
+    writer.flush();
+  }
+
+  /**
+   * A run of facts with consecutive IDs.
+   */
+  private static class Segment {
+    private final int firstId;
+    private String[] facts;
+    private int size;
+
+    private Segment(int firstId) {
+      this(firstId, new String[16], 0);
+    }
+
+    private Segment(int firstId, String[] facts, int size) {
+      this.firstId = firstId;
+      this.facts = facts;
+      this.size = size;
+    }
+
+    private void add(String fact) {
+      if (size == facts.length) {
+        facts = Arrays.copyOf(facts, size * 2);
+      }
+      facts[size++] = fact;
+    }
+
+    /**
+     * Copy the facts added so far. The array is shared, since facts that have been added
+     * are never changed.
+     */
+    private Segment copy() {
+      return new Segment(firstId, facts, size);
     }
   }
 }
@@ -3,12 +3,21 @@ package org.mitre.synthea.helpers;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
-import java.util.ArrayList;
+import com.google.common.hash.Hashing;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.annotation.Nonnull;
 import org.apache.commons.lang3.StringUtils;
@@ -31,15 +40,21 @@ import org.springframework.web.client.RestTemplate;
  *
  * 
  * <p>The URL for the terminology service is configured using the
- * <code>generate.terminology_service_url</code> property.
+ * <code>generate.terminology_service_url</code> property. Expansions can also be saved to the
+ * directory set by <code>generate.terminology_service_cache</code>, so that later runs do not
+ * expand the same ValueSets again.
  */
 public abstract class RandomCodeGenerator {
 
   public static String expandBaseUrl = Config.get("generate.terminology_service_url")
       + "/ValueSet/$expand?url=";
   private static final Logger logger = LoggerFactory.getLogger(RandomCodeGenerator.class);
-  public static Map<String, List<Object>> codeListCache = new HashMap<>();
-  public static List<Code> selectedCodes = new ArrayList<>();
+  public static Map<String, List<Object>> codeListCache = new ConcurrentHashMap<>();
+  /** Expansions in progress, keyed by ValueSet URI. */
+  private static final Map<String, CompletableFuture<List<Object>>> expansions =
+      new ConcurrentHashMap<>();
+  /** The code values of every code selected from a ValueSet so far. */
+  public static Set<String> selectedCodes = ConcurrentHashMap.newKeySet();
   private static UrlValidator urlValidator = new UrlValidator();
 
   public static RestTemplate restTemplate = new RestTemplate();
@@ -56,43 +71,130 @@ public abstract class RandomCodeGenerator {
   @SuppressWarnings("unchecked")
   public static Code getCode(String valueSetUri, long seed, Code code) {
     if (urlValidator.isValid(valueSetUri)) {
-      expandValueSet(valueSetUri);
-      List<Object> codes = codeListCache.get(valueSetUri);
+      List<Object> codes = expandValueSet(valueSetUri);
       int randomIndex = new Random(seed).nextInt(codes.size());
       Map<String, String> codeMap = (Map<String, String>) codes.get(randomIndex);
       validateCode(codeMap);
       Code newCode = new Code(codeMap.get("system"), codeMap.get("code"), codeMap.get("display"));
-      selectedCodes.add(newCode);
+      selectedCodes.add(newCode.code);
       return newCode;
     }
     return code;
   }
 
+  /**
+   * Get the codes in the expansion of a ValueSet, expanding it the first time it is used.
+   * Concurrent callers for the same ValueSet wait for a single expansion, while other ValueSets
+   * can be expanded at the same time. The expansion runs outside of any map operation, so a
+   * slow terminology service never blocks reads of other ValueSets. If the expansion fails,
+   * every waiting caller gets the failure, and the next call tries again.
+   */
+  private static List<Object> expandValueSet(String valueSetUri) {
+    List<Object> codes = codeListCache.get(valueSetUri);
+    if (codes != null) {
+      return codes;
+    }
+    CompletableFuture<List<Object>> expansion = new CompletableFuture<List<Object>>();
+    CompletableFuture<List<Object>> pending = expansions.putIfAbsent(valueSetUri, expansion);
+    if (pending != null) {
+      try {
+        return pending.join();
+      } catch (CompletionException e) {
+        if (e.getCause() instanceof RuntimeException) {
+          throw (RuntimeException) e.getCause();
+        }
+        throw e;
+      }
+    }
+    try {
+      // another caller may have finished expanding it since the first check
+      codes = codeListCache.get(valueSetUri);
+      if (codes == null) {
+        codes = loadExpansion(valueSetUri);
+        codeListCache.put(valueSetUri, codes);
+      }
+      expansion.complete(codes);
+      return codes;
+    } catch (Throwable e) {
+      expansion.completeExceptionally(e);
+      throw e;
+    } finally {
+      expansions.remove(valueSetUri, expansion);
+    }
+  }
+
+  /**
+   * Load the expansion of a ValueSet from the disk cache, if one is configured with
+   * <code>generate.terminology_service_cache</code> and contains it, or else from the
+   * terminology service, saving it to the disk cache for later runs.
+   */
   @SuppressWarnings("unchecked")
-  private static synchronized void expandValueSet(String valueSetUri) {
-    if (!codeListCache.containsKey(valueSetUri)) {
-      HttpHeaders headers = new HttpHeaders();
-      headers.setContentType(MediaType.APPLICATION_JSON);
-      HttpEntity<String> request = new HttpEntity<>(headers);
-      Map<String, Object> valueSet = null;
+  private static List<Object> loadExpansion(String valueSetUri) {
+    String url = expandBaseUrl + valueSetUri;
+    ObjectMapper objectMapper = new ObjectMapper();
+    File cached = cacheFile(url);
+    if (cached != null && cached.isFile()) {
       try {
-        ResponseEntity<String> response = restTemplate.exchange(expandBaseUrl + valueSetUri,
-            HttpMethod.GET, request,
-            String.class);
-        ObjectMapper objectMapper = new ObjectMapper();
-        valueSet = objectMapper.readValue(response.getBody(),
+        Map<String, Object> expansion = objectMapper.readValue(cached,
             new TypeReference<Map<String, Object>>() {
             });
-      } catch (JsonProcessingException e) {
-        throw new RuntimeException("JsonProcessingException while parsing valueSet response");
-      } catch (RestClientException e) {
-        throw new RestClientException("RestClientException while fetching valueSet response");
+        validateExpansion(expansion);
+        return (List<Object>) expansion.get("contains");
+      } catch (IOException | RuntimeException e) {
+        logger.warn("Unable to read cached expansion of " + valueSetUri + " from " + cached, e);
       }
+    }
+
+    HttpHeaders headers = new HttpHeaders();
+    headers.setContentType(MediaType.APPLICATION_JSON);
+    HttpEntity<String> request = new HttpEntity<>(headers);
+    Map<String, Object> valueSet = null;
+    try {
+      ResponseEntity<String> response = restTemplate.exchange(url,
+          HttpMethod.GET, request,
+          String.class);
+      valueSet = objectMapper.readValue(response.getBody(),
+          new TypeReference<Map<String, Object>>() {
+          });
+    } catch (JsonProcessingException e) {
+      throw new RuntimeException("JsonProcessingException while parsing valueSet response");
+    } catch (RestClientException e) {
+      throw new RestClientException("RestClientException while fetching valueSet response");
+    }
 
-      Map<String, Object> expansion = (Map<String, Object>) valueSet.get("expansion");
-      validateExpansion(expansion);
-      codeListCache.put(valueSetUri, (List<Object>) expansion.get("contains"));
+    Map<String, Object> expansion = (Map<String, Object>) valueSet.get("expansion");
+    validateExpansion(expansion);
+    if (cached != null) {
+      File temp = null;
+      try {
+        // write to a temporary file first, so other runs never read a partial expansion
+        cached.getParentFile().mkdirs();
+        temp = File.createTempFile(cached.getName(), ".tmp", cached.getParentFile());
+        objectMapper.writeValue(temp, expansion);
+        Files.move(temp.toPath(), cached.toPath(), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+      } catch (IOException e) {
+        logger.warn("Unable to cache expansion of " + valueSetUri + " in " + cached, e);
+      } finally {
+        if (temp != null) {
+          temp.delete();
+        }
+      }
+    }
+    return (List<Object>) expansion.get("contains");
+  }
+
+  /**
+   * Get the file that caches the expansion at the given URL.
+   * @return The file, or null if expansions are not cached on disk.
+   */
+  private static File cacheFile(String url) {
+    String directory = Config.get("generate.terminology_service_cache", "");
+    if (directory.trim().isEmpty()) {
+      return null;
     }
+    String name = Hashing.sha256().hashString(url, StandardCharsets.UTF_8).toString();
+    return new File(directory, name + ".json");
   }
 
   private static void validateExpansion(@Nonnull Map<String, Object> expansion) {
@@ -6,12 +6,14 @@ import com.fasterxml.jackson.dataformat.csv.CsvSchema;
 import com.fasterxml.jackson.dataformat.csv.CsvSchema.ColumnType;
 
 import java.io.IOException;
+import java.io.Reader;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Predicate;
 import java.util.stream.Stream;
 
 /**
@@ -68,6 +70,39 @@ public class SimpleCSV {
     return it;
   }
 
+  /**
+   * Parse CSV data from the given Reader into an Iterator of Maps, without reading all of the
+   * data into memory first. Each row is first checked against the filter, which can read the
+   * raw fields of the row, and only rows that pass are converted into Maps. Uses a LinkedHashMap
+   * to ensure the order of columns is preserved in the resulting maps.
+   *
+   * @param reader
+   *          Source of raw CSV data. It is closed once the last row has been read.
+   * @param columns
+   *          Columns to include in the Maps, or null to include every column
+   * @param filter
+   *          Rows to include, or null to include every row
+   * @return parsed data
+   * @throws IOException
+   *           if the header row cannot be read
+   */
+  public static Iterator<LinkedHashMap<String, String>> parseLineByLine(Reader reader,
+      Collection<String> columns, Predicate<Row> filter) throws IOException {
+    return new CsvRowReader(reader, columns, filter);
+  }
+
+  /**
+   * The raw fields of a row, before it is converted into a Map.
+   */
+  public interface Row {
+    /**
+     * Get the value of a field in this row.
+     * @param column The column name.
+     * @return The value, or null if there is no such column in this row.
+     */
+    String get(String column);
+  }
+
   /**
    * Convert the data in the given List of Maps to a String of CSV data. 
    * Each Map in the List represents one line of the resulting CSV. Uses the keySet from the 
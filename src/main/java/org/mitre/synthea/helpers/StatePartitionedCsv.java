@@ -0,0 +1,357 @@
+package org.mitre.synthea.helpers;
+
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema.ColumnType;
+import com.google.common.io.Resources;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.StringReader;
+import java.net.URLConnection;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Reads the rows of a large CSV resource for a single state, such as the demographics, zip
+ * code and provider files, without parsing the rows for every other state.
+ *
+ * <p>The first time a file is read, its rows are grouped by the value of the state column and
+ * written to an index file in the directory set by <code>generate.state_index.directory</code>.
+ * The index file starts with a table of the states and the position of their rows, followed
+ * by the rows of each state as a small CSV document. Later reads map the index file into
+ * memory and only decode and parse the rows of the requested states.
+ *
+ * <p>An index file records the size and modification time of the resource it was compiled
+ * from, and is compiled again when either changes. If the directory is not set, or the index
+ * cannot be written or read, the whole CSV resource is scanned instead, and only the rows of
+ * the requested states are converted into Maps.
+ */
+public abstract class StatePartitionedCsv {
+  /** "SPCV": identifies an index file. */
+  private static final int MAGIC = 0x53504356;
+  /** Increment this whenever the layout of the index file changes. */
+  private static final int VERSION = 1;
+
+  /** Opened index files, keyed by resource filename and state column. */
+  private static final Map<String, Index> INDEXES = new ConcurrentHashMap<String, Index>();
+
+  /**
+   * Read the rows of a CSV resource that belong to the given states.
+   * @param filename Path to the file, relative to src/main/resources.
+   * @param column The column containing the state of each row.
+   * @param states The states to read. A state is matched by the exact value of the column,
+   *     ignoring case, so pass both the name and the abbreviation if either may be used.
+   *     Null states are ignored, and if no state is given every row is read.
+   * @return The rows of the given states, or every row of the file if no index is available.
+   * @throws IOException if the resource cannot be read.
+   */
+  public static Iterator<? extends Map<String, String>> read(String filename, String column,
+      String... states) throws IOException {
+    Set<String> keys = new LinkedHashSet<String>();
+    for (String state : states) {
+      if (state != null) {
+        keys.add(state.toUpperCase());
+      }
+    }
+    String directory = Config.get("generate.state_index.directory", "");
+    if (keys.isEmpty() || directory.trim().isEmpty()) {
+      return scan(filename, column, keys);
+    }
+    Index index;
+    try {
+      index = index(new File(directory), filename, column);
+    } catch (IOException e) {
+      System.err.println("WARNING: unable to index " + filename + " by " + column
+          + ", reading the whole file: " + e.getMessage());
+      return scan(filename, column, keys);
+    }
+
+    List<LinkedHashMap<String, String>> rows = new ArrayList<LinkedHashMap<String, String>>();
+    try {
+      for (String key : keys) {
+        String csv = index.slice(key);
+        if (csv != null) {
+          SimpleCSV.parseLineByLine(new StringReader(csv), null, null)
+              .forEachRemaining(rows::add);
+        }
+      }
+    } catch (RuntimeException e) {
+      System.err.println("WARNING: unable to read the index of " + filename + " by " + column
+          + ", reading the whole file: " + e);
+      return scan(filename, column, keys);
+    }
+    return rows.iterator();
+  }
+
+  /**
+   * Read the rows of the given states from the whole CSV resource.
+   */
+  private static Iterator<? extends Map<String, String>> scan(String filename, String column,
+      Set<String> keys) throws IOException {
+    if (keys.isEmpty()) {
+      return SimpleCSV.parseLineByLine(Utilities.openResource(filename), null, null);
+    }
+    return SimpleCSV.parseLineByLine(Utilities.openResource(filename), null, row -> {
+      String state = row.get(column);
+      return state != null && keys.contains(state.toUpperCase());
+    });
+  }
+
+  /**
+   * Get the index of the given resource, compiling it if it is missing or out of date.
+   */
+  private static Index index(File directory, String filename, String column)
+      throws IOException {
+    String name = filename + "#" + column;
+    URLConnection source = Resources.getResource(filename).openConnection();
+    long length;
+    long modified;
+    // connecting may open the resource, so close it again
+    try (InputStream stream = source.getInputStream()) {
+      length = source.getContentLengthLong();
+      modified = source.getLastModified();
+    }
+
+    Index index = INDEXES.get(name);
+    if (index != null && index.length == length && index.modified == modified) {
+      return index;
+    }
+    synchronized (INDEXES) {
+      index = INDEXES.get(name);
+      if (index == null || index.length != length || index.modified != modified) {
+        File file = new File(directory,
+            filename.replaceAll("[^A-Za-z0-9._-]", "_") + "." + column + ".idx");
+        index = Index.open(file);
+        if (index == null || index.length != length || index.modified != modified) {
+          compile(filename, column, length, modified, file);
+          index = Index.open(file);
+          if (index == null) {
+            throw new IOException("unable to open compiled index " + file);
+          }
+        }
+        INDEXES.put(name, index);
+      }
+      return index;
+    }
+  }
+
+  /**
+   * Compile a CSV resource into an index file, grouping its rows by state.
+   * @param filename Path to the file, relative to src/main/resources.
+   * @param column The column containing the state of each row.
+   * @param length The size of the resource, recorded to detect changes.
+   * @param modified The modification time of the resource, recorded to detect changes.
+   * @param file The index file to write.
+   * @throws IOException if the resource cannot be read or the index cannot be written.
+   */
+  static void compile(String filename, String column, long length, long modified, File file)
+      throws IOException {
+    file.getParentFile().mkdirs();
+    // rows are written out as they are parsed, since some of the files are too large to hold
+    // every row in memory at once. Each state's rows go to their own temporary file, and the
+    // first row of each state is written with the header.
+    Map<String, Slice> states = new LinkedHashMap<String, Slice>();
+    File temp = null;
+    try {
+      Iterator<LinkedHashMap<String, String>> csv =
+          SimpleCSV.parseLineByLine(Utilities.openResource(filename), null, null);
+      CsvMapper mapper = new CsvMapper();
+      ObjectWriter withHeader = null;
+      ObjectWriter withoutHeader = null;
+      while (csv.hasNext()) {
+        LinkedHashMap<String, String> row = csv.next();
+        if (withHeader == null) {
+          CsvSchema schema =
+              CsvSchema.builder().addColumns(row.keySet(), ColumnType.STRING).build();
+          withHeader = mapper.writer(schema.withHeader());
+          withoutHeader = mapper.writer(schema.withoutHeader());
+        }
+        String state = row.get(column);
+        String key = (state == null) ? "" : state.toUpperCase();
+        Slice slice = states.get(key);
+        if (slice == null) {
+          slice = new Slice(file);
+          states.put(key, slice);
+          slice.write(withHeader.writeValueAsBytes(row));
+        } else {
+          slice.write(withoutHeader.writeValueAsBytes(row));
+        }
+      }
+      for (Slice slice : states.values()) {
+        slice.out.close();
+      }
+
+      // write to a temporary file and move it into place, so that other processes compiling
+      // the same index never read a partially written file
+      temp = File.createTempFile(file.getName(), ".tmp", file.getParentFile());
+      try (DataOutputStream out = new DataOutputStream(
+          new BufferedOutputStream(new FileOutputStream(temp)))) {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeLong(length);
+        out.writeLong(modified);
+        out.writeInt(states.size());
+        for (Map.Entry<String, Slice> state : states.entrySet()) {
+          byte[] key = state.getKey().getBytes(StandardCharsets.UTF_8);
+          out.writeShort(key.length);
+          out.write(key);
+          out.writeInt((int) state.getValue().size);
+        }
+        for (Slice slice : states.values()) {
+          Files.copy(slice.file.toPath(), out);
+        }
+      }
+      Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+          StandardCopyOption.ATOMIC_MOVE);
+    } finally {
+      for (Slice slice : states.values()) {
+        try {
+          slice.out.close();
+        } catch (IOException e) {
+          // the slice is deleted either way
+        }
+        slice.file.delete();
+      }
+      if (temp != null) {
+        temp.delete();
+      }
+    }
+  }
+
+  /**
+   * The rows of one state, written to a temporary file while an index is compiled.
+   */
+  private static final class Slice {
+    private final File file;
+    private final OutputStream out;
+    private long size;
+
+    private Slice(File index) throws IOException {
+      file = File.createTempFile(index.getName(), ".slice", index.getParentFile());
+      out = new BufferedOutputStream(new FileOutputStream(file));
+    }
+
+    private void write(byte[] bytes) throws IOException {
+      if (size + bytes.length > Integer.MAX_VALUE) {
+        throw new IOException("the rows of a state are too large to index");
+      }
+      out.write(bytes);
+      size += bytes.length;
+    }
+  }
+
+  /**
+   * Remove any opened indexes, so that the next read checks the index files again.
+   */
+  static void clear() {
+    INDEXES.clear();
+  }
+
+  /**
+   * An opened index file. The rows stay in the mapped file until a state is read.
+   */
+  private static final class Index {
+    private final long length;
+    private final long modified;
+    private final ByteBuffer buffer;
+    /** key: state, value: offset and length of its rows in the buffer. */
+    private final Map<String, long[]> slices;
+
+    private Index(long length, long modified, ByteBuffer buffer, Map<String, long[]> slices) {
+      this.length = length;
+      this.modified = modified;
+      this.buffer = buffer;
+      this.slices = slices;
+    }
+
+    /**
+     * Open an index file.
+     * @param file The index file.
+     * @return The index, or null if the file does not exist, is not an index file, or is
+     *     truncated or corrupt.
+     * @throws IOException if the file cannot be read.
+     */
+    private static Index open(File file) throws IOException {
+      if (!file.isFile()) {
+        return null;
+      }
+      MappedByteBuffer buffer;
+      try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+      }
+      if (buffer.remaining() < 28 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+        return null;
+      }
+      long length = buffer.getLong();
+      long modified = buffer.getLong();
+      int count = buffer.getInt();
+      List<String> keys = new ArrayList<String>();
+      List<Integer> sizes = new ArrayList<Integer>();
+      try {
+        for (int i = 0; i < count; i++) {
+          byte[] key = new byte[buffer.getShort() & 0xFFFF];
+          buffer.get(key);
+          keys.add(new String(key, StandardCharsets.UTF_8));
+          int size = buffer.getInt();
+          if (size < 0) {
+            return null;
+          }
+          sizes.add(size);
+        }
+      } catch (BufferUnderflowException e) {
+        // the table of states is truncated or corrupt
+        return null;
+      }
+      Map<String, long[]> slices = new HashMap<String, long[]>();
+      long offset = buffer.position();
+      for (int i = 0; i < keys.size(); i++) {
+        slices.put(keys.get(i), new long[] { offset, sizes.get(i) });
+        offset += sizes.get(i);
+      }
+      if (offset != buffer.limit()) {
+        return null;
+      }
+      return new Index(length, modified, buffer, Collections.unmodifiableMap(slices));
+    }
+
+    /**
+     * Get the rows of a state as a CSV document, including the header.
+     * @param key The upper case state.
+     * @return The CSV document, or null if the file has no rows for the state.
+     */
+    private String slice(String key) {
+      long[] slice = slices.get(key);
+      if (slice == null) {
+        return null;
+      }
+      byte[] bytes = new byte[(int) slice[1]];
+      ByteBuffer view = buffer.duplicate();
+      view.position((int) slice[0]);
+      view.get(bytes);
+      return new String(bytes, StandardCharsets.UTF_8);
+    }
+  }
+}
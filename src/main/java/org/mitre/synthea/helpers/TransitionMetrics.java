@@ -45,7 +45,6 @@ public class TransitionMetrics {
    * @param modules
    *          The collection of modules to record stats for
    */
-  @SuppressWarnings("unchecked")
   public void recordStats(Person person, long simulationEnd, Collection<Module> modules) {
     for (Module m : modules) {
       if (!m.getClass().equals(Module.class)) {
@@ -53,7 +52,7 @@ public class TransitionMetrics {
         continue;
       }
 
-      List<State> history = (List<State>) person.attributes.get(m.name);
+      List<State> history = person.getModuleHistory(m.name);
       if (history == null) {
         continue;
       }
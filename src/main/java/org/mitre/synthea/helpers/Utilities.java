@@ -8,6 +8,8 @@ import com.google.gson.GsonBuilder;
 import com.google.gson.JsonPrimitive;
 
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Reader;
 import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -349,6 +351,17 @@ public class Utilities {
     return Resources.toString(url, Charsets.UTF_8);
   }
 
+  /**
+   * Open a file in resources for reading, without reading it into memory.
+   * @param filename Path to the file, relative to src/main/resources.
+   * @return A Reader of the contents of the file, which the caller must close.
+   * @throws IOException if any error occurs opening the file
+   */
+  public static final Reader openResource(String filename) throws IOException {
+    URL url = Resources.getResource(filename);
+    return new InputStreamReader(url.openStream(), Charsets.UTF_8);
+  }
+
   /**
    * Get a Gson object, preconfigured to load the GMF modules into classes.
    *
@@ -0,0 +1,157 @@
+package org.mitre.synthea.helpers;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts of utilization by year and metric (for example, the number of encounters a provider
+ * had in 2020), which any number of threads can increment without locking.
+ *
+ * <p>Every metric name is given a dense integer id the first time it is used, and each
+ * (year, metric) pair is packed into a single key for a LongAdder. Incrementing an existing
+ * count never locks, and threads incrementing the same count are striped across the cells
+ * of the LongAdder, so heavily used payers and providers are not a point of contention.
+ * Counts are only summed when they are read, which normally happens once, at export.
+ */
+public class UtilizationTable implements Serializable {
+  private static final long serialVersionUID = 1L;
+
+  /** Dense ids of the metric names, shared by all tables. */
+  private static final Map<String, Integer> METRIC_IDS = new ConcurrentHashMap<String, Integer>();
+  /** Metric names, indexed by id. */
+  private static final List<String> METRIC_NAMES = new ArrayList<String>();
+
+  // key: year and metric id, value: count. Keys are only meaningful within a single JVM, so
+  // the counts are serialized by metric name instead.
+  private transient Map<Long, LongAdder> counts;
+
+  /**
+   * Create an empty table.
+   */
+  public UtilizationTable() {
+    counts = new ConcurrentHashMap<Long, LongAdder>();
+  }
+
+  /**
+   * Get the dense id of a metric, assigning the next id if the metric has not been seen.
+   */
+  private static int metricId(String metric) {
+    Integer id = METRIC_IDS.get(metric);
+    if (id == null) {
+      synchronized (METRIC_NAMES) {
+        id = METRIC_IDS.get(metric);
+        if (id == null) {
+          id = METRIC_NAMES.size();
+          METRIC_NAMES.add(metric);
+          METRIC_IDS.put(metric, id);
+        }
+      }
+    }
+    return id;
+  }
+
+  private static String metricName(int id) {
+    synchronized (METRIC_NAMES) {
+      return METRIC_NAMES.get(id);
+    }
+  }
+
+  private static long key(int year, int metricId) {
+    return ((long) year << 32) | metricId;
+  }
+
+  /**
+   * Add one to the count for the given year and metric.
+   * @param year The year.
+   * @param metric The metric, for example "encounters".
+   */
+  public void increment(int year, String metric) {
+    add(year, metric, 1L);
+  }
+
+  /**
+   * Add to the count for the given year and metric.
+   * @param year The year.
+   * @param metric The metric, for example "encounters".
+   * @param amount The amount to add.
+   */
+  public void add(int year, String metric, long amount) {
+    long key = key(year, metricId(metric));
+    LongAdder count = counts.get(key);
+    if (count == null) {
+      count = counts.computeIfAbsent(key, k -> new LongAdder());
+    }
+    count.add(amount);
+  }
+
+  /**
+   * Get the count for the given year and metric.
+   * @param year The year.
+   * @param metric The metric, for example "encounters".
+   * @return The count, or 0 if the metric was never incremented in that year.
+   */
+  public long get(int year, String metric) {
+    Integer id = METRIC_IDS.get(metric);
+    if (id == null) {
+      return 0L;
+    }
+    LongAdder count = counts.get(key(year, id));
+    return (count == null) ? 0L : count.sum();
+  }
+
+  /**
+   * Get the count for the given metric, over all years.
+   * @param metric The metric, for example "encounters".
+   * @return The total count, or 0 if the metric was never incremented.
+   */
+  public int total(String metric) {
+    Integer id = METRIC_IDS.get(metric);
+    if (id == null) {
+      return 0;
+    }
+    long total = 0L;
+    for (Map.Entry<Long, LongAdder> entry : counts.entrySet()) {
+      if (entry.getKey().intValue() == id) {
+        total += entry.getValue().sum();
+      }
+    }
+    return (int) total;
+  }
+
+  /**
+   * Java Serialization support for the counts.
+   * @param oos stream to write to
+   */
+  private void writeObject(ObjectOutputStream oos) throws IOException {
+    oos.defaultWriteObject();
+    oos.writeInt(counts.size());
+    for (Map.Entry<Long, LongAdder> entry : counts.entrySet()) {
+      long key = entry.getKey();
+      oos.writeInt((int) (key >> 32));
+      oos.writeUTF(metricName((int) key));
+      oos.writeLong(entry.getValue().sum());
+    }
+  }
+
+  /**
+   * Java Serialization support for the counts.
+   * @param ois stream to read from
+   */
+  private void readObject(ObjectInputStream ois) throws ClassNotFoundException, IOException {
+    ois.defaultReadObject();
+    counts = new ConcurrentHashMap<Long, LongAdder>();
+    int size = ois.readInt();
+    for (int i = 0; i < size; i++) {
+      int year = ois.readInt();
+      String metric = ois.readUTF();
+      add(year, metric, ois.readLong());
+    }
+  }
+}
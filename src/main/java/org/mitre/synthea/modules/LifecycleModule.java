@@ -4,7 +4,6 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
-import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
@@ -15,7 +14,6 @@ import org.mitre.synthea.helpers.Attributes.Inventory;
 import org.mitre.synthea.helpers.Config;
 import org.mitre.synthea.helpers.PhysiologyValueGenerator;
 import org.mitre.synthea.helpers.RandomCollection;
-import org.mitre.synthea.helpers.SimpleCSV;
 import org.mitre.synthea.helpers.TrendingValueGenerator;
 import org.mitre.synthea.helpers.Utilities;
 import org.mitre.synthea.input.FixedRecord;
@@ -26,7 +24,6 @@ import org.mitre.synthea.world.concepts.BMI;
 import org.mitre.synthea.world.concepts.BiometricsConfig;
 import org.mitre.synthea.world.concepts.BirthStatistics;
 import org.mitre.synthea.world.concepts.GrowthChart;
-import org.mitre.synthea.world.concepts.GrowthChartEntry;
 import org.mitre.synthea.world.concepts.HealthRecord.Code;
 import org.mitre.synthea.world.concepts.HealthRecord.Encounter;
 import org.mitre.synthea.world.concepts.HealthRecord.EncounterType;
@@ -34,13 +31,14 @@ import org.mitre.synthea.world.concepts.HealthRecord.Procedure;
 import org.mitre.synthea.world.concepts.Names;
 import org.mitre.synthea.world.concepts.PediatricGrowthTrajectory;
 import org.mitre.synthea.world.concepts.VitalSign;
+import org.mitre.synthea.world.concepts.WeightForLengthChart;
 import org.mitre.synthea.world.geography.Location;
 
 public final class LifecycleModule extends Module {
   private static final Map<GrowthChart.ChartType, GrowthChart> growthChart =
       GrowthChart.loadCharts();
-  private static final List<LinkedHashMap<String, String>> weightForLengthChart =
-      loadWeightForLengthChart();
+  private static final WeightForLengthChart weightForLengthChart =
+      WeightForLengthChart.loadChart();
   private static final String AGE = "AGE";
   private static final String AGE_MONTHS = "AGE_MONTHS";
   public static final String QUIT_SMOKING_PROBABILITY = "quit smoking probability";
@@ -58,18 +56,6 @@ public final class LifecycleModule extends Module {
     this.name = "Lifecycle";
   }
 
-  private static List<LinkedHashMap<String, String>> loadWeightForLengthChart() {
-    String filename = "cdc_wtleninf.csv";
-    try {
-      String data = Utilities.readResource(filename);
-      return SimpleCSV.parse(data);
-    } catch (Exception e) {
-      System.err.println("ERROR: unable to load csv: " + filename);
-      e.printStackTrace();
-      throw new ExceptionInInitializerError(e);
-    }
-  }
-
   private static RandomCollection<String> loadSexualOrientationData() {
     RandomCollection<String> soDistribution = new RandomCollection<String>();
     double[] soPercentages = BiometricsConfig.doubles("lifecycle.sexual_orientation");
@@ -389,14 +375,14 @@ public final class LifecycleModule extends Module {
   private static double childHeightGrowth(Person person, long time) {
     String gender = (String) person.attributes.get(Person.GENDER);
     int ageInMonths = person.ageInMonths(time);
-    return lookupGrowthChart("height", gender, ageInMonths,
+    return growthChart.get(GrowthChart.ChartType.HEIGHT).lookUp(ageInMonths, gender,
         person.getVitalSign(VitalSign.HEIGHT_PERCENTILE, time));
   }
 
   private static double childHeadCircumference(Person person, long time) {
     String gender = (String) person.attributes.get(Person.GENDER);
     int ageInMonths = person.ageInMonths(time);
-    return lookupGrowthChart("head", gender, ageInMonths,
+    return growthChart.get(GrowthChart.ChartType.HEAD).lookUp(ageInMonths, gender,
         person.getVitalSign(VitalSign.HEIGHT_PERCENTILE, time));
   }
 
@@ -410,7 +396,7 @@ public final class LifecycleModule extends Module {
     int ageInMonths = person.ageInMonths(time);
     if (age < 3 && pgt.beforeInitialSample(time)) {
       // follow growth charts
-      weight = lookupGrowthChart("weight", gender, ageInMonths,
+      weight = growthChart.get(GrowthChart.ChartType.WEIGHT).lookUp(ageInMonths, gender,
           person.getVitalSign(VitalSign.WEIGHT_PERCENTILE, time));
     } else if (age < 20) {
       double currentBMI = pgt.currentBMI(person, time);
@@ -491,23 +477,12 @@ public final class LifecycleModule extends Module {
       double height = person.getVitalSign(VitalSign.HEIGHT, time);
       double weight = person.getVitalSign(VitalSign.WEIGHT, time);
       String gender = (String) person.attributes.get(Person.GENDER);
-      LinkedHashMap<String, String> entry = null;
-      for (LinkedHashMap<String, String> row : weightForLengthChart) {
-        if (row.get("Sex").equals(gender)
-            && height < Double.parseDouble(row.get("Length"))) {
-          entry = row;
-          break;
-        }
-      }
-      if (entry == null) {
+      double percentile = weightForLengthChart.percentileFor(gender, height, weight);
+      if (Double.isNaN(percentile)) {
+        // longer than the chart
         person.attributes.put(Person.CURRENT_WEIGHT_LENGTH_PERCENTILE, 99.0);
       } else {
-        double l = Double.parseDouble(entry.get("L"));
-        double m = Double.parseDouble(entry.get("M"));
-        double s = Double.parseDouble(entry.get("S"));
-        double z = new GrowthChartEntry(l, m, s).zscoreForValue(weight);
-        double percentile = GrowthChart.zscoreToPercentile(z) * 100.0;
-        person.attributes.put(Person.CURRENT_WEIGHT_LENGTH_PERCENTILE, percentile);
+        person.attributes.put(Person.CURRENT_WEIGHT_LENGTH_PERCENTILE, percentile * 100.0);
       }
     }
   }
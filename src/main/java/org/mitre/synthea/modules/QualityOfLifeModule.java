@@ -1,6 +1,9 @@
 package org.mitre.synthea.modules;
 
+import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
@@ -14,6 +17,7 @@ import org.mitre.synthea.helpers.Attributes.Inventory;
 import org.mitre.synthea.helpers.SimpleCSV;
 import org.mitre.synthea.helpers.Utilities;
 import org.mitre.synthea.world.agents.Person;
+import org.mitre.synthea.world.concepts.HealthRecord;
 import org.mitre.synthea.world.concepts.HealthRecord.Encounter;
 import org.mitre.synthea.world.concepts.HealthRecord.Entry;
 
@@ -32,6 +36,9 @@ public class QualityOfLifeModule extends Module {
   public static final String DALY = "DALY";
   public static final String QOLS = "QOLS";
 
+  /** Attribute holding the Accumulator of years already calculated for a person. */
+  private static final String ACCUMULATOR = "quality-of-life-accumulator";
+
   public QualityOfLifeModule() {
     this.name = "Quality of Life";
   }
@@ -110,10 +117,8 @@ public class QualityOfLifeModule extends Module {
     // of case)
     // from http://www.who.int/healthinfo/global_burden_disease/metrics_daly/en/
     double yll = 0.0;
-    double yld = 0.0;
 
     int age = person.ageInYears(stop);
-    long birthdate = (long) person.attributes.get(Person.BIRTHDATE);
 
     if (!person.alive(stop)) {
       // life expectancy equation derived from IHME GBD 2015 Reference Life Table
@@ -124,74 +129,15 @@ public class QualityOfLifeModule extends Module {
       yll = l;
     }
 
-    // Get counts of covered healthcare.
-    List<Entry> allConditions = new ArrayList<Entry>();
-    int coveredMedicationCount = 0;
-    int coveredProcedureCount = 0;
-    int coveredImmunizationCount = 0;
-    int coveredEncounterCount = 0;
-    for (Encounter encounter : person.defaultRecord.encounters) {
-      for (Entry condition : encounter.conditions) {
-        allConditions.add(condition);
-      }
-      coveredMedicationCount += encounter.medications.size();
-      coveredProcedureCount += encounter.procedures.size();
-      coveredImmunizationCount += encounter.immunizations.size();
-      coveredEncounterCount++;
-    }
-    int coveredEntries = coveredEncounterCount + coveredMedicationCount
-        + coveredProcedureCount + coveredImmunizationCount;
-
-    // Get counts of uncovered healthcare.
-    int uncoveredEntries;
-    if (person.lossOfCareEnabled) {
-      List<Entry> allLossOfCareConditions = new ArrayList<Entry>();
-      int uncoveredMedicationCount = 0;
-      int uncoveredProcedureCount = 0;
-      int uncoveredImmunizationCount = 0;
-      int uncoveredEncounterCount = 0;
-      for (Encounter encounter : person.lossOfCareRecord.encounters) {
-        for (Entry condition : encounter.conditions) {
-          allLossOfCareConditions.add(condition);
-        }
-        uncoveredMedicationCount += encounter.medications.size();
-        uncoveredProcedureCount += encounter.procedures.size();
-        uncoveredImmunizationCount += encounter.immunizations.size();
-        uncoveredEncounterCount++;
-      }
-      uncoveredEntries = uncoveredEncounterCount + uncoveredMedicationCount
-          + uncoveredProcedureCount + uncoveredImmunizationCount;
-      allConditions.addAll(allLossOfCareConditions);
-    } else {
-      uncoveredEntries = 0;
-    }
-
-    // Determine the percentage of covered care.
-    // NOTE: This percentageOfCoveredCare is based on entire life, not just current year.
-    if (coveredEntries < 1) {
-      coveredEntries = 1;
-    }
-    double percentageOfCoveredCare = coveredEntries / (coveredEntries + uncoveredEntries);
-
-    double disabilityWeight = 0.0;
-    // calculate yld with yearly timestep
-    for (int i = 0; i < age + 1; i++) {
-      long yearStart = birthdate + TimeUnit.DAYS.toMillis((long) (365.25 * i));
-      long yearEnd = birthdate + (TimeUnit.DAYS.toMillis((long) (365.25 * (i + 1) - 1)));
-      List<Entry> conditionsInYear = conditionsInYear(allConditions, yearStart, yearEnd);
-
-      disabilityWeight = 0.0;
-
-      for (Entry condition : conditionsInYear) {
-        // Get the disability weight for this condition based on the percentageOfCoveredCare.
-        disabilityWeight +=
-            (double) disabilityWeights.get(condition.codes.get(0).code)
-            .getWeight(percentageOfCoveredCare);
-      }
-
-      disabilityWeight = Math.min(1.0, weight(disabilityWeight, i + 1));
-      yld += disabilityWeight;
+    // calculate yld with yearly timestep, reusing the years calculated by earlier calls
+    Accumulator accumulator = (Accumulator) person.attributes.get(ACCUMULATOR);
+    if (accumulator == null) {
+      accumulator = new Accumulator();
+      person.attributes.put(ACCUMULATOR, accumulator);
     }
+    accumulator.update(person, age);
+    double yld = accumulator.getYearsLostToDisability(age);
+    double disabilityWeight = accumulator.getDisabilityWeight(age);
 
     double daly = yll + yld;
     double qaly = age - yld;
@@ -221,6 +167,16 @@ public class QualityOfLifeModule extends Module {
     return conditionsInYear;
   }
 
+  /**
+   * Get the disability weight of a condition.
+   * @param code The code of the condition, which must have a disability weight.
+   * @param percentageOfCoveredCare The percentage of the person's care that was covered.
+   * @return The unadjusted disability weight.
+   */
+  protected static double disabilityWeight(String code, double percentageOfCoveredCare) {
+    return disabilityWeights.get(code).getWeight(percentageOfCoveredCare);
+  }
+
   /**
    * Calculates the age-adjusted disability weight for a single year.
    * @param disabilityWeight The unadjusted disability weight.
@@ -250,6 +206,307 @@ public class QualityOfLifeModule extends Module {
     Attributes.inventory(attributes, m, Person.BIRTHDATE, true, false, null);
     Attributes.inventory(attributes, m, "most-recent-daly", false, true, "Numeric");
     Attributes.inventory(attributes, m, "most-recent-qaly", false, true, "Numeric");
+    Attributes.inventory(attributes, m, ACCUMULATOR, true, true, null);
+  }
+
+  /**
+   * Running quality of life state for a single person. The disability weight of each year of
+   * life only depends on the conditions active at the start of that year, so once a year has
+   * been calculated it is kept, and each call only has to calculate the years since the last
+   * call. The conditions active at the start of the latest calculated year are kept as well,
+   * and are updated as conditions start and stop.
+   *
+   * <p>Every call checks that the conditions seen so far are all still in the record (they are
+   * removed when the record is filtered for export), that they have not changed in a way that
+   * would change an earlier year (for example a condition that was ended in the past), and that
+   * the percentage of covered care has not changed. If they have, everything is calculated again,
+   * so the results are always the same as calculating every year from scratch.
+   */
+  private static class Accumulator implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private Long birthdate;
+    private double percentageOfCoveredCare;
+    /** The default record, followed by the loss of care record if it is enabled. */
+    private final List<Source> sources = new ArrayList<Source>();
+    /** The number of years calculated. */
+    private int years;
+    /** The start of the latest calculated year. */
+    private long cursor;
+    /** The age-adjusted disability weight of each calculated year. */
+    private double[] weights = new double[128];
+    /** The years lost due to disability, up to and including each calculated year. */
+    private double[] totals = new double[128];
+
+    /**
+     * Calculate any years up to and including the given age that were not already calculated.
+     * @param person The person.
+     * @param age The person's current age in years.
+     */
+    private void update(Person person, int age) {
+      long birthdate = (long) person.attributes.get(Person.BIRTHDATE);
+      List<HealthRecord> records = new ArrayList<HealthRecord>();
+      records.add(person.defaultRecord);
+
+      // Get counts of uncovered healthcare.
+      // NOTE: This percentageOfCoveredCare is based on entire life, not just current year.
+      // Every uncovered encounter counts as at least one entry, so with integer division the
+      // percentage is 1 when there are no uncovered encounters and 0 otherwise.
+      double percentageOfCoveredCare = 1;
+      if (person.lossOfCareEnabled) {
+        records.add(person.lossOfCareRecord);
+        if (!person.lossOfCareRecord.encounters.isEmpty()) {
+          percentageOfCoveredCare = 0;
+        }
+      }
+
+      if (!isCurrent(birthdate, percentageOfCoveredCare, records)) {
+        reset(birthdate, percentageOfCoveredCare, records);
+      }
+      if (!scan()) {
+        reset(birthdate, percentageOfCoveredCare, records);
+        scan();
+      }
+
+      if (age >= weights.length) {
+        weights = Arrays.copyOf(weights, Math.max(age + 1, weights.length * 2));
+        totals = Arrays.copyOf(totals, weights.length);
+      }
+      for (int i = years; i <= age; i++) {
+        long yearStart = birthdate + TimeUnit.DAYS.toMillis((long) (365.25 * i));
+        double disabilityWeight = 0.0;
+        for (Source source : sources) {
+          disabilityWeight = source.advance(yearStart, disabilityWeight);
+        }
+        disabilityWeight = Math.min(1.0, weight(disabilityWeight, i + 1));
+        weights[i] = disabilityWeight;
+        totals[i] = ((i == 0) ? 0.0 : totals[i - 1]) + disabilityWeight;
+        cursor = yearStart;
+        years = i + 1;
+      }
+    }
+
+    private boolean isCurrent(long birthdate, double percentageOfCoveredCare,
+        List<HealthRecord> records) {
+      if (this.birthdate == null || this.birthdate != birthdate
+          || this.percentageOfCoveredCare != percentageOfCoveredCare
+          || sources.size() != records.size()) {
+        return false;
+      }
+      for (int i = 0; i < sources.size(); i++) {
+        Source source = sources.get(i);
+        if (source.record != records.get(i) || !source.unchanged()
+            || !source.refresh(cursor)) {
+          return false;
+        }
+      }
+      return true;
+    }
+
+    private void reset(long birthdate, double percentageOfCoveredCare,
+        List<HealthRecord> records) {
+      this.birthdate = birthdate;
+      this.percentageOfCoveredCare = percentageOfCoveredCare;
+      this.sources.clear();
+      for (HealthRecord record : records) {
+        sources.add(new Source(record, percentageOfCoveredCare));
+      }
+      this.years = 0;
+      this.cursor = Long.MIN_VALUE;
+    }
+
+    /**
+     * Pick up any conditions added to the records since the last call.
+     * @return false if a new condition started before the latest calculated year.
+     */
+    private boolean scan() {
+      boolean current = true;
+      for (Source source : sources) {
+        current &= source.scan(cursor);
+      }
+      return current;
+    }
+
+    private double getYearsLostToDisability(int age) {
+      return (age < 0) ? 0.0 : totals[age];
+    }
+
+    private double getDisabilityWeight(int age) {
+      return (age < 0) ? 0.0 : weights[age];
+    }
+  }
+
+  /**
+   * The conditions of a single health record, in the order they appear in the record, split
+   * into those that have not yet started, those that are active, and those that have ended, as
+   * of the latest calculated year.
+   */
+  private static class Source implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final HealthRecord record;
+    private final double percentageOfCoveredCare;
+    /** The index of the latest encounter scanned for conditions. */
+    private int encounter = -1;
+    /** The number of conditions scanned in the latest encounter. */
+    private int conditions;
+    /** The latest encounter scanned, to tell whether encounters were removed before it. */
+    private Encounter scanned;
+    private final List<TrackedCondition> tracked = new ArrayList<TrackedCondition>();
+    private final BitSet pending = new BitSet();
+    private final BitSet active = new BitSet();
+
+    private Source(HealthRecord record, double percentageOfCoveredCare) {
+      this.record = record;
+      this.percentageOfCoveredCare = percentageOfCoveredCare;
+    }
+
+    /**
+     * Add any new conditions to the pending conditions. New conditions are only ever added
+     * to the latest encounter (see HealthRecord.currentEncounter), so only the latest
+     * encounter and any newer encounters need to be scanned.
+     * @param cursor The start of the latest calculated year.
+     * @return false if a new condition started at or before the cursor.
+     */
+    private boolean scan(long cursor) {
+      boolean current = true;
+      List<Encounter> encounters = record.encounters;
+      for (int e = Math.max(encounter, 0); e < encounters.size(); e++) {
+        List<Entry> entries = encounters.get(e).conditions;
+        for (int c = (e == encounter) ? conditions : 0; c < entries.size(); c++) {
+          TrackedCondition condition = new TrackedCondition(entries.get(c));
+          condition.refresh(percentageOfCoveredCare);
+          current &= condition.start > cursor;
+          pending.set(tracked.size());
+          tracked.add(condition);
+        }
+        encounter = e;
+        conditions = entries.size();
+        scanned = encounters.get(e);
+      }
+      return current;
+    }
+
+    /**
+     * Check whether the encounters and conditions scanned so far are still in the record.
+     * Filtering a record for export removes encounters and conditions in place.
+     * @return false if any of them were removed.
+     */
+    private boolean unchanged() {
+      if (encounter < 0) {
+        return true;
+      }
+      List<Encounter> encounters = record.encounters;
+      if (encounter >= encounters.size() || encounters.get(encounter) != scanned
+          || scanned.conditions.size() < conditions) {
+        return false;
+      }
+      int count = conditions;
+      for (int e = 0; e < encounter; e++) {
+        count += encounters.get(e).conditions.size();
+      }
+      if (count != tracked.size()) {
+        return false;
+      }
+      return conditions == 0
+          || scanned.conditions.get(conditions - 1) == tracked.get(tracked.size() - 1).entry;
+    }
+
+    /**
+     * Check whether the conditions seen so far have changed since the last call.
+     * @param cursor The start of the latest calculated year.
+     * @return false if a change might change a year that was already calculated.
+     */
+    private boolean refresh(long cursor) {
+      for (TrackedCondition condition : tracked) {
+        Entry entry = condition.entry;
+        String code = entry.codes.get(0).code;
+        if (entry.start == condition.start && entry.stop == condition.stop
+            && code.equals(condition.code)) {
+          continue;
+        }
+        if (condition.start <= cursor) {
+          // counted in the calculated years, so only a stop after the cursor is allowed
+          if (entry.start != condition.start || !code.equals(condition.code)
+              || condition.ended(cursor) || (entry.stop != 0 && entry.stop <= cursor)) {
+            return false;
+          }
+        } else if (entry.start <= cursor) {
+          return false;
+        }
+        condition.refresh(percentageOfCoveredCare);
+      }
+      return true;
+    }
+
+    /**
+     * Move the active conditions forward to the start of the next year, and add their
+     * disability weights.
+     * @param yearStart The start of the next year.
+     * @param disabilityWeight The sum of the disability weights of earlier sources.
+     * @return the sum, including the weights of the conditions active in this source.
+     */
+    private double advance(long yearStart, double disabilityWeight) {
+      for (int i = active.nextSetBit(0); i >= 0; i = active.nextSetBit(i + 1)) {
+        if (tracked.get(i).ended(yearStart)) {
+          active.clear(i);
+        }
+      }
+      for (int i = pending.nextSetBit(0); i >= 0; i = pending.nextSetBit(i + 1)) {
+        TrackedCondition condition = tracked.get(i);
+        if (condition.start <= yearStart) {
+          pending.clear(i);
+          if (!condition.ended(yearStart)) {
+            active.set(i);
+          }
+        }
+      }
+      // add the weights in record order, so the sum is exactly the same as conditionsInYear
+      for (int i = active.nextSetBit(0); i >= 0; i = active.nextSetBit(i + 1)) {
+        TrackedCondition condition = tracked.get(i);
+        if (condition.weighted) {
+          disabilityWeight += condition.weight;
+        }
+      }
+      return disabilityWeight;
+    }
+  }
+
+  /**
+   * A condition, with the values it had when it was last checked.
+   */
+  private static class TrackedCondition implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final Entry entry;
+    private long start;
+    private long stop;
+    private String code;
+    /** Whether the condition has a disability weight. */
+    private boolean weighted;
+    private double weight;
+
+    private TrackedCondition(Entry entry) {
+      this.entry = entry;
+    }
+
+    private void refresh(double percentageOfCoveredCare) {
+      start = entry.start;
+      stop = entry.stop;
+      code = entry.codes.get(0).code;
+      DisabilityWeight disabilityWeight = disabilityWeights.get(code);
+      weighted = (disabilityWeight != null);
+      // Get the disability weight for this condition based on the percentageOfCoveredCare.
+      weight = weighted ? disabilityWeight.getWeight(percentageOfCoveredCare) : 0.0;
+    }
+
+    /**
+     * Whether the condition had ended by the given time. The stop is 0 for conditions that
+     * have not yet ended.
+     */
+    private boolean ended(long time) {
+      return stop != 0 && stop <= time;
+    }
   }
 
   private static class DisabilityWeight {
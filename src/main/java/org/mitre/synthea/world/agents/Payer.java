@@ -1,12 +1,8 @@
 package org.mitre.synthea.world.agents;
 
-import com.google.common.collect.HashBasedTable;
-import com.google.common.collect.Table;
 import com.google.gson.internal.LinkedTreeMap;
 
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -18,12 +14,15 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.DoubleAdder;
 import java.util.stream.Collectors;
 
 import org.mitre.synthea.helpers.Config;
 import org.mitre.synthea.helpers.SimpleCSV;
 import org.mitre.synthea.helpers.Utilities;
+import org.mitre.synthea.helpers.UtilizationTable;
 import org.mitre.synthea.modules.HealthInsuranceModule;
 import org.mitre.synthea.world.agents.behaviors.IPayerFinder;
 import org.mitre.synthea.world.agents.behaviors.PayerFinderBestRates;
@@ -70,64 +69,15 @@ public class Payer implements Serializable {
   private Set<String> servicesCovered;
 
   /* Payer Statistics. */
-  private double revenue;
-  private double costsCovered;
-  private double costsUncovered;
-  private double totalQOLS; // Total customer quality of life scores.
+  // Updated concurrently by every thread, so these are only summed when they are read.
+  private final DoubleAdder revenue;
+  private final DoubleAdder costsCovered;
+  private final DoubleAdder costsUncovered;
+  private final DoubleAdder totalQOLS; // Total customer quality of life scores.
   // Unique utilizers of Payer, by Person ID, with number of utilizations per Person.
   private final Map<String, AtomicInteger> customerUtilization;
   // row: year, column: type, value: count.
-  private transient Table<Integer, String, AtomicInteger> entryUtilization;
-  
-  /**
-   * Simple bean used to add Java Serialization support to 
-   * com.google.common.collect.Table&lt;Integer, String, AtomicInteger&gt; which doesn't natively
-   * support Serialization.
-   */
-  static class UtilizationBean implements Serializable {
-    public Integer year;
-    public String type;
-    public AtomicInteger count;
-    
-    public UtilizationBean(Integer year, String type, AtomicInteger count) {
-      this.year = year;
-      this.type = type;
-      this.count = count;
-    }
-  }
-  
-  /**
-   * Java Serialization support for the entryUtilization field.
-   * @param oos stream to write to
-   */
-  private void writeObject(ObjectOutputStream oos) throws IOException {
-    oos.defaultWriteObject();
-    ArrayList<UtilizationBean> entryUtilizationElements = null;
-    if (entryUtilization != null) {
-      entryUtilizationElements = new ArrayList<>(entryUtilization.size());
-      for (Table.Cell<Integer, String, AtomicInteger> cell: entryUtilization.cellSet()) {
-        entryUtilizationElements.add(
-                new UtilizationBean(cell.getRowKey(), cell.getColumnKey(), cell.getValue()));
-      }
-    }
-    oos.writeObject(entryUtilizationElements);
-  }
-
-  /**
-   * Java Serialization support for the entryUtilization field.
-   * @param ois stream to read from
-   */
-  private void readObject(ObjectInputStream ois) throws ClassNotFoundException, IOException {
-    ois.defaultReadObject();
-    ArrayList<UtilizationBean> entryUtilizationElements = 
-            (ArrayList<UtilizationBean>)ois.readObject();
-    if (entryUtilizationElements != null) {
-      this.entryUtilization = HashBasedTable.create();
-      for (UtilizationBean u: entryUtilizationElements) {
-        this.entryUtilization.put(u.year, u.type, u.count);
-      }
-    }
-  }
+  private final UtilizationTable entryUtilization;
 
   /**
    * Payer Constructor.
@@ -139,12 +89,12 @@ public class Payer implements Serializable {
     this.name = name;
     this.uuid = UUID.nameUUIDFromBytes((id + this.name).getBytes()).toString();
     this.attributes = new LinkedTreeMap<>();
-    this.entryUtilization = HashBasedTable.create();
-    this.customerUtilization = new HashMap<String, AtomicInteger>();
-    this.costsCovered = 0.0;
-    this.costsUncovered = 0.0;
-    this.revenue = 0.0;
-    this.totalQOLS = 0.0;
+    this.entryUtilization = new UtilizationTable();
+    this.customerUtilization = new ConcurrentHashMap<String, AtomicInteger>();
+    this.costsCovered = new DoubleAdder();
+    this.costsUncovered = new DoubleAdder();
+    this.revenue = new DoubleAdder();
+    this.totalQOLS = new DoubleAdder();
   }
 
   /**
@@ -483,7 +433,7 @@ public class Payer implements Serializable {
    * @return the monthly premium amount.
    */
   public double payMonthlyPremium() {
-    this.revenue += this.monthlyPremium;
+    this.revenue.add(this.monthlyPremium);
     return this.monthlyPremium;
   }
 
@@ -492,11 +442,9 @@ public class Payer implements Serializable {
    * 
    * @param person the person to add to the payer.
    */
-  public synchronized void incrementCustomers(Person person) {
-    if (!customerUtilization.containsKey(person.attributes.get(Person.ID))) {
-      customerUtilization.put((String) person.attributes.get(Person.ID), new AtomicInteger(0));
-    }
-    customerUtilization.get(person.attributes.get(Person.ID)).incrementAndGet();
+  public void incrementCustomers(Person person) {
+    customerUtilization.computeIfAbsent((String) person.attributes.get(Person.ID),
+        id -> new AtomicInteger(0)).incrementAndGet();
   }
 
   /**
@@ -557,11 +505,8 @@ public class Payer implements Serializable {
    * @param year the year of the encounter to add
    * @param key the key (the encounter type and whether it was covered/uncovered)
    */
-  private synchronized void incrementEntries(Integer year, String key) {
-    if (!entryUtilization.contains(year, key)) {
-      entryUtilization.put(year, key, new AtomicInteger(0));
-    }
-    entryUtilization.get(year, key).incrementAndGet();
+  private void incrementEntries(int year, String key) {
+    entryUtilization.increment(year, key);
   }
 
   /**
@@ -570,7 +515,7 @@ public class Payer implements Serializable {
    * @param costToPayer the cost of the current encounter, after the patient's copay.
    */
   public void addCoveredCost(double costToPayer) {
-    this.costsCovered += costToPayer;
+    this.costsCovered.add(costToPayer);
   }
 
   /**
@@ -579,7 +524,7 @@ public class Payer implements Serializable {
    * @param costToPatient the costs that the payer did not cover.
    */
   public void addUncoveredCost(double costToPatient) {
-    this.costsUncovered += costToPatient;
+    this.costsUncovered.add(costToPatient);
   }
 
   /**
@@ -590,7 +535,7 @@ public class Payer implements Serializable {
    * @param qols the Quality of Life Score to be added.
    */
   public void addQols(double qols) {
-    this.totalQOLS += qols;
+    this.totalQOLS.add(qols);
   }
 
   /**
@@ -598,7 +543,7 @@ public class Payer implements Serializable {
    * Consists of monthly premium payments.
    */
   public double getRevenue() {
-    return this.revenue;
+    return this.revenue.sum();
   }
 
   /**
@@ -626,78 +571,70 @@ public class Payer implements Serializable {
    * Returns the number of encounters this payer paid for.
    */
   public int getEncountersCoveredCount() {
-    return entryUtilization.column("covered-"
-        + HealthRecord.ENCOUNTERS).values().stream().mapToInt(ai -> ai.get()).sum();
+    return entryUtilization.total("covered-" + HealthRecord.ENCOUNTERS);
   }
 
   /**
    * Returns the number of encounters this payer did not cover for their customers.
    */
   public int getEncountersUncoveredCount() {
-    return entryUtilization.column("uncovered-"
-        + HealthRecord.ENCOUNTERS).values().stream().mapToInt(ai -> ai.get()).sum();
+    return entryUtilization.total("uncovered-" + HealthRecord.ENCOUNTERS);
   }
 
   /**
    * Returns the number of medications this payer paid for.
    */
   public int getMedicationsCoveredCount() {
-    return entryUtilization.column("covered-"
-        + HealthRecord.MEDICATIONS).values().stream().mapToInt(ai -> ai.get()).sum();
+    return entryUtilization.total("covered-" + HealthRecord.MEDICATIONS);
   }
 
   /**
    * Returns the number of medications this payer did not cover for their customers.
    */
   public int getMedicationsUncoveredCount() {
-    return entryUtilization.column("uncovered-"
-        + HealthRecord.MEDICATIONS).values().stream().mapToInt(ai -> ai.get()).sum();
+    return entryUtilization.total("uncovered-" + HealthRecord.MEDICATIONS);
   }
 
   /**
    * Returns the number of procedures this payer paid for.
    */
   public int getProceduresCoveredCount() {
-    return entryUtilization.column("covered-"
-        + HealthRecord.PROCEDURES).values().stream().mapToInt(ai -> ai.get()).sum();
+    return entryUtilization.total("covered-" + HealthRecord.PROCEDURES);
   }
 
   /**
    * Returns the number of procedures this payer did not cover for their customers.
    */
   public int getProceduresUncoveredCount() {
-    return entryUtilization.column("uncovered-"
-        + HealthRecord.PROCEDURES).values().stream().mapToInt(ai -> ai.get()).sum();
+    return entryUtilization.total("uncovered-" + HealthRecord.PROCEDURES);
   }
 
   /**
    * Returns the number of immunizations this payer paid for.
    */
   public int getImmunizationsCoveredCount() {
-    return entryUtilization.column("covered-"
-        + HealthRecord.IMMUNIZATIONS).values().stream().mapToInt(ai -> ai.get()).sum();
+    return entryUtilization.total("covered-" + HealthRecord.IMMUNIZATIONS);
   }
 
   /**
    * Returns the number of immunizations this payer did not cover for their customers.
    */
   public int getImmunizationsUncoveredCount() {
-    return entryUtilization.column("uncovered-"
-        + HealthRecord.IMMUNIZATIONS).values().stream().mapToInt(ai -> ai.get()).sum();
+    return entryUtilization.total("uncovered-" + HealthRecord.IMMUNIZATIONS);
   }
 
   /**
    * Returns the amount of money the payer paid to providers.
    */
   public double getAmountCovered() {
-    return this.costsCovered;
+    return this.costsCovered.sum();
   }
 
   /**
    * Returns the amount of money the payer did not cover.
    */
   public double getAmountUncovered() {
-    return this.costsUncovered;
+    return this.costsUncovered.sum();
   }
 
   /**
@@ -705,7 +642,7 @@ public class Payer implements Serializable {
    */
   public double getQolsAverage() {
     int numYears = this.getNumYearsCovered();
-    return this.totalQOLS / numYears;
+    return this.totalQOLS.sum() / numYears;
   }
 
   @Override
@@ -725,14 +662,14 @@ public class Payer implements Serializable {
     hash = 53 * hash + Objects.hashCode(this.ownership);
     hash = 53 * hash + Objects.hashCode(this.statesCovered);
     hash = 53 * hash + Objects.hashCode(this.servicesCovered);
-    hash = 53 * hash + (int) (Double.doubleToLongBits(this.revenue)
-            ^ (Double.doubleToLongBits(this.revenue) >>> 32));
-    hash = 53 * hash + (int) (Double.doubleToLongBits(this.costsCovered)
-            ^ (Double.doubleToLongBits(this.costsCovered) >>> 32));
-    hash = 53 * hash + (int) (Double.doubleToLongBits(this.costsUncovered)
-            ^ (Double.doubleToLongBits(this.costsUncovered) >>> 32));
-    hash = 53 * hash + (int) (Double.doubleToLongBits(this.totalQOLS)
-            ^ (Double.doubleToLongBits(this.totalQOLS) >>> 32));
+    hash = 53 * hash + (int) (Double.doubleToLongBits(this.revenue.sum())
+            ^ (Double.doubleToLongBits(this.revenue.sum()) >>> 32));
+    hash = 53 * hash + (int) (Double.doubleToLongBits(this.costsCovered.sum())
+            ^ (Double.doubleToLongBits(this.costsCovered.sum()) >>> 32));
+    hash = 53 * hash + (int) (Double.doubleToLongBits(this.costsUncovered.sum())
+            ^ (Double.doubleToLongBits(this.costsUncovered.sum()) >>> 32));
+    hash = 53 * hash + (int) (Double.doubleToLongBits(this.totalQOLS.sum())
+            ^ (Double.doubleToLongBits(this.totalQOLS.sum()) >>> 32));
     return hash;
   }
 
@@ -764,20 +701,20 @@ public class Payer implements Serializable {
             != Double.doubleToLongBits(other.monthlyPremium)) {
       return false;
     }
-    if (Double.doubleToLongBits(this.revenue)
-            != Double.doubleToLongBits(other.revenue)) {
+    if (Double.doubleToLongBits(this.revenue.sum())
+            != Double.doubleToLongBits(other.revenue.sum())) {
       return false;
     }
-    if (Double.doubleToLongBits(this.costsCovered)
-            != Double.doubleToLongBits(other.costsCovered)) {
+    if (Double.doubleToLongBits(this.costsCovered.sum())
+            != Double.doubleToLongBits(other.costsCovered.sum())) {
       return false;
     }
-    if (Double.doubleToLongBits(this.costsUncovered)
-            != Double.doubleToLongBits(other.costsUncovered)) {
+    if (Double.doubleToLongBits(this.costsUncovered.sum())
+            != Double.doubleToLongBits(other.costsUncovered.sum())) {
       return false;
     }
-    if (Double.doubleToLongBits(this.totalQOLS)
-            != Double.doubleToLongBits(other.totalQOLS)) {
+    if (Double.doubleToLongBits(this.totalQOLS.sum())
+            != Double.doubleToLongBits(other.totalQOLS.sum())) {
       return false;
     }
     if (!Objects.equals(this.name, other.name)) {
@@ -21,7 +21,10 @@ import java.util.concurrent.ConcurrentHashMap;
 import org.mitre.synthea.engine.ExpressedConditionRecord;
 import org.mitre.synthea.engine.ExpressedSymptom;
 import org.mitre.synthea.engine.Module;
+import org.mitre.synthea.engine.ModuleHistory;
 import org.mitre.synthea.engine.State;
+import org.mitre.synthea.helpers.ChangeTracker;
+import org.mitre.synthea.helpers.ChangeTrackingMap;
 import org.mitre.synthea.helpers.Config;
 import org.mitre.synthea.helpers.ConstantValueGenerator;
 import org.mitre.synthea.helpers.RandomNumberGenerator;
@@ -112,6 +115,8 @@ public class Person implements Serializable, RandomNumberGenerator, QuadTreeElem
   /** Data structure for storing symptoms faced by a person.
    * Adding the Long keyset to keep track of the time a symptom is set. */
   Map<String, ExpressedSymptom> symptoms;
+  /** Sum of the current severities of all symptoms, updated whenever a symptom changes. */
+  private int symptomTotal;
   /** Data structure for storing onset conditions (init_time, end_time).*/
   public ExpressedConditionRecord onsetConditionRecord;
   public Map<String, HealthRecord.Medication> chronicMedications;
@@ -150,7 +155,7 @@ public class Person implements Serializable, RandomNumberGenerator, QuadTreeElem
   public Person(long seed) {
     this.seed = seed;
     random = new Random(seed);
-    attributes = new ConcurrentHashMap<String, Object>();
+    attributes = new ChangeTrackingMap<String, Object>();
     vitalSigns = new ConcurrentHashMap<VitalSign, ValueGenerator>();
     symptoms = new ConcurrentHashMap<String, ExpressedSymptom>();
     /* initialized the onsetConditions field */
@@ -289,6 +294,43 @@ public class Person implements Serializable, RandomNumberGenerator, QuadTreeElem
     return years;
   }
 
+  /**
+   * Get a time after the given time at which the person's age in whole years or months may
+   * next change. The returned time is never later than the actual change, but it may be
+   * earlier, for example for people born at the end of a month.
+   *
+   * @param time The current time.
+   * @param months Whether the age is in months rather than years.
+   * @return a time after the given time.
+   */
+  public long nextAgeChange(long time, boolean months) {
+    if (!attributes.containsKey(BIRTHDATE)) {
+      return time + 1;
+    }
+    LocalDate birthdate = Instant.ofEpochMilli((long) attributes.get(BIRTHDATE))
+        .atZone(timeZone).toLocalDate();
+    Period age = age(time);
+    LocalDate next;
+    if (months) {
+      next = birthdate.plusMonths(Math.max(0, age.toTotalMonths()) + 1);
+    } else {
+      next = birthdate.plusYears(Math.max(0, age.getYears()) + 1);
+    }
+    long change = next.atStartOfDay(timeZone).toInstant().toEpochMilli();
+    return Math.max(change, time + 1);
+  }
+
+  /**
+   * Get the record of which attributes have been changed, or null if the attributes are not
+   * being tracked.
+   */
+  public ChangeTracker getAttributeChanges() {
+    if (attributes instanceof ChangeTrackingMap) {
+      return ((ChangeTrackingMap<String, Object>) attributes).getChanges();
+    }
+    return null;
+  }
+
   /**
    * Returns whether a person is alive at the given time.
    */
@@ -336,7 +378,9 @@ public class Person implements Serializable, RandomNumberGenerator, QuadTreeElem
       symptoms.put(type, new ExpressedSymptom(type));
     }
     ExpressedSymptom expressedSymptom = symptoms.get(type);
+    int previous = expressedSymptom.getSymptom();
     expressedSymptom.onSet(module, cause, time, value, addressed);
+    symptomTotal += expressedSymptom.getSymptom() - previous;
   }
   
   /**
@@ -356,12 +400,11 @@ public class Person implements Serializable, RandomNumberGenerator, QuadTreeElem
    * This correspond to the maximum value across all potential causes.
    */
   public int getSymptom(String type) {
-    int max = 0;
-    if (symptoms.containsKey(type)) {
-      ExpressedSymptom expressedSymptom = symptoms.get(type);
-      max = expressedSymptom.getSymptom();
+    ExpressedSymptom expressedSymptom = symptoms.get(type);
+    if (expressedSymptom == null) {
+      return 0;
     }
-    return max;
+    return expressedSymptom.getSymptom();
   }
 
   /**
@@ -384,22 +427,20 @@ public class Person implements Serializable, RandomNumberGenerator, QuadTreeElem
    * Mark the largest valued symptom as addressed.
    */
   public void addressLargestSymptom() {
-    String highestType = "";
-    String highestCause = "";
+    // the severity of a symptom is the value of its highest unaddressed source
+    ExpressedSymptom highest = null;
     int maxValue = 0;
-    for (String type : symptoms.keySet()) {
-      ExpressedSymptom expressedSymptom = symptoms.get(type);
-      String cause = expressedSymptom.getSourceWithHighValue();
-      if (cause != null) {
-        int value = expressedSymptom.getValueFromSource(cause);
-        if (value > maxValue) {
-          maxValue = value;
-          highestCause = cause;
-          highestType = type;                
-        }
+    for (ExpressedSymptom expressedSymptom : symptoms.values()) {
+      int value = expressedSymptom.getSymptom();
+      if (value > maxValue) {
+        maxValue = value;
+        highest = expressedSymptom;
       }
     }
-    symptoms.get(highestType).addressSource(highestCause);
+    if (highest != null) {
+      highest.addressSource(highest.getSourceWithHighValue());
+      symptomTotal += highest.getSymptom() - maxValue;
+    }
   }
 
   /**
@@ -480,11 +521,22 @@ public class Person implements Serializable, RandomNumberGenerator, QuadTreeElem
    *         care-seeking behaviors.
    */
   public int symptomTotal() {
-    int total = 0;
-    for (String type : symptoms.keySet()) {
-      total += getSymptom(type);
+    return symptomTotal;
+  }
+
+  /**
+   * Get the retained history of states for the given module.
+   * @param moduleName The name of the module.
+   * @return The module history, most recent state first, or null if the person has not
+   *     entered the module.
+   */
+  @SuppressWarnings("unchecked")
+  public List<State> getModuleHistory(String moduleName) {
+    Object history = attributes.get(moduleName);
+    if (history instanceof List) {
+      return (List<State>) history;
     }
-    return total;
+    return null;
   }
 
   public boolean hadPriorState(String name) {
@@ -498,6 +550,9 @@ public class Person implements Serializable, RandomNumberGenerator, QuadTreeElem
     if (history == null) {
       return false;
     }
+    if (history instanceof ModuleHistory) {
+      return ((ModuleHistory) history).hadPriorState(name, since, within);
+    }
     for (State state : history) {
       if (within != null && state.exited != null && state.exited <= within) {
         return false;
@@ -1,15 +1,12 @@
 package org.mitre.synthea.world.agents;
 
-import com.google.common.collect.HashBasedTable;
-import com.google.common.collect.Table;
 import com.google.gson.internal.LinkedTreeMap;
 
 import java.awt.geom.Point2D;
 import java.io.IOException;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -18,12 +15,12 @@ import java.util.Map;
 import java.util.Random;
 import java.util.Set;
 import java.util.UUID;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.DoubleAdder;
 
 import org.mitre.synthea.helpers.Config;
 import org.mitre.synthea.helpers.RandomNumberGenerator;
-import org.mitre.synthea.helpers.SimpleCSV;
-import org.mitre.synthea.helpers.Utilities;
+import org.mitre.synthea.helpers.StatePartitionedCsv;
+import org.mitre.synthea.helpers.UtilizationTable;
 import org.mitre.synthea.world.agents.behaviors.IProviderFinder;
 import org.mitre.synthea.world.agents.behaviors.ProviderFinderNearest;
 import org.mitre.synthea.world.agents.behaviors.ProviderFinderQuality;
@@ -33,8 +30,8 @@ import org.mitre.synthea.world.concepts.HealthRecord.EncounterType;
 import org.mitre.synthea.world.concepts.Names;
 import org.mitre.synthea.world.geography.Demographics;
 import org.mitre.synthea.world.geography.Location;
-import org.mitre.synthea.world.geography.quadtree.QuadTree;
 import org.mitre.synthea.world.geography.quadtree.QuadTreeElement;
+import org.mitre.synthea.world.geography.quadtree.SpatialIndex;
 
 public class Provider implements QuadTreeElement, Serializable {
 
@@ -51,7 +48,9 @@ public class Provider implements QuadTreeElement, Serializable {
 
   // ArrayList of all providers imported
   private static ArrayList<Provider> providerList = new ArrayList<Provider>();
-  private static QuadTree providerMap = generateQuadTree();
+  // Spatial indexes of the loaded providers, rebuilt on first use after providers are loaded
+  private static volatile SpatialIndex<Provider> providerIndex;
+  private static volatile Map<EncounterType, SpatialIndex<Provider>> serviceIndexes;
   private static Set<String> statesLoaded = new HashSet<String>();
   private static int loaded = 0;
 
@@ -75,46 +74,14 @@ public class Provider implements QuadTreeElement, Serializable {
   public String type;
   public String ownership;
   public int quality;
-  private double revenue;
+  // updated concurrently by every thread, so it is only summed when it is read
+  private final DoubleAdder revenue;
   private Point2D.Double coordinates;
   public ArrayList<EncounterType> servicesProvided;
   public Map<String, ArrayList<Clinician>> clinicianMap;
   // row: year, column: type, value: count
-  private transient Table<Integer, String, AtomicInteger> utilization;
+  private final UtilizationTable utilization;
 
-  /**
-   * Java Serialization support for the utilization field.
-   * @param oos stream to write to
-   */
-  private void writeObject(ObjectOutputStream oos) throws IOException {
-    oos.defaultWriteObject();
-    ArrayList<Payer.UtilizationBean> entryUtilizationElements = null;
-    if (utilization != null) {
-      entryUtilizationElements = new ArrayList<>(utilization.size());
-      for (Table.Cell<Integer, String, AtomicInteger> cell: utilization.cellSet()) {
-        entryUtilizationElements.add(
-                new Payer.UtilizationBean(cell.getRowKey(), cell.getColumnKey(), cell.getValue()));
-      }
-    }
-    oos.writeObject(entryUtilizationElements);
-  }
-
-  /**
-   * Java Serialization support for the utilization field.
-   * @param ois stream to read from
-   */
-  private void readObject(ObjectInputStream ois) throws ClassNotFoundException, IOException {
-    ois.defaultReadObject();
-    ArrayList<Payer.UtilizationBean> entryUtilizationElements = 
-            (ArrayList<Payer.UtilizationBean>)ois.readObject();
-    if (entryUtilizationElements != null) {
-      this.utilization = HashBasedTable.create();
-      for (Payer.UtilizationBean u: entryUtilizationElements) {
-        this.utilization.put(u.year, u.type, u.count);
-      }
-    }
-  }
-  
   /**
    * Create a new Provider with no information.
    */
@@ -123,8 +90,8 @@ public class Provider implements QuadTreeElement, Serializable {
     uuid = UUID.randomUUID().toString();
     locationUuid = UUID.randomUUID().toString();
     attributes = new LinkedTreeMap<>();
-    revenue = 0.0;
-    utilization = HashBasedTable.create();
+    revenue = new DoubleAdder();
+    utilization = new UtilizationTable();
     servicesProvided = new ArrayList<EncounterType>();
     clinicianMap = new HashMap<String, ArrayList<Clinician>>();
     coordinates = new Point2D.Double();
@@ -183,17 +150,11 @@ public class Provider implements QuadTreeElement, Serializable {
     increment(year, PRESCRIPTIONS);
   }
 
-  private synchronized void increment(Integer year, String key) {
-    if (utilization != null) { // TODO remove once utilization stats are made serializable
-      if (!utilization.contains(year, key)) {
-        utilization.put(year, key, new AtomicInteger(0));
-      }
-
-      utilization.get(year, key).incrementAndGet();
-    }
+  private void increment(int year, String key) {
+    utilization.increment(year, key);
   }
 
-  public Table<Integer, String, AtomicInteger> getUtilization() {
+  public UtilizationTable getUtilization() {
     return utilization;
   }
 
@@ -231,14 +192,14 @@ public class Provider implements QuadTreeElement, Serializable {
    * @param costOfCare the cost of the care to be added to revenue.
    */
   public void addRevenue(double costOfCare) {
-    this.revenue += costOfCare;
+    this.revenue.add(costOfCare);
   }
 
   /**
    * Returns the total revenue of this provider.
    */
   public double getRevenue() {
-    return this.revenue;
+    return this.revenue.sum();
   }
 
   /**
@@ -249,56 +210,68 @@ public class Provider implements QuadTreeElement, Serializable {
    * @return Service provider or null if none is available.
    */
   public static Provider findService(Person person, EncounterType service, long time) {
-    double maxDistance = MAX_PROVIDER_SEARCH_DISTANCE;
-    double degrees = 0.125;
-    List<Provider> options = null;
-    Provider provider = null;
-    while (degrees <= maxDistance) {
-      options = findProvidersByLocation(person, degrees);
-      provider = providerFinder.find(options, person, service, time);
-      if (provider != null) {
-        return provider;
+    return providerFinder.find(getProviderIndex(service), person, service, time,
+        MAX_PROVIDER_SEARCH_DISTANCE);
+  }
+
+  /**
+   * Get the spatial index of the loaded providers that offer a service. The index is safe
+   * to query from multiple threads.
+   * @param service The service, or null for an index of all providers.
+   * @return Index of the providers offering the service.
+   */
+  public static SpatialIndex<Provider> getProviderIndex(EncounterType service) {
+    Map<EncounterType, SpatialIndex<Provider>> indexes = serviceIndexes;
+    SpatialIndex<Provider> all = providerIndex;
+    if (indexes == null || all == null) {
+      synchronized (Provider.class) {
+        buildIndexes();
+        indexes = serviceIndexes;
+        all = providerIndex;
       }
-      degrees *= 2.0;
     }
-    return null;
+    return (service == null) ? all : indexes.get(service);
   }
 
   /**
-   * Find a service around a given point.
-   * @param person The patient who requires the service.
-   * @param distance in degrees
-   * @return List of providers within the given distance.
+   * Build the spatial indexes of all loaded providers and of the providers for each service,
+   * unless they are already built. Callers must hold the Provider class lock.
    */
-  private static List<Provider> findProvidersByLocation(Person person, double distance) {
-    List<QuadTreeElement> results = providerMap.query(person, distance);
-    List<Provider> providers = new ArrayList<Provider>();
-    for (QuadTreeElement item : results) {
-      providers.add((Provider) item);
+  private static void buildIndexes() {
+    if (serviceIndexes != null && providerIndex != null) {
+      return;
+    }
+    Map<EncounterType, List<Provider>> byService =
+        new EnumMap<EncounterType, List<Provider>>(EncounterType.class);
+    for (EncounterType service : EncounterType.values()) {
+      byService.put(service, new ArrayList<Provider>());
+    }
+    for (Provider provider : providerList) {
+      for (EncounterType service : provider.servicesProvided) {
+        byService.get(service).add(provider);
+      }
+    }
+    Map<EncounterType, SpatialIndex<Provider>> indexes =
+        new EnumMap<EncounterType, SpatialIndex<Provider>>(EncounterType.class);
+    for (Map.Entry<EncounterType, List<Provider>> entry : byService.entrySet()) {
+      indexes.put(entry.getKey(), new SpatialIndex<Provider>(entry.getValue()));
     }
-    return providers;
+    providerIndex = new SpatialIndex<Provider>(providerList);
+    serviceIndexes = indexes;
   }
 
   /**
    * Clear the list of loaded and cached providers.
    */
-  public static void clear() {
+  public static synchronized void clear() {
     providerList.clear();
     statesLoaded.clear();
-    providerMap = generateQuadTree();
+    providerIndex = null;
+    serviceIndexes = null;
     providerFinder = buildProviderFinder();
     loaded = 0;
   }
 
-  /**
-   * Generate a quad tree with sufficient capacity and depth to load
-   * the biggest states.
-   * @return QuadTree.
-   */
-  private static QuadTree generateQuadTree() {
-    return new QuadTree();
-  }
-
   /**
    * Load into cache the list of providers for a state.
    * @param location the state being loaded.
@@ -352,8 +325,8 @@ public class Provider implements QuadTreeElement, Serializable {
   public static void loadProviders(Location location, String filename,
       Set<EncounterType> servicesProvided, long clinicianSeed)
       throws IOException {
-    String resource = Utilities.readResource(filename);
-    Iterator<? extends Map<String,String>> csv = SimpleCSV.parseLineByLine(resource);
+    Iterator<? extends Map<String,String>> csv = StatePartitionedCsv.read(filename, "state",
+        location.state, Location.getAbbreviation(location.state));
     Random clinicianRand = new Random(clinicianSeed);
     
     while (csv.hasNext()) {
@@ -406,15 +379,14 @@ public class Provider implements QuadTreeElement, Serializable {
         }
 
         providerList.add(parsed);
-        boolean inserted = providerMap.insert(parsed);
-        if (!inserted) {
-          throw new RuntimeException("Provider QuadTree Full! Dropping # " + loaded + ": "
-              + parsed.name + " @ " + parsed.city);
-        } else {
-          loaded++;
-        }
+        loaded++;
       }
     }
+    synchronized (Provider.class) {
+      // the indexes are rebuilt with the new providers the next time they are used
+      providerIndex = null;
+      serviceIndexes = null;
+    }
   }
 
   /**
@@ -5,6 +5,7 @@ import java.util.List;
 import org.mitre.synthea.world.agents.Person;
 import org.mitre.synthea.world.agents.Provider;
 import org.mitre.synthea.world.concepts.HealthRecord.EncounterType;
+import org.mitre.synthea.world.geography.quadtree.SpatialIndex;
 
 /**
  * Find a particular provider by service.
@@ -19,4 +20,28 @@ public interface IProviderFinder {
    * @return Service provider or null if none is available.
    */
   public Provider find(List<Provider> providers, Person person, EncounterType service, long time);
+
+  /**
+   * Find a provider with a specific service for the person, searching the providers within
+   * 0.125 degrees of the person first, and doubling the search distance until a provider is
+   * found or the maximum distance is reached.
+   * @param index The providers offering the service.
+   * @param person The patient who requires the service.
+   * @param service The service required. For example, EncounterType.AMBULATORY.
+   * @param time The date/time within the simulated world, in milliseconds.
+   * @param maxDistance The maximum search distance, in degrees.
+   * @return Service provider or null if none is available.
+   */
+  public default Provider find(SpatialIndex<Provider> index, Person person,
+      EncounterType service, long time, double maxDistance) {
+    double degrees = 0.125;
+    while (degrees <= maxDistance) {
+      Provider provider = find(index.query(person, degrees), person, service, time);
+      if (provider != null) {
+        return provider;
+      }
+      degrees *= 2.0;
+    }
+    return null;
+  }
 }
@@ -6,6 +6,7 @@ import java.util.List;
 import org.mitre.synthea.world.agents.Person;
 import org.mitre.synthea.world.agents.Provider;
 import org.mitre.synthea.world.concepts.HealthRecord.EncounterType;
+import org.mitre.synthea.world.geography.quadtree.SpatialIndex;
 
 public class ProviderFinderNearest implements IProviderFinder {
 
@@ -16,14 +17,7 @@ public class ProviderFinderNearest implements IProviderFinder {
     List<Provider> options = new ArrayList<Provider>();
 
     for (Provider provider : providers) {
-      if (provider.accepts(person, time)
-          && (provider.hasService(service) || service == null)) {
-        if (person.attributes.containsKey("veteran")
-                && !("VA Facility".equals(provider.type))
-                && !(service.equals(
-                        EncounterType.URGENTCARE) || service.equals(EncounterType.EMERGENCY))) {
-          continue;
-        }
+      if (isOption(provider, person, service, time)) {
         distance = provider.getLonLat().distance(person.getLonLat());
         if (distance < minDistance) {
           options.clear();
@@ -35,6 +29,45 @@ public class ProviderFinderNearest implements IProviderFinder {
       }
     }
 
+    return pick(options, person);
+  }
+
+  /**
+   * Find the nearest provider with a specific service for the person, with a single search of
+   * the index. The maximum distance is rounded down to the last distance the search in
+   * {@link IProviderFinder} would try, so both find the same providers.
+   */
+  @Override
+  public Provider find(SpatialIndex<Provider> index, Person person, EncounterType service,
+      long time, double maxDistance) {
+    double degrees = 0.125;
+    if (degrees > maxDistance) {
+      return null;
+    }
+    while (degrees * 2.0 <= maxDistance) {
+      degrees *= 2.0;
+    }
+    List<Provider> options = index.nearest(person, 1, degrees,
+        provider -> isOption(provider, person, service, time));
+    return pick(options, person);
+  }
+
+  private static boolean isOption(Provider provider, Person person, EncounterType service,
+      long time) {
+    if (provider.accepts(person, time)
+        && (provider.hasService(service) || service == null)) {
+      if (person.attributes.containsKey("veteran")
+              && !("VA Facility".equals(provider.type))
+              && !(service.equals(
+                      EncounterType.URGENTCARE) || service.equals(EncounterType.EMERGENCY))) {
+        return false;
+      }
+      return true;
+    }
+    return false;
+  }
+
+  private static Provider pick(List<Provider> options, Person person) {
     if (options.isEmpty()) {
       return null;
     } else if (options.size() == 1) {
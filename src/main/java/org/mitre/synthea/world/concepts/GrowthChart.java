@@ -3,10 +3,11 @@ package org.mitre.synthea.world.concepts;
 import com.google.gson.Gson;
 
 import java.io.Serializable;
+import java.util.Arrays;
+import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.Map;
 
-import org.apache.commons.math3.distribution.NormalDistribution;
 import org.apache.commons.math3.special.Erf;
 import org.mitre.synthea.helpers.Utilities;
 
@@ -18,9 +19,15 @@ public class GrowthChart implements Serializable {
     HEIGHT, WEIGHT, BMI, HEAD
   }
 
+  private static final double SQRT2 = Math.sqrt(2.0);
+
   private ChartType chartType;
-  private HashMap<Integer, GrowthChartEntry> maleEntries;
-  private HashMap<Integer, GrowthChartEntry> femaleEntries;
+  /** Age in months of the first entry for each sex. */
+  private int maleFirstMonth;
+  private int femaleFirstMonth;
+  /** The L, M and S values of each month for each sex, starting at the first month. */
+  private double[] maleEntries;
+  private double[] femaleEntries;
 
   /**
    * Construct a new GrowthChart.
@@ -29,25 +36,63 @@ public class GrowthChart implements Serializable {
    */
   public GrowthChart(ChartType chartType, Map<String, Map<String, Map<String, String>>> rawChart) {
     this.chartType = chartType;
-    this.maleEntries = new HashMap<Integer, GrowthChartEntry>();
-    this.femaleEntries = new HashMap<Integer, GrowthChartEntry>();
     Map<String, Map<String, String>> maleValues = rawChart.get("M");
-    maleValues.keySet().forEach(ageMonth -> {
-      Map<String, String> percentileInfo = maleValues.get(ageMonth);
-      GrowthChartEntry entry = new GrowthChartEntry(Double.parseDouble(percentileInfo.get("l")),
-          Double.parseDouble(percentileInfo.get("m")),
-          Double.parseDouble(percentileInfo.get("s")));
-      maleEntries.put(Integer.parseInt(ageMonth), entry);
-    });
-    this.chartType = chartType;
+    this.maleFirstMonth = firstMonth(maleValues);
+    this.maleEntries = entries(maleValues, maleFirstMonth);
     Map<String, Map<String, String>> femaleValues = rawChart.get("F");
-    femaleValues.keySet().forEach(ageMonth -> {
-      Map<String, String> percentileInfo = femaleValues.get(ageMonth);
-      GrowthChartEntry entry = new GrowthChartEntry(Double.parseDouble(percentileInfo.get("l")),
-          Double.parseDouble(percentileInfo.get("m")),
-          Double.parseDouble(percentileInfo.get("s")));
-      femaleEntries.put(Integer.parseInt(ageMonth), entry);
+    this.femaleFirstMonth = firstMonth(femaleValues);
+    this.femaleEntries = entries(femaleValues, femaleFirstMonth);
+  }
+
+  private static int firstMonth(Map<String, Map<String, String>> values) {
+    int first = Integer.MAX_VALUE;
+    for (String ageMonth : values.keySet()) {
+      first = Math.min(first, Integer.parseInt(ageMonth));
+    }
+    return first;
+  }
+
+  /**
+   * Parse the LMS values of one sex into an array indexed by month, so that looking up an
+   * entry does not box the age or allocate.
+   * @param values The LMS values of each month, keyed by age in months.
+   * @param firstMonth The earliest age in months in the values.
+   * @return The L, M and S values of each month, in order. Missing months are NaN.
+   */
+  private static double[] entries(Map<String, Map<String, String>> values, int firstMonth) {
+    int lastMonth = firstMonth - 1;
+    for (String ageMonth : values.keySet()) {
+      lastMonth = Math.max(lastMonth, Integer.parseInt(ageMonth));
+    }
+    double[] entries = new double[3 * (lastMonth - firstMonth + 1)];
+    Arrays.fill(entries, Double.NaN);
+    values.forEach((ageMonth, percentileInfo) -> {
+      int offset = 3 * (Integer.parseInt(ageMonth) - firstMonth);
+      entries[offset] = Double.parseDouble(percentileInfo.get("l"));
+      entries[offset + 1] = Double.parseDouble(percentileInfo.get("m"));
+      entries[offset + 2] = Double.parseDouble(percentileInfo.get("s"));
     });
+    return entries;
+  }
+
+  /**
+   * Find the LMS values for a sex and age.
+   * @return The offset of the L value in the entries of the sex.
+   */
+  private int offset(int ageInMonths, String gender) {
+    double[] entries = entries(gender);
+    int month = ageInMonths - (gender.equals("M") ? maleFirstMonth : femaleFirstMonth);
+    int offset = 3 * month;
+    if (month < 0 || offset >= entries.length || Double.isNaN(entries[offset])) {
+      throw new RuntimeException(
+          "GrowthChart \"" + chartType + "\" does not have data for ageInMonths=" + ageInMonths
+          + ", gender=" + gender);
+    }
+    return offset;
+  }
+
+  private double[] entries(String gender) {
+    return gender.equals("M") ? maleEntries : femaleEntries;
   }
 
   /**
@@ -61,18 +106,10 @@ public class GrowthChart implements Serializable {
    * @return The height (cm) or weight (kg) or BMI
    */
   public double lookUp(int ageInMonths, String gender, double percentile) {
-    GrowthChartEntry entry;
-    if (gender.equals("M")) {
-      entry = maleEntries.get(ageInMonths);
-    } else {
-      entry = femaleEntries.get(ageInMonths);
-    }
-    if (entry == null) {
-      throw new RuntimeException(
-          "GrowthChart \"" + chartType + "\" does not have data for ageInMonths=" + ageInMonths
-          + ", gender=" + gender + ", percentile=" + percentile);
-    }
-    return entry.lookUp(percentile);
+    int offset = offset(ageInMonths, gender);
+    double[] entries = entries(gender);
+    return GrowthChartEntry.lookUp(entries[offset], entries[offset + 1], entries[offset + 2],
+        percentile);
   }
 
   /**
@@ -84,13 +121,10 @@ public class GrowthChart implements Serializable {
    * @return 0 - 1.0
    */
   public double percentileFor(int ageInMonths, String gender, double value) {
-    GrowthChartEntry entry;
-    if (gender.equals("M")) {
-      entry = maleEntries.get(ageInMonths);
-    } else {
-      entry = femaleEntries.get(ageInMonths);
-    }
-    return entry.percentileForValue(value);
+    int offset = offset(ageInMonths, gender);
+    double[] entries = entries(gender);
+    return zscoreToPercentile(GrowthChartEntry.zscoreForValue(entries[offset],
+        entries[offset + 1], entries[offset + 2], value));
   }
 
   /**
@@ -127,11 +161,12 @@ public class GrowthChart implements Serializable {
    * @return percentile - 0.0 - 1.0
    */
   public static double zscoreToPercentile(double zscore) {
-    double percentile = 0;
-
-    NormalDistribution dist = new NormalDistribution();
-    percentile = dist.cumulativeProbability(zscore);
-    return percentile;
+    // the cumulative probability of the standard normal distribution, computed directly
+    // rather than through a new NormalDistribution, which seeds a random generator each time
+    if (Math.abs(zscore) > 40) {
+      return zscore < 0 ? 0.0 : 1.0;
+    }
+    return 0.5 * Erf.erfc(-zscore / SQRT2);
   }
 
   /**
@@ -144,7 +179,8 @@ public class GrowthChart implements Serializable {
       String json = Utilities.readResource(filename);
       Gson g = new Gson();
       HashMap allCharts = g.fromJson(json, HashMap.class);
-      HashMap<ChartType, GrowthChart> returnMap = new HashMap<ChartType, GrowthChart>();
+      Map<ChartType, GrowthChart> returnMap =
+          new EnumMap<ChartType, GrowthChart>(ChartType.class);
       returnMap.put(ChartType.HEIGHT,
           new GrowthChart(ChartType.HEIGHT, (Map) allCharts.get("height")));
       returnMap.put(ChartType.WEIGHT,
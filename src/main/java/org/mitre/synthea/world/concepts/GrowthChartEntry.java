@@ -28,11 +28,22 @@ public class GrowthChartEntry implements Serializable {
    * @return z-score
    */
   public double zscoreForValue(double value) {
-    if (this.lboxCox == 0) {
-      return Math.log(value / this.median) / this.scov;
+    return zscoreForValue(this.lboxCox, this.median, this.scov, value);
+  }
+
+  /**
+   * Compute the z-score given a value and the LMS parameters.
+   * @param l the power in the Box-Cox transformation
+   * @param m median
+   * @param s the generalized coefficient of variation
+   * @param value the actual value, for example a weight, height or BMI
+   * @return z-score
+   */
+  public static double zscoreForValue(double l, double m, double s, double value) {
+    if (l == 0) {
+      return Math.log(value / m) / s;
     } else {
-      return (Math.pow((value / this.median), this.lboxCox) - 1)
-          / (this.lboxCox * this.scov);
+      return (Math.pow((value / m), l) - 1) / (l * s);
     }
   }
 
@@ -51,11 +62,23 @@ public class GrowthChartEntry implements Serializable {
    * @return The value for the given percentile
    */
   public double lookUp(double percentile) {
+    return lookUp(this.lboxCox, this.median, this.scov, percentile);
+  }
+
+  /**
+   * Look up the value for a particular percentile given the LMS parameters.
+   * @param l the power in the Box-Cox transformation
+   * @param m median
+   * @param s the generalized coefficient of variation
+   * @param percentile 0 - 1.0
+   * @return The value for the given percentile
+   */
+  public static double lookUp(double l, double m, double s, double percentile) {
     double z = GrowthChart.calculateZScore(percentile);
-    if (this.lboxCox == 0) {
-      return this.median * Math.exp((this.scov * z));
+    if (l == 0) {
+      return m * Math.exp((s * z));
     } else {
-      return this.median * Math.pow((1 + (this.lboxCox * this.scov * z)), (1.0 / this.lboxCox));
+      return m * Math.pow((1 + (l * s * z)), (1.0 / l));
     }
   }
 }
@@ -23,6 +23,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
+import org.mitre.synthea.helpers.ChangeTracker;
 import org.mitre.synthea.helpers.RandomNumberGenerator;
 import org.mitre.synthea.helpers.Utilities;
 import org.mitre.synthea.world.agents.Clinician;
@@ -511,6 +512,8 @@ public class HealthRecord implements Serializable {
     // Track if we renewed meds at this encounter. Used in State.java encounter state.
     public boolean chronicMedsRenewed;
     public String clinicalNote;
+    /** Position of this encounter within the record, or 0 if not yet added to the record. */
+    int ordinal;
 
     /**
      * Construct an encounter.
@@ -556,10 +559,21 @@ public class HealthRecord implements Serializable {
      */
     public Observation addObservation(long time, String type, Object value) {
       Observation observation = new Observation(time, type, value);
-      this.observations.add(observation);
+      addObservation(observation);
       return observation;
     }
 
+    /**
+     * Add an existing observation to the encounter.
+     * @param observation The observation to add
+     */
+    public void addObservation(Observation observation) {
+      this.observations.add(observation);
+      if (observation != null) {
+        record.indexObservation(this, observation);
+      }
+    }
+
     /**
      * Add an observation to the encounter and uses the type to set the first code.
      * @param time The time of the observation
@@ -570,7 +584,7 @@ public class HealthRecord implements Serializable {
      */
     public Observation addObservation(long time, String type, Object value, String display) {
       Observation observation = new Observation(time, type, value);
-      this.observations.add(observation);
+      addObservation(observation);
       observation.codes.add(new Code("LOINC", type, display));
       return observation;
     }
@@ -612,6 +626,36 @@ public class HealthRecord implements Serializable {
   public Map<String, Entry> present;
   /** recorded death date/time. */
   public Long death;
+  /** Ordinal assigned to the next encounter added to this record. */
+  private int nextEncounterOrdinal = 1;
+  /** Number of encounters already returned by encountersSinceLastEdit. */
+  private transient int editedEncounters;
+  /** Encounters returned by encountersSinceLastEdit that may still have entries added. */
+  private transient List<Encounter> openEditedEncounters;
+  /**
+   * Latest observation of each type, maintained as observations are added to encounters.
+   * Null until first needed, and reset whenever the record is modified outside of this class.
+   */
+  private transient Map<String, IndexedObservation> latestObservations;
+  /** Types whose latest observation was removed, and must be looked up again. */
+  private transient Set<String> staleObservationTypes;
+  /** Codes of the entries that have been added to or removed from present. */
+  private ChangeTracker presentChanges = new ChangeTracker();
+  /** Types of observation whose latest observation may have changed. */
+  private ChangeTracker observationChanges = new ChangeTracker();
+
+  /**
+   * An observation along with the encounter it was recorded in.
+   */
+  private static class IndexedObservation {
+    private final Encounter encounter;
+    private final Observation observation;
+
+    private IndexedObservation(Encounter encounter, Observation observation) {
+      this.encounter = encounter;
+      this.observation = observation;
+    }
+  }
 
   /**
    * Construct a health record for the supplied person.
@@ -688,7 +732,7 @@ public class HealthRecord implements Serializable {
     } else {
       encounter = new Encounter(time, EncounterType.WELLNESS.toString());
       encounter.name = "First Wellness";
-      encounters.add(encounter);
+      addEncounter(encounter);
     }
     return encounter;
   }
@@ -737,12 +781,13 @@ public class HealthRecord implements Serializable {
     int count = numberOfObservations;
     if (encounter.observations.size() >= numberOfObservations) {
       while (count > 0) {
-        observation.observations.add(encounter.observations.remove(
-            encounter.observations.size() - 1));
+        Observation moved = encounter.observations.remove(encounter.observations.size() - 1);
+        unindexObservation(moved);
+        observation.observations.add(moved);
         count--;
       }
     }
-    encounter.observations.add(observation);
+    encounter.addObservation(observation);
     return observation;
   }
 
@@ -752,16 +797,174 @@ public class HealthRecord implements Serializable {
    * @return the latest observation or null if none exists.
    */
   public Observation getLatestObservation(String type) {
+    if (latestObservations == null) {
+      rebuildObservationIndex();
+    } else if (staleObservationTypes.remove(type)) {
+      IndexedObservation latest = findLatestObservation(type);
+      if (latest == null) {
+        latestObservations.remove(type);
+      } else {
+        latestObservations.put(type, latest);
+      }
+    }
+    IndexedObservation latest = latestObservations.get(type);
+    return latest == null ? null : latest.observation;
+  }
+
+  /**
+   * Scan the encounters, most recent first, for the first observation of the given type.
+   * @param type the type of observation.
+   * @return the latest observation and its encounter, or null if none exists.
+   */
+  private IndexedObservation findLatestObservation(String type) {
     for (int i = encounters.size() - 1; i >= 0; i--) {
       Encounter encounter = encounters.get(i);
       Observation obs = encounter.findObservation(type);
       if (obs != null) {
-        return obs;
+        return new IndexedObservation(encounter, obs);
       }
     }
     return null;
   }
 
+  /**
+   * Get the encounters that may have changed since the last call to this method, so that the
+   * HealthRecordEditors do not look at the whole record on every time step. These are the
+   * encounters added since the last call, and the encounters returned before that were still
+   * open, since encounters often span several time steps. An open encounter is returned again
+   * until it ends, or until a newer encounter of the same type starts, including once more in
+   * the call after that happens.
+   * @param since Encounters added since the last call that started before this time are left
+   *     out, as they are when the record has just been deserialized and every encounter is new.
+   * @return the encounters, in the order they were added.
+   */
+  public List<Encounter> encountersSinceLastEdit(long since) {
+    List<Encounter> changed = new ArrayList<Encounter>();
+    if (openEditedEncounters != null) {
+      changed.addAll(openEditedEncounters);
+    }
+    int from = Math.min(editedEncounters, encounters.size());
+    for (Encounter encounter : encounters.subList(from, encounters.size())) {
+      if (encounter.start >= since) {
+        changed.add(encounter);
+      }
+    }
+    editedEncounters = encounters.size();
+
+    // encounterEnd only ends the newest open encounter of a type, so older ones are done
+    List<Encounter> open = new ArrayList<Encounter>();
+    Set<String> newerTypes = new HashSet<String>();
+    for (int i = changed.size() - 1; i >= 0; i--) {
+      Encounter encounter = changed.get(i);
+      if (!encounter.ended && !newerTypes.contains(encounter.type)) {
+        open.add(0, encounter);
+      }
+      newerTypes.add(encounter.type);
+    }
+    openEditedEncounters = open;
+    return changed;
+  }
+
+  /**
+   * Add an encounter to the end of this record.
+   * @param encounter the encounter to add.
+   */
+  private void addEncounter(Encounter encounter) {
+    encounter.ordinal = nextEncounterOrdinal++;
+    encounters.add(encounter);
+  }
+
+  /**
+   * Rebuild the index of the latest observation of each type from the encounters.
+   */
+  private void rebuildObservationIndex() {
+    latestObservations = new HashMap<String, IndexedObservation>();
+    staleObservationTypes = new HashSet<String>();
+    for (Encounter encounter : encounters) {
+      // iterate backwards so the first observation of each type in an encounter wins,
+      // while observations in later encounters replace those in earlier ones
+      for (int i = encounter.observations.size() - 1; i >= 0; i--) {
+        Observation obs = encounter.observations.get(i);
+        if (obs != null) {
+          latestObservations.put(obs.type, new IndexedObservation(encounter, obs));
+        }
+      }
+    }
+  }
+
+  /**
+   * Update the observation index with an observation added to one of this record's encounters.
+   * @param encounter the encounter the observation was added to.
+   * @param observation the observation.
+   */
+  private void indexObservation(Encounter encounter, Observation observation) {
+    observationChanges.changed(observation.type);
+    if (latestObservations == null || encounter.ordinal == 0) {
+      // either the index hasn't been built yet, or the encounter isn't part of this record
+      return;
+    }
+    if (staleObservationTypes.contains(observation.type)) {
+      return;
+    }
+    IndexedObservation latest = latestObservations.get(observation.type);
+    if (latest == null || latest.encounter.ordinal < encounter.ordinal) {
+      latestObservations.put(observation.type, new IndexedObservation(encounter, observation));
+    }
+  }
+
+  /**
+   * Update the observation index when an observation is removed from its encounter.
+   * @param observation the removed observation.
+   */
+  private void unindexObservation(Observation observation) {
+    observationChanges.changed(observation.type);
+    if (latestObservations == null) {
+      return;
+    }
+    IndexedObservation latest = latestObservations.get(observation.type);
+    if (latest != null && latest.observation == observation) {
+      latestObservations.remove(observation.type);
+      staleObservationTypes.add(observation.type);
+    }
+  }
+
+  /**
+   * Discard the index of latest observations. This must be called after encounters or
+   * observations are removed from this record by code outside of this class, for example when
+   * filtering the record for export. The index is rebuilt when next needed.
+   */
+  public void resetObservationIndex() {
+    latestObservations = null;
+    staleObservationTypes = null;
+    observationChanges.changedAll();
+  }
+
+  /**
+   * Get the record of which codes have been added to or removed from the present entries, such
+   * as the active conditions, medications and care plans.
+   * @return the changes to present, keyed by code.
+   */
+  public ChangeTracker getPresentChanges() {
+    return presentChanges;
+  }
+
+  /**
+   * Get the record of which types of observation may have a different latest observation.
+   * @return the changes to the latest observations, keyed by type.
+   */
+  public ChangeTracker getObservationChanges() {
+    return observationChanges;
+  }
+
+  /**
+   * Record that any of the entries or observations of this record may have been changed in
+   * place, for example by a HealthRecordEditor.
+   */
+  public void entriesChanged() {
+    presentChanges.changedAll();
+    observationChanges.changedAll();
+  }
+
   /**
    * Return an existing Entry for the specified code or create a new Entry if none exists.
    * @param time the time of the new entry if one is created.
@@ -775,6 +978,7 @@ public class HealthRecord implements Serializable {
       encounter.conditions.add(condition);
       encounter.claim.addLineItem(condition);
       present.put(primaryCode, condition);
+      presentChanges.changed(primaryCode);
     }
     return present.get(primaryCode);
   }
@@ -788,6 +992,7 @@ public class HealthRecord implements Serializable {
     if (present.containsKey(primaryCode)) {
       present.get(primaryCode).stop = time;
       present.remove(primaryCode);
+      presentChanges.changed(primaryCode);
     }
   }
 
@@ -809,6 +1014,7 @@ public class HealthRecord implements Serializable {
     if (condition != null) {
       condition.stop = time;
       present.remove(condition.type);
+      presentChanges.changed(condition.type);
     }
   }
 
@@ -833,6 +1039,7 @@ public class HealthRecord implements Serializable {
       Entry allergy = new Entry(time, primaryCode);
       currentEncounter(time).allergies.add(allergy);
       present.put(primaryCode, allergy);
+      presentChanges.changed(primaryCode);
     }
     return present.get(primaryCode);
   }
@@ -846,6 +1053,7 @@ public class HealthRecord implements Serializable {
     if (present.containsKey(primaryCode)) {
       present.get(primaryCode).stop = time;
       present.remove(primaryCode);
+      presentChanges.changed(primaryCode);
     }
   }
 
@@ -867,6 +1075,7 @@ public class HealthRecord implements Serializable {
     if (allergy != null) {
       allergy.stop = time;
       present.remove(allergy.type);
+      presentChanges.changed(allergy.type);
     }
   }
 
@@ -882,6 +1091,7 @@ public class HealthRecord implements Serializable {
     encounter.procedures.add(procedure);
     encounter.claim.addLineItem(procedure);
     present.put(type, procedure);
+    presentChanges.changed(type);
     return procedure;
   }
 
@@ -897,6 +1107,7 @@ public class HealthRecord implements Serializable {
     Encounter encounter = currentEncounter(time);
     encounter.devices.add(device);
     present.put(type, device);
+    presentChanges.changed(type);
     return device;
   }
 
@@ -909,6 +1120,7 @@ public class HealthRecord implements Serializable {
     if (present.containsKey(type)) {
       present.get(type).stop = time;
       present.remove(type);
+      presentChanges.changed(type);
     }
   }
   
@@ -930,6 +1142,7 @@ public class HealthRecord implements Serializable {
     if (device != null) {
       device.stop = time;
       present.remove(device.type);
+      presentChanges.changed(device.type);
     }
   }
 
@@ -985,7 +1198,7 @@ public class HealthRecord implements Serializable {
    */
   public Encounter encounterStart(long time, EncounterType type) {
     Encounter encounter = new Encounter(time, type.toString());
-    encounters.add(encounter);
+    addEncounter(encounter);
     return encounter;
   }
 
@@ -1044,6 +1257,7 @@ public class HealthRecord implements Serializable {
       medication.chronic = chronic;
       currentEncounter(time).medications.add(medication);
       present.put(type, medication);
+      presentChanges.changed(type);
     } else {
       medication = (Medication) present.get(type);
     }
@@ -1074,6 +1288,7 @@ public class HealthRecord implements Serializable {
       medication.determineCost();
       medication.claim.assignCosts();
       present.remove(type);
+      presentChanges.changed(type);
     }
   }
 
@@ -1098,6 +1313,7 @@ public class HealthRecord implements Serializable {
       medication.stopReason = reason;
       chronicMedicationEnd(medication.type);
       present.remove(medication.type);
+      presentChanges.changed(medication.type);
     }
   }
 
@@ -1128,6 +1344,7 @@ public class HealthRecord implements Serializable {
       careplan = new CarePlan(time, type);
       currentEncounter(time).careplans.add(careplan);
       present.put(type, careplan);
+      presentChanges.changed(type);
     } else {
       careplan = (CarePlan) present.get(type);
     }
@@ -1146,6 +1363,7 @@ public class HealthRecord implements Serializable {
       careplan.stop = time;
       careplan.stopReason = reason;
       present.remove(type);
+      presentChanges.changed(type);
     }
   }
 
@@ -1169,6 +1387,7 @@ public class HealthRecord implements Serializable {
       careplan.stop = time;
       careplan.stopReason = reason;
       present.remove(careplan.type);
+      presentChanges.changed(careplan.type);
     }
   }
 
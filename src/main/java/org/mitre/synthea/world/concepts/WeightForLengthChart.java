@@ -0,0 +1,115 @@
+package org.mitre.synthea.world.concepts;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.mitre.synthea.helpers.SimpleCSV;
+import org.mitre.synthea.helpers.Utilities;
+
+/**
+ * Represents the CDC weight-for-length chart for infants, which gives the LMS parameters of
+ * weight for each sex and length. Each sex has rows for lengths in ascending order, and a
+ * length uses the first row that is longer than it.
+ * Reference : https://www.cdc.gov/growthcharts/percentile_data_files.htm
+ */
+public class WeightForLengthChart implements Serializable {
+  private static final String[] COLUMNS = { "Sex", "Length", "L", "M", "S" };
+
+  /** Length (cm) of each row for each sex, in ascending order. */
+  private double[] maleLengths;
+  private double[] femaleLengths;
+  /** The L, M and S values of each row for each sex. */
+  private double[] maleEntries;
+  private double[] femaleEntries;
+
+  private WeightForLengthChart(double[] maleLengths, double[] maleEntries,
+      double[] femaleLengths, double[] femaleEntries) {
+    this.maleLengths = maleLengths;
+    this.maleEntries = maleEntries;
+    this.femaleLengths = femaleLengths;
+    this.femaleEntries = femaleEntries;
+  }
+
+  /**
+   * Find the percentile of an infant's weight based on sex and length.
+   *
+   * @param gender "M" | "F"
+   * @param length the length (cm)
+   * @param weight the weight (kg)
+   * @return 0 - 1.0, or NaN if the infant is longer than every row of the chart.
+   */
+  public double percentileFor(String gender, double length, double weight) {
+    double[] lengths;
+    double[] entries;
+    if (gender.equals("M")) {
+      lengths = maleLengths;
+      entries = maleEntries;
+    } else {
+      lengths = femaleLengths;
+      entries = femaleEntries;
+    }
+    // binary search for the first row that is longer than the infant
+    int low = 0;
+    int high = lengths.length;
+    while (low < high) {
+      int middle = (low + high) >>> 1;
+      if (length < lengths[middle]) {
+        high = middle;
+      } else {
+        low = middle + 1;
+      }
+    }
+    if (low == lengths.length) {
+      return Double.NaN;
+    }
+    int offset = 3 * low;
+    return GrowthChart.zscoreToPercentile(GrowthChartEntry.zscoreForValue(entries[offset],
+        entries[offset + 1], entries[offset + 2], weight));
+  }
+
+  /**
+   * Load the chart in the cdc_wtleninf.csv file.
+   * @return the weight-for-length chart
+   */
+  public static WeightForLengthChart loadChart() {
+    String filename = "cdc_wtleninf.csv";
+    try {
+      List<Map<String, String>> male = new ArrayList<Map<String, String>>();
+      List<Map<String, String>> female = new ArrayList<Map<String, String>>();
+      SimpleCSV.parseLineByLine(Utilities.openResource(filename), Arrays.asList(COLUMNS), null)
+          .forEachRemaining(row -> (row.get("Sex").equals("M") ? male : female).add(row));
+      return new WeightForLengthChart(lengths(male), entries(male),
+          lengths(female), entries(female));
+    } catch (IOException | RuntimeException e) {
+      System.err.println("ERROR: unable to load csv: " + filename);
+      e.printStackTrace();
+      throw new ExceptionInInitializerError(e);
+    }
+  }
+
+  private static double[] lengths(List<Map<String, String>> rows) {
+    double[] lengths = new double[rows.size()];
+    for (int i = 0; i < lengths.length; i++) {
+      lengths[i] = Double.parseDouble(rows.get(i).get("Length"));
+      if (i > 0 && lengths[i] <= lengths[i - 1]) {
+        throw new IllegalArgumentException("Lengths are not in ascending order at "
+            + lengths[i]);
+      }
+    }
+    return lengths;
+  }
+
+  private static double[] entries(List<Map<String, String>> rows) {
+    double[] entries = new double[3 * rows.size()];
+    for (int i = 0; i < rows.size(); i++) {
+      entries[3 * i] = Double.parseDouble(rows.get(i).get("L"));
+      entries[3 * i + 1] = Double.parseDouble(rows.get(i).get("M"));
+      entries[3 * i + 2] = Double.parseDouble(rows.get(i).get("S"));
+    }
+    return entries;
+  }
+}
@@ -7,6 +7,7 @@ import java.io.IOException;
 import java.io.Serializable;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Random;
@@ -15,8 +16,7 @@ import org.hl7.fhir.r4.model.Patient;
 
 import org.mitre.synthea.helpers.Config;
 import org.mitre.synthea.helpers.RandomCollection;
-import org.mitre.synthea.helpers.SimpleCSV;
-import org.mitre.synthea.helpers.Utilities;
+import org.mitre.synthea.helpers.StatePartitionedCsv;
 
 /**
  * Demographics class holds the information from the towns.json and associated county config files.
@@ -377,13 +377,13 @@ public class Demographics implements Comparable<Demographics>, Serializable {
   public static Table<String, String, Demographics> load(String state)
       throws IOException {
     String filename = Config.get("generate.demographics.default_file");
-    String csv = Utilities.readResource(filename);
-
-    List<? extends Map<String,String>> demographicsCsv = SimpleCSV.parse(csv);
+    Iterator<? extends Map<String,String>> demographicsCsv =
+        StatePartitionedCsv.read(filename, "STNAME", state);
 
     Table<String, String, Demographics> table = HashBasedTable.create();
 
-    for (Map<String,String> demographicsLine : demographicsCsv) {
+    while (demographicsCsv.hasNext()) {
+      Map<String,String> demographicsLine = demographicsCsv.next();
       String currCityId = demographicsLine.get("ID");
       String currState = demographicsLine.get("STNAME");
 
@@ -6,8 +6,10 @@ import com.google.gson.Gson;
 import java.awt.geom.Point2D;
 import java.io.Serializable;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -17,6 +19,7 @@ import org.apache.commons.lang3.ArrayUtils;
 import org.mitre.synthea.helpers.Config;
 import org.mitre.synthea.helpers.RandomNumberGenerator;
 import org.mitre.synthea.helpers.SimpleCSV;
+import org.mitre.synthea.helpers.StatePartitionedCsv;
 import org.mitre.synthea.helpers.Utilities;
 import org.mitre.synthea.world.agents.Clinician;
 import org.mitre.synthea.world.agents.Person;
@@ -96,12 +99,12 @@ public class Location implements Serializable {
     String filename = null;
     try {
       filename = Config.get("generate.geography.zipcodes.default_file");
-      String csv = Utilities.readResource(filename);
-      List<? extends Map<String,String>> ziplist = SimpleCSV.parse(csv);
+      Iterator<? extends Map<String,String>> ziplist =
+          StatePartitionedCsv.read(filename, "USPS", state, getAbbreviation(state));
 
       zipCodes = new HashMap<>();
-      for (Map<String,String> line : ziplist) {
-        Place place = new Place(line);
+      while (ziplist.hasNext()) {
+        Place place = new Place(ziplist.next());
         
         if (!place.sameState(state)) {
           continue;
@@ -400,10 +403,11 @@ public class Location implements Serializable {
     String filename = null;
     try {
       filename = Config.get("generate.geography.zipcodes.default_file");
-      String csv = Utilities.readResource(filename);
-      List<? extends Map<String,String>> ziplist = SimpleCSV.parse(csv);
+      Iterator<? extends Map<String,String>> ziplist = SimpleCSV.parseLineByLine(
+          Utilities.openResource(filename), Arrays.asList("USPS", "ST"), null);
 
-      for (Map<String,String> line : ziplist) {
+      while (ziplist.hasNext()) {
+        Map<String,String> line = ziplist.next();
         String state = line.get("USPS");
         String abbreviation = line.get("ST");
         abbreviations.put(state, abbreviation);
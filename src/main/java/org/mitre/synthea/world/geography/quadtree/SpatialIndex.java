@@ -0,0 +1,251 @@
+package org.mitre.synthea.world.geography.quadtree;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.function.Predicate;
+
+/**
+ * Immutable 2-d tree of elements, built once from a fixed set of elements and then safe to
+ * query from any number of threads. Like the QuadTree, it only takes into account Euclidean
+ * distance.
+ *
+ * <p>Nearest neighbor queries are answered with a single best-first traversal: subtrees are
+ * visited in order of their distance from the query point, so the search stops as soon as
+ * enough matching elements have been found, however far away they are.
+ */
+public class SpatialIndex<T extends QuadTreeElement> {
+  /** Ranges of at most this many elements are not split any further. */
+  private static final int LEAF_SIZE = 8;
+
+  /** The elements, ordered so that each range is split at its midpoint. */
+  private final Object[] elements;
+  private final double[] xs;
+  private final double[] ys;
+  /** The position of each element in the collection the index was built from. */
+  private final int[] order;
+
+  /**
+   * Create an index of the given elements.
+   * @param items The elements to index. Later changes to the collection are not reflected
+   *     in the index.
+   */
+  public SpatialIndex(Collection<? extends T> items) {
+    int size = items.size();
+    Integer[] sorted = new Integer[size];
+    Object[] source = items.toArray();
+    for (int i = 0; i < size; i++) {
+      sorted[i] = i;
+    }
+    build(source, sorted, 0, size, 0);
+
+    elements = new Object[size];
+    xs = new double[size];
+    ys = new double[size];
+    order = new int[size];
+    for (int i = 0; i < size; i++) {
+      QuadTreeElement item = (QuadTreeElement) source[sorted[i]];
+      elements[i] = item;
+      xs[i] = item.getX();
+      ys[i] = item.getY();
+      order[i] = sorted[i];
+    }
+  }
+
+  private static void build(Object[] source, Integer[] sorted, int lo, int hi, int depth) {
+    if (hi - lo <= LEAF_SIZE) {
+      return;
+    }
+    Comparator<Integer> axis = (depth % 2 == 0)
+        ? Comparator.comparingDouble(i -> ((QuadTreeElement) source[i]).getX())
+        : Comparator.comparingDouble(i -> ((QuadTreeElement) source[i]).getY());
+    Arrays.sort(sorted, lo, hi, axis);
+    int mid = (lo + hi) >>> 1;
+    build(source, sorted, lo, mid, depth + 1);
+    build(source, sorted, mid + 1, hi, depth + 1);
+  }
+
+  /**
+   * Get the number of elements in this index.
+   * @return The number of elements.
+   */
+  public int size() {
+    return elements.length;
+  }
+
+  /**
+   * Find the elements within a given distance of a point.
+   * @param queryPoint The query point to search around.
+   * @param radius The radius to search.
+   * @return A non-null list of elements within the radius around the queryPoint, in the order
+   *     they were given when the index was built.
+   */
+  public List<T> query(QuadTreeElement queryPoint, double radius) {
+    List<Integer> found = new ArrayList<Integer>();
+    query(queryPoint.getX(), queryPoint.getY(), radius, 0, elements.length, 0, found);
+    found.sort(Comparator.comparingInt(i -> order[i]));
+    List<T> results = new ArrayList<T>(found.size());
+    for (int i : found) {
+      results.add(element(i));
+    }
+    return results;
+  }
+
+  private void query(double x, double y, double radius, int lo, int hi, int depth,
+      List<Integer> found) {
+    if (hi - lo <= LEAF_SIZE) {
+      for (int i = lo; i < hi; i++) {
+        if (distance(i, x, y) <= radius) {
+          found.add(i);
+        }
+      }
+      return;
+    }
+    int mid = (lo + hi) >>> 1;
+    if (distance(mid, x, y) <= radius) {
+      found.add(mid);
+    }
+    double offset = (depth % 2 == 0) ? x - xs[mid] : y - ys[mid];
+    if (offset <= radius) {
+      query(x, y, radius, lo, mid, depth + 1, found);
+    }
+    if (offset >= -radius) {
+      query(x, y, radius, mid + 1, hi, depth + 1, found);
+    }
+  }
+
+  /**
+   * Find the k nearest elements to a point that match a filter. Elements at the same distance
+   * as the k-th nearest are included as well, so more than k elements may be returned.
+   * @param queryPoint The query point to search around.
+   * @param k The number of elements to find.
+   * @param maxDistance The maximum distance to search.
+   * @param filter Only elements that pass this filter are returned. It is only called for
+   *     elements within the maxDistance, in order of distance.
+   * @return A non-null list of the matching elements, nearest first. Elements at the same
+   *     distance are in the order they were given when the index was built.
+   */
+  public List<T> nearest(QuadTreeElement queryPoint, int k, double maxDistance,
+      Predicate<? super T> filter) {
+    double x = queryPoint.getX();
+    double y = queryPoint.getY();
+    List<T> results = new ArrayList<T>();
+    if (elements.length == 0 || k <= 0) {
+      return results;
+    }
+    PriorityQueue<Candidate> queue = new PriorityQueue<Candidate>();
+    queue.add(new Candidate(0, elements.length, 0, 0.0, Double.NEGATIVE_INFINITY,
+        Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY));
+    double cutoff = maxDistance;
+
+    while (!queue.isEmpty() && queue.peek().distance <= cutoff) {
+      Candidate next = queue.poll();
+      if (next.isElement()) {
+        T element = element(next.lo);
+        if (filter.test(element)) {
+          results.add(element);
+          if (results.size() == k) {
+            // keep going only for elements tied with the k-th nearest
+            cutoff = next.distance;
+          }
+        }
+      } else if (next.hi - next.lo <= LEAF_SIZE) {
+        for (int i = next.lo; i < next.hi; i++) {
+          double d = distance(i, x, y);
+          if (d <= cutoff) {
+            queue.add(new Candidate(i, d));
+          }
+        }
+      } else {
+        int mid = (next.lo + next.hi) >>> 1;
+        double d = distance(mid, x, y);
+        if (d <= cutoff) {
+          queue.add(new Candidate(mid, d));
+        }
+        if (next.depth % 2 == 0) {
+          double split = xs[mid];
+          queue.add(next.child(next.lo, mid, next.minX, split, next.minY, next.maxY, x, y));
+          queue.add(next.child(mid + 1, next.hi, split, next.maxX, next.minY, next.maxY, x, y));
+        } else {
+          double split = ys[mid];
+          queue.add(next.child(next.lo, mid, next.minX, next.maxX, next.minY, split, x, y));
+          queue.add(next.child(mid + 1, next.hi, next.minX, next.maxX, split, next.maxY, x, y));
+        }
+      }
+    }
+    return results;
+  }
+
+  @SuppressWarnings("unchecked")
+  private T element(int index) {
+    return (T) elements[index];
+  }
+
+  private double distance(int index, double x, double y) {
+    double dx = xs[index] - x;
+    double dy = ys[index] - y;
+    return Math.sqrt((dx * dx) + (dy * dy));
+  }
+
+  /**
+   * A single element, or a range of elements within a bounding box, waiting to be visited.
+   */
+  private class Candidate implements Comparable<Candidate> {
+    private final int lo;
+    private final int hi;
+    private final int depth;
+    /** The distance to the element, or the smallest possible distance to the range. */
+    private final double distance;
+    private final double minX;
+    private final double maxX;
+    private final double minY;
+    private final double maxY;
+
+    private Candidate(int index, double distance) {
+      this(index, -1, -1, distance, 0.0, 0.0, 0.0, 0.0);
+    }
+
+    private Candidate(int lo, int hi, int depth, double distance,
+        double minX, double maxX, double minY, double maxY) {
+      this.lo = lo;
+      this.hi = hi;
+      this.depth = depth;
+      this.distance = distance;
+      this.minX = minX;
+      this.maxX = maxX;
+      this.minY = minY;
+      this.maxY = maxY;
+    }
+
+    private boolean isElement() {
+      return hi < 0;
+    }
+
+    private Candidate child(int lo, int hi, double minX, double maxX, double minY, double maxY,
+        double x, double y) {
+      double dx = Math.max(0.0, Math.max(minX - x, x - maxX));
+      double dy = Math.max(0.0, Math.max(minY - y, y - maxY));
+      return new Candidate(lo, hi, depth + 1, Math.sqrt((dx * dx) + (dy * dy)),
+          minX, maxX, minY, maxY);
+    }
+
+    @Override
+    public int compareTo(Candidate other) {
+      int compare = Double.compare(distance, other.distance);
+      if (compare == 0) {
+        // visit ranges before elements, so that tied elements are all found before any is
+        // returned, then return tied elements in their original order
+        if (isElement() != other.isElement()) {
+          return isElement() ? 1 : -1;
+        }
+        if (isElement()) {
+          return Integer.compare(order[lo], order[other.lo]);
+        }
+      }
+      return compare;
+    }
+  }
+}
@@ -0,0 +1,73 @@
+package org.mitre.synthea.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.mitre.synthea.engine.GenerationScheduler.Type;
+
+public class GenerationSchedulerTest {
+
+  @Test
+  public void testDefaultsToAvailableProcessors() {
+    GenerationScheduler scheduler = new GenerationScheduler(Type.FIXED, 0, 0, 0);
+    int cores = Runtime.getRuntime().availableProcessors();
+    assertEquals(cores, scheduler.getThreads());
+    assertEquals(cores * 4, scheduler.getMaxPending());
+    scheduler.shutdownNow();
+  }
+
+  @Test
+  public void testRunsAllTasks() throws Exception {
+    for (Type type : Type.values()) {
+      GenerationScheduler scheduler = new GenerationScheduler(type, 2, 3, 0);
+      AtomicInteger count = new AtomicInteger(0);
+      scheduler.start(100);
+      for (int i = 0; i < 100; i++) {
+        scheduler.submit(() -> count.incrementAndGet());
+      }
+      scheduler.awaitCompletion();
+      assertEquals(100, count.get());
+      assertEquals(100, scheduler.getCompleted());
+      assertEquals(0, scheduler.getFailed());
+    }
+  }
+
+  @Test
+  public void testBoundedSubmission() throws Exception {
+    GenerationScheduler scheduler = new GenerationScheduler(Type.FIXED, 2, 2, 0);
+    AtomicInteger running = new AtomicInteger(0);
+    AtomicInteger maxRunning = new AtomicInteger(0);
+    scheduler.start(20);
+    for (int i = 0; i < 20; i++) {
+      scheduler.submit(() -> {
+        int now = running.incrementAndGet();
+        maxRunning.accumulateAndGet(now, Math::max);
+        try {
+          Thread.sleep(5);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+        running.decrementAndGet();
+      });
+    }
+    scheduler.awaitCompletion();
+    assertTrue(maxRunning.get() <= 2);
+    assertEquals(20, scheduler.getCompleted());
+  }
+
+  @Test
+  public void testFailedTasksAreCounted() throws Exception {
+    GenerationScheduler scheduler = new GenerationScheduler(Type.FIXED, 1, 1, 0);
+    scheduler.start(2);
+    scheduler.submit(() -> {
+      throw new RuntimeException("expected");
+    });
+    scheduler.submit(() -> { });
+    scheduler.awaitCompletion();
+    assertEquals(2, scheduler.getCompleted());
+    assertEquals(1, scheduler.getFailed());
+  }
+}
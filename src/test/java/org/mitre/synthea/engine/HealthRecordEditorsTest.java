@@ -4,8 +4,13 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
 import java.util.List;
+import java.util.Set;
 
+import org.apache.commons.lang3.Range;
 import org.junit.Test;
 import org.mitre.synthea.world.agents.Person;
 import org.mitre.synthea.world.concepts.HealthRecord;
@@ -24,6 +29,39 @@ public class HealthRecordEditorsTest {
     }
   }
 
+  class Recorder implements HealthRecordEditor {
+    private final Range<Integer> ages;
+    private final Set<EntryType> types;
+    private final List<HealthRecord.Encounter> seen = new ArrayList<HealthRecord.Encounter>();
+    private int calls;
+
+    Recorder(Range<Integer> ages, Set<EntryType> types) {
+      this.ages = ages;
+      this.types = types;
+    }
+
+    @Override
+    public boolean shouldRun(Person person, HealthRecord record, long time) {
+      return true;
+    }
+
+    @Override
+    public void process(Person person, List<HealthRecord.Encounter> encounters, long time) {
+      seen.addAll(encounters);
+      calls++;
+    }
+
+    @Override
+    public Range<Integer> getAgeRange() {
+      return ages;
+    }
+
+    @Override
+    public Set<EntryType> getEntryTypes() {
+      return types;
+    }
+  }
+
   @Test
   public void getInstance() {
     assertNotNull(HealthRecordEditors.getInstance());
@@ -40,4 +78,75 @@ public class HealthRecordEditorsTest {
     assertEquals("01730", p.attributes.get(Person.ZIP));
     hrm.resetEditors();
   }
-}
\ No newline at end of file
+
+  @Test
+  public void executeAllWindowsEncounters() {
+    HealthRecordEditors hrm = HealthRecordEditors.getInstance();
+    Recorder all = new Recorder(null, null);
+    Recorder observations = new Recorder(null,
+        EnumSet.of(HealthRecordEditor.EntryType.OBSERVATION));
+    Recorder children = new Recorder(Range.between(0, 10), null);
+    hrm.registerEditor(all);
+    hrm.registerEditor(observations);
+    hrm.registerEditor(children);
+
+    Person p = new Person(1);
+    p.attributes.put(Person.BIRTHDATE, 0L);
+    HealthRecord record = new HealthRecord(p);
+    long step = 1000;
+    HealthRecord.Encounter first = record.encounterStart(step, HealthRecord.EncounterType.WELLNESS);
+    record.encounterEnd(step, HealthRecord.EncounterType.WELLNESS);
+    hrm.executeAll(p, record, step, step);
+    HealthRecord.Encounter second =
+        record.encounterStart(2 * step, HealthRecord.EncounterType.WELLNESS);
+    second.addObservation(2 * step, "8302-2", 150d);
+    record.encounterEnd(2 * step, HealthRecord.EncounterType.WELLNESS);
+    hrm.executeAll(p, record, 2 * step, step);
+    hrm.executeAll(p, record, 3 * step, step);
+    long adult = 20L * 365 * 24 * 60 * 60 * 1000;
+    HealthRecord.Encounter third =
+        record.encounterStart(adult, HealthRecord.EncounterType.WELLNESS);
+    record.encounterEnd(adult, HealthRecord.EncounterType.WELLNESS);
+    hrm.executeAll(p, record, adult, step);
+    hrm.resetEditors();
+
+    // each encounter that ended in the step it started is passed once, in that step
+    assertEquals(4, all.calls);
+    assertEquals(Arrays.asList(first, second, third), all.seen);
+    // only the step with an observation
+    assertEquals(1, observations.calls);
+    assertEquals(Arrays.asList(second), observations.seen);
+    // not once the person is an adult
+    assertEquals(3, children.calls);
+    assertEquals(Arrays.asList(first, second), children.seen);
+  }
+
+  @Test
+  public void executeAllRevisitsOpenEncounters() {
+    HealthRecordEditors hrm = HealthRecordEditors.getInstance();
+    Recorder observations = new Recorder(null,
+        EnumSet.of(HealthRecordEditor.EntryType.OBSERVATION));
+    hrm.registerEditor(observations);
+
+    Person p = new Person(1);
+    p.attributes.put(Person.BIRTHDATE, 0L);
+    HealthRecord record = new HealthRecord(p);
+    long step = 1000;
+    HealthRecord.Encounter inpatient =
+        record.encounterStart(step, HealthRecord.EncounterType.INPATIENT);
+    hrm.executeAll(p, record, step, step);
+    // an observation added in a later step, while the encounter is still open
+    inpatient.addObservation(3 * step, "8302-2", 150d);
+    hrm.executeAll(p, record, 2 * step, step);
+    hrm.executeAll(p, record, 3 * step, step);
+    // and one added in the step the encounter ends
+    inpatient.addObservation(4 * step, "29463-7", 50d);
+    record.encounterEnd(4 * step, HealthRecord.EncounterType.INPATIENT);
+    hrm.executeAll(p, record, 4 * step, step);
+    // the encounter is not passed again once it has ended
+    hrm.executeAll(p, record, 5 * step, step);
+    hrm.resetEditors();
+
+    assertEquals(Arrays.asList(inpatient, inpatient, inpatient), observations.seen);
+  }
+}
@@ -73,11 +73,13 @@ public class LogicTest {
     reader.close();
   }
 
-  private boolean doTest(String testName) {
+  private Logic getLogic(String testName) {
     JsonObject definition = tests.getAsJsonObject(testName);
-    Logic logic = Utilities.getGson().fromJson(definition, Logic.class);
+    return Utilities.getGson().fromJson(definition, Logic.class);
+  }
 
-    return logic.test(person, time);
+  private boolean doTest(String testName) {
+    return getLogic(testName).test(person, time);
   }
 
   @Test
@@ -99,6 +101,68 @@ public class LogicTest {
     assertFalse(doTest("genderIsMaleTest"));
   }
 
+  @Test
+  public void testInputs() {
+    Logic.Inputs inputs = getLogic("andAllTrueTest").getInputs();
+    assertTrue(inputs.isTracked());
+    assertFalse(inputs.readsTime());
+
+    inputs = getLogic("ageLt40Test").getInputs();
+    assertTrue(inputs.isTracked());
+    assertTrue(inputs.readsTime());
+    assertTrue(inputs.getAttributes().contains(Person.BIRTHDATE));
+
+    inputs = getLogic("diabetesConditionTest").getInputs();
+    assertTrue(inputs.isTracked());
+    assertTrue(inputs.getPresentCodes().contains("73211009"));
+
+    inputs = getLogic("alzheimersConditionTest").getInputs();
+    assertTrue(inputs.readsAnyPresent());
+    assertTrue(inputs.getAttributes().contains("Alzheimer's Variant"));
+
+    assertFalse(getLogic("priorStateDoctorVisitTest").getInputs().isTracked());
+  }
+
+  @Test
+  public void testChangedSinceAttribute() {
+    person.attributes.put(Person.GENDER, "F");
+    Logic logic = getLogic("genderIsMaleTest");
+    assertFalse(logic.test(person, time));
+    Logic.Snapshot snapshot = logic.snapshot(person, time);
+    assertFalse(logic.changedSince(person, time, snapshot));
+
+    person.attributes.put("Unrelated_Attribute", 1);
+    assertFalse(logic.changedSince(person, time, snapshot));
+
+    person.attributes.put(Person.GENDER, "M");
+    assertTrue(logic.changedSince(person, time, snapshot));
+  }
+
+  @Test
+  public void testChangedSinceAge() {
+    setPatientAge(45);
+    Logic logic = getLogic("ageLt40Test");
+    assertFalse(logic.test(person, time));
+    Logic.Snapshot snapshot = logic.snapshot(person, time);
+    assertFalse(logic.changedSince(person, time + Utilities.convertTime("days", 7), snapshot));
+    assertTrue(logic.changedSince(person, time + Utilities.convertTime("years", 2), snapshot));
+  }
+
+  @Test
+  public void testChangedSincePresentCode() {
+    person.record = new HealthRecord(person);
+    Logic logic = getLogic("diabetesConditionTest");
+    assertFalse(logic.test(person, time));
+    Logic.Snapshot snapshot = logic.snapshot(person, time);
+
+    person.record.conditionStart(time, "26929004");
+    assertFalse(logic.changedSince(person, time, snapshot));
+
+    person.record.conditionStart(time, "73211009");
+    assertTrue(logic.changedSince(person, time, snapshot));
+    assertTrue(logic.test(person, time));
+  }
+
   private void setPatientAge(int age) {
     LocalDateTime now = LocalDateTime.ofInstant(Instant.ofEpochMilli(time), ZoneId.of("UTC"));
 
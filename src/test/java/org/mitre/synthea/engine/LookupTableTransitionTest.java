@@ -635,4 +635,57 @@ public class LookupTableTransitionTest {
           e.getMessage().contains("does not match a JSON state to transition to in CSV table"));
     }
   }
-}
\ No newline at end of file
+
+  @Test
+  public void lookupTableReportsOverlappingRows() {
+    List<String> attributes = new ArrayList<String>();
+    attributes.add("gender");
+    List<String> male = new ArrayList<String>();
+    male.add("M");
+    LookupTable<String> table = new LookupTable.Builder<String>("test.csv", attributes, true)
+        .add(2, male, Range.between(0, 50), null, "young")
+        .add(3, male, Range.between(40, 140), null, "old")
+        .add(4, male, Range.between(10, 20), null, "unreachable")
+        .add(5, male, Range.between(0, 50), null, "replaced")
+        .build();
+    Assert.assertEquals(3, table.getWarnings().size());
+    Assert.assertTrue(table.getWarnings().get(0).startsWith("row 3 overlaps row 2"));
+    Assert.assertTrue(table.getWarnings().get(1).startsWith("row 4 is unreachable"));
+    Assert.assertTrue(table.getWarnings().get(2).startsWith("row 5 replaces row 2"));
+
+    Person person = new Person(0L);
+    person.attributes.put(Person.BIRTHDATE, 0L);
+    person.attributes.put("gender", "M");
+    long year = Utilities.convertTime("years", 1);
+    Assert.assertEquals("replaced", table.get(person, 45 * year + 1));
+    Assert.assertEquals("old", table.get(person, 60 * year + 1));
+    Assert.assertNull(table.get(person, 150 * year + 1));
+    person.attributes.put("gender", "F");
+    Assert.assertNull(table.get(person, 45 * year + 1));
+  }
+
+  @Test
+  public void lookupTableRepeatedKeyUsesLastValue() {
+    List<String> attributes = new ArrayList<String>();
+    attributes.add("gender");
+    List<String> male = new ArrayList<String>();
+    male.add("M");
+    // as with the HashMap of LookupTableKeys, a later row whose ranges cover an earlier row's
+    // replaces the earlier row's value, but keeps the earlier row's ranges
+    LookupTable<String> table = new LookupTable.Builder<String>("test.csv", attributes, true)
+        .add(2, male, Range.between(10, 20), null, "first")
+        .add(3, male, Range.between(0, 50), null, "second")
+        .add(4, male, Range.between(0, 50), null, "third")
+        .build();
+    Assert.assertEquals(2, table.getWarnings().size());
+    Assert.assertTrue(table.getWarnings().get(0).startsWith("row 3 replaces row 2"));
+    Assert.assertTrue(table.getWarnings().get(1).startsWith("row 4 replaces row 3"));
+
+    Person person = new Person(0L);
+    person.attributes.put(Person.BIRTHDATE, 0L);
+    person.attributes.put("gender", "M");
+    long year = Utilities.convertTime("years", 1);
+    Assert.assertEquals("third", table.get(person, 15 * year + 1));
+    Assert.assertNull(table.get(person, 30 * year + 1));
+  }
+}
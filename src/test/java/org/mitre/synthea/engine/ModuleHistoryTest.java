@@ -0,0 +1,158 @@
+package org.mitre.synthea.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+import org.mitre.synthea.helpers.Config;
+import org.mitre.synthea.world.agents.Person;
+
+public class ModuleHistoryTest {
+
+  private static State state(String name, Long exited) {
+    State state = new State.Simple();
+    state.name = name;
+    state.exited = exited;
+    return state;
+  }
+
+  @Test
+  public void testOrdering() {
+    ModuleHistory history = new ModuleHistory(0);
+    State a = state("A", 1L);
+    State b = state("B", 2L);
+    history.add(0, a);
+    history.add(0, b);
+    assertEquals(2, history.size());
+    assertSame(b, history.get(0));
+    assertSame(a, history.get(1));
+
+    List<State> submodule = new LinkedList<State>();
+    State c = state("C", 3L);
+    State d = state("D", 4L);
+    submodule.add(0, c);
+    submodule.add(0, d);
+    history.addAll(0, submodule);
+    assertEquals(4, history.size());
+    assertSame(d, history.get(0));
+    assertSame(c, history.get(1));
+    assertSame(b, history.get(2));
+  }
+
+  @Test
+  public void testAddWithoutIndex() {
+    ModuleHistory history = new ModuleHistory(0);
+    State a = state("A", 1L);
+    State b = state("B", 2L);
+    assertTrue(history.add(a));
+    assertTrue(history.add(b));
+    assertSame(b, history.get(0));
+    assertSame(a, history.get(1));
+
+    List<State> submodule = new LinkedList<State>();
+    State c = state("C", 3L);
+    State d = state("D", 4L);
+    submodule.add(d);
+    submodule.add(c);
+    assertTrue(history.addAll(submodule));
+    assertEquals(4, history.size());
+    assertSame(d, history.get(0));
+    assertSame(c, history.get(1));
+    assertSame(b, history.get(2));
+    assertTrue(history.hadPriorState("A", null, null));
+  }
+
+  @Test
+  public void testHadPriorState() {
+    ModuleHistory history = new ModuleHistory(0);
+    history.add(0, state("Initial", 0L));
+    history.add(0, state("A", 10L));
+    history.add(0, state("B", 20L));
+    history.add(0, state("C", null));
+
+    assertTrue(history.hadPriorState("A", null, null));
+    assertFalse(history.hadPriorState("Z", null, null));
+    assertFalse(history.hadPriorState("A", "B", null));
+    assertTrue(history.hadPriorState("B", "A", null));
+    assertFalse(history.hadPriorState("A", "A", null));
+    assertTrue(history.hadPriorState("A", null, 5L));
+    assertFalse(history.hadPriorState("A", null, 10L));
+    assertTrue(history.hadPriorState("C", null, 100L));
+  }
+
+  @Test
+  public void testMatchesLinearScan() {
+    Random random = new Random(42L);
+    String[] names = { "A", "B", "C", "D", "E" };
+    for (int trial = 0; trial < 50; trial++) {
+      ModuleHistory indexed = new ModuleHistory(0);
+      Person person = new Person(trial);
+      person.history = new LinkedList<State>();
+      long time = 0;
+      int length = 1 + random.nextInt(40);
+      for (int i = 0; i < length; i++) {
+        time += random.nextInt(3);
+        State state = state(names[random.nextInt(names.length)],
+            (i == length - 1) ? null : time);
+        indexed.add(0, state);
+        person.history.add(0, state);
+      }
+      for (String name : names) {
+        for (String since : new String[] { null, "A", "C" }) {
+          for (Long within : new Long[] { null, 0L, time / 2, time }) {
+            assertEquals(person.hadPriorState(name, since, within),
+                indexed.hadPriorState(name, since, within));
+          }
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testEviction() {
+    ModuleHistory history = new ModuleHistory(4);
+    history.add(0, state("Initial", 0L));
+    for (int i = 1; i <= 20; i++) {
+      history.add(0, state("S" + i, (long) i));
+    }
+    assertTrue(history.size() <= 5);
+    assertEquals(21, history.size() + history.getEvictedCount());
+    assertEquals("S20", history.get(0).name);
+    assertTrue(history.hadPriorState("Initial", null, null));
+    assertFalse(history.hadPriorState("Initial", "S3", null));
+    assertFalse(history.hadPriorState("S1", null, 5L));
+    assertTrue(history.hadPriorState("S19", null, 5L));
+  }
+
+  @Test
+  public void testMaxEntriesReadFromConfig() {
+    String previous = Config.get("generate.module_history.max_entries");
+    try {
+      Config.set("generate.module_history.max_entries", "4");
+      ModuleHistory history = new ModuleHistory();
+      for (int i = 0; i < 20; i++) {
+        history.add(0, state("S" + i, (long) i));
+      }
+      assertTrue(history.getEvictedCount() > 0);
+
+      Config.set("generate.module_history.max_entries", "0");
+      history = new ModuleHistory();
+      for (int i = 0; i < 20; i++) {
+        history.add(0, state("S" + i, (long) i));
+      }
+      assertEquals(0, history.getEvictedCount());
+    } finally {
+      if (previous == null) {
+        Config.remove("generate.module_history.max_entries");
+      } else {
+        Config.set("generate.module_history.max_entries", previous);
+      }
+    }
+  }
+}
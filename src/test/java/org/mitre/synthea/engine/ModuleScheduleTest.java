@@ -0,0 +1,165 @@
+package org.mitre.synthea.engine;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+
+import org.junit.Test;
+import org.mitre.synthea.TestHelper;
+import org.mitre.synthea.helpers.Utilities;
+import org.mitre.synthea.world.agents.Person;
+
+public class ModuleScheduleTest {
+  private static final long TIMESTEP = Utilities.convertTime("days", 7);
+
+  /**
+   * Counts how often a module is processed.
+   */
+  private static class CountingModule extends Module {
+    private final Module module;
+    private int processed;
+
+    private CountingModule(Module module) {
+      this.module = module;
+      this.name = module.name;
+    }
+
+    @Override
+    public boolean process(Person person, long time) {
+      processed++;
+      return module.process(person, time);
+    }
+
+    @Override
+    public long getNextProcessTime(Person person) {
+      return module.getNextProcessTime(person);
+    }
+  }
+
+  /**
+   * Draws a random number on every time step, like the Java modules.
+   */
+  private static class RandomModule extends Module {
+    private final List<Double> draws = new ArrayList<Double>();
+
+    private RandomModule() {
+      this.name = "Random";
+    }
+
+    @Override
+    public boolean process(Person person, long time) {
+      draws.add(person.rand());
+      return false;
+    }
+  }
+
+  /**
+   * Records the death of the person at the given time.
+   */
+  private static class DyingModule extends Module {
+    private final long deathTime;
+
+    private DyingModule(long deathTime) {
+      this.name = "Dying";
+      this.deathTime = deathTime;
+    }
+
+    @Override
+    public boolean process(Person person, long time) {
+      if (time >= deathTime) {
+        person.recordDeath(time, null);
+      }
+      return false;
+    }
+  }
+
+  private static Person person(long birth, Module... modules) {
+    Person person = new Person(0L);
+    person.attributes.put(Person.BIRTHDATE, birth);
+    person.currentModules = new ArrayList<Module>(Arrays.asList(modules));
+    return person;
+  }
+
+  private static List<String> states(Person person, String moduleName) {
+    List<String> states = new ArrayList<String>();
+    for (Object state : (List<?>) person.attributes.get(moduleName)) {
+      State s = (State) state;
+      states.add(s.name + " " + s.entered + " " + s.exited);
+    }
+    return states;
+  }
+
+  @Test
+  public void testSameResultsAsProcessingEveryStep() throws Exception {
+    long start = TestHelper.timestamp(2000, 1, 1, 0, 0, 0);
+    long stop = start + TestHelper.years(40);
+
+    // process every module on every time step
+    RandomModule expectedRandom = new RandomModule();
+    Person expected = person(start, TestHelper.getFixture("delay.json"), expectedRandom,
+        TestHelper.getFixture("gaussian_distro_delay.json"));
+    for (long time = start; time < stop; time += TIMESTEP) {
+      Iterator<Module> iter = expected.currentModules.iterator();
+      while (iter.hasNext()) {
+        if (iter.next().process(expected, time)) {
+          iter.remove();
+        }
+      }
+    }
+
+    CountingModule delay = new CountingModule(TestHelper.getFixture("delay.json"));
+    RandomModule random = new RandomModule();
+    CountingModule gaussian =
+        new CountingModule(TestHelper.getFixture("gaussian_distro_delay.json"));
+    Person person = person(start, delay, random, gaussian);
+    ModuleSchedule schedule = new ModuleSchedule(person);
+    int steps = 0;
+    for (long time = start; time < stop; time += TIMESTEP) {
+      schedule.process(time);
+      steps++;
+    }
+
+    assertEquals(states(expected, delay.name), states(person, delay.name));
+    assertEquals(states(expected, gaussian.name), states(person, gaussian.name));
+    assertEquals(expectedRandom.draws, random.draws);
+    assertEquals(steps, random.draws.size());
+    // modules are removed once they complete
+    assertEquals(Arrays.asList(random), person.currentModules);
+    // the module only runs when one of its delays ends
+    assertTrue(delay.processed < 20);
+    assertEquals(2, gaussian.processed);
+  }
+
+  @Test
+  public void testModulesAfterDeathAreRemoved() throws Exception {
+    long start = TestHelper.timestamp(2000, 1, 1, 0, 0, 0);
+    long stop = start + TestHelper.years(10);
+    long death = start + TestHelper.years(1);
+
+    // process every module on every time step
+    Module expectedDying = new DyingModule(death);
+    Person expected = person(start, expectedDying, TestHelper.getFixture("delay.json"));
+    for (long time = start; expected.alive(time) && time < stop; time += TIMESTEP) {
+      Iterator<Module> iter = expected.currentModules.iterator();
+      while (iter.hasNext()) {
+        if (iter.next().process(expected, time)) {
+          iter.remove();
+        }
+      }
+    }
+    assertEquals(Arrays.asList(expectedDying), expected.currentModules);
+
+    // the delay module is waiting in a two year delay when the person dies
+    Module dying = new DyingModule(death);
+    Person person = person(start, dying, TestHelper.getFixture("delay.json"));
+    ModuleSchedule schedule = new ModuleSchedule(person);
+    for (long time = start; person.alive(time) && time < stop; time += TIMESTEP) {
+      schedule.process(time);
+    }
+    assertEquals(Arrays.asList(dying), person.currentModules);
+  }
+}
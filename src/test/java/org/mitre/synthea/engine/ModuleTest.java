@@ -26,8 +26,10 @@ import java.util.Random;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
@@ -167,7 +169,37 @@ public class ModuleTest {
     assertNotNull(module);
     assertEquals("COPD Module", module.name);
   }
-  
+
+  @Test
+  public void moduleSupplierLoadsOnce() throws Exception {
+    Module copd = Module.getModuleByPath("copd");
+    AtomicInteger loads = new AtomicInteger();
+    Module.ModuleSupplier supplier = new Module.ModuleSupplier(false, "copd", () -> {
+      loads.incrementAndGet();
+      return copd;
+    });
+    ExecutorService service = Executors.newFixedThreadPool(8);
+    List<Callable<Module>> calls = new ArrayList<Callable<Module>>();
+    for (int i = 0; i < 32; i++) {
+      calls.add(supplier::get);
+    }
+    for (Future<Module> result : service.invokeAll(calls)) {
+      assertEquals("COPD Module", result.get().name);
+    }
+    service.shutdown();
+    assertEquals(1, loads.get());
+  }
+
+  @Test
+  public void clonesShareStateDefinitions() {
+    Module moduleA = Module.getModuleByPath("copd");
+    Module moduleB = Module.getModuleByPath("copd");
+    assertTrue(moduleA != moduleB);
+    for (String stateName : moduleA.getStateNames()) {
+      assertSame(moduleA.getState(stateName), moduleB.getState(stateName));
+    }
+  }
+
   @Test
   public void addLocalModules() {
     Module.addModules(new File("src/test/resources/module"));
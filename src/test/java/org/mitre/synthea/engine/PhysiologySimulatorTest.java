@@ -1,6 +1,7 @@
 package org.mitre.synthea.engine;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertTrue;
 
 import com.google.common.collect.Lists;
@@ -22,6 +23,7 @@ import org.apache.commons.math.ode.DerivativeException;
 import org.junit.Before;
 import org.junit.Test;
 import org.junit.rules.TemporaryFolder;
+import org.mitre.synthea.helpers.Config;
 import org.simulator.math.odes.MultiTable;
 import org.simulator.math.odes.MultiTable.Block.Column;
 
@@ -156,6 +158,53 @@ public class PhysiologySimulatorTest {
     assertEquals(1.0, physio.getParamDefault("period"), 0.001);
   }
   
+  @Test
+  public void testSharedResults() throws DerivativeException {
+    PhysiologySimulator physio = new PhysiologySimulator(
+        "circulation/Smith2004_CVS_human.xml", "runge_kutta", 0.01, 4);
+    PhysiologySimulator other = new PhysiologySimulator(
+        "circulation/Smith2004_CVS_human.xml", "runge_kutta", 0.01, 4);
+    Map<String, Double> inputs = new HashMap<String, Double>();
+    inputs.put("R_sys", 1.814);
+
+    try {
+      PhysiologySimulator.configureResultCache(6, 256);
+      MultiTable results = physio.run(inputs);
+      double value = results.getValueAt(1, 1);
+      assertEquals(1, PhysiologySimulator.getCachedResultCount());
+
+      // the caller's copy can be changed without changing the shared result
+      results.setValueAt(value + 1.0, 1, 1);
+      inputs.put("R_sys", 1.8140000001);
+      MultiTable shared = other.run(inputs);
+      assertNotSame(results, shared);
+      assertEquals(value, shared.getValueAt(1, 1), 0.0);
+      assertEquals(results.getRowCount(), shared.getRowCount());
+      assertEquals(1, PhysiologySimulator.getCachedResultCount());
+
+      inputs.put("R_sys", 1.9);
+      other.run(inputs);
+      assertEquals(2, PhysiologySimulator.getCachedResultCount());
+
+      // results are not kept unless inputs are rounded
+      PhysiologySimulator.configureResultCache(0, 256);
+      physio.run(inputs);
+      assertEquals(0, PhysiologySimulator.getCachedResultCount());
+    } finally {
+      PhysiologySimulator.configureResultCache(
+          Integer.parseInt(Config.get("physiology.cache.significant_digits", "0")),
+          Long.parseLong(Config.get("physiology.cache.max_megabytes", "256")));
+    }
+  }
+
+  @Test
+  public void testQuantize() {
+    assertEquals(1.23457, PhysiologySimulator.quantize(1.234567, 6), 0.0);
+    assertEquals(123457000.0, PhysiologySimulator.quantize(123456789.0, 6), 0.0);
+    assertEquals(0.0, PhysiologySimulator.quantize(0.0, 6), 0.0);
+    assertEquals(-0.00123457, PhysiologySimulator.quantize(-0.001234567, 6), 0.0);
+  }
+
   @Test(expected = RuntimeException.class)
   public void testInvalidModelFile() {
     new PhysiologySimulator("i_dont_exist.xml", "runge_kutta", 0.01, 4);
@@ -142,6 +142,18 @@ public class StateTest {
     assertFalse(guard.process(person, time));
   }
 
+  @Test
+  public void guard_passes_once_its_inputs_change() throws Exception {
+    Module module = TestHelper.getFixture("guard.json");
+    State guard = module.getState("Gender_Guard").clone();
+    person.attributes.put(Person.GENDER, "M");
+    assertFalse(guard.process(person, time));
+    person.attributes.put("Unrelated_Attribute", true);
+    assertFalse(guard.process(person, time));
+    person.attributes.put(Person.GENDER, "F");
+    assertTrue(guard.process(person, time));
+  }
+
   @Test
   public void counter() throws Exception {
     Module module = TestHelper.getFixture("counter.json");
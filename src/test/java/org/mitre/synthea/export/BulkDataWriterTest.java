@@ -0,0 +1,116 @@
+package org.mitre.synthea.export;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class BulkDataWriterTest {
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  @Test
+  public void testConcurrentAppend() throws Exception {
+    Path dir = tempFolder.newFolder().toPath();
+    BulkDataWriter writer = new BulkDataWriter(0, 50);
+    List<Thread> threads = new ArrayList<Thread>();
+    for (int t = 0; t < 4; t++) {
+      final int thread = t;
+      threads.add(new Thread(() -> {
+        for (int i = 0; i < 500; i++) {
+          writer.append(dir, (i % 2 == 0) ? "Patient" : "Observation", thread + ":" + i);
+        }
+      }));
+    }
+    for (Thread thread : threads) {
+      thread.start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    writer.close();
+
+    List<String> patients = Files.readAllLines(dir.resolve("Patient.ndjson"));
+    List<String> observations = Files.readAllLines(dir.resolve("Observation.ndjson"));
+    assertEquals(1000, patients.size());
+    assertEquals(1000, observations.size());
+    Set<String> unique = new HashSet<String>(patients);
+    unique.addAll(observations);
+    assertEquals(2000, unique.size());
+  }
+
+  @Test
+  public void testAppendsToExistingFile() throws Exception {
+    Path dir = tempFolder.newFolder().toPath();
+    Files.write(dir.resolve("Patient.ndjson"), "first\n".getBytes(StandardCharsets.UTF_8));
+    BulkDataWriter writer = new BulkDataWriter(0, 10);
+    writer.append(dir, "Patient", "second");
+    writer.flush();
+    assertEquals(2, Files.readAllLines(dir.resolve("Patient.ndjson")).size());
+    writer.close();
+  }
+
+  @Test
+  public void testLinesReachFileWithoutFlush() throws Exception {
+    Path dir = tempFolder.newFolder().toPath();
+    BulkDataWriter writer = new BulkDataWriter(0, 10);
+    writer.append(dir, "Patient", "first");
+    Path file = dir.resolve("Patient.ndjson");
+    long deadline = System.currentTimeMillis() + 10_000L;
+    while (!(Files.exists(file) && Files.readAllLines(file).contains("first"))
+        && System.currentTimeMillis() < deadline) {
+      Thread.sleep(50L);
+    }
+    assertEquals(Collections.singletonList("first"), Files.readAllLines(file));
+    writer.close();
+  }
+
+  @Test
+  public void testAppendAfterClose() throws Exception {
+    Path dir = tempFolder.newFolder().toPath();
+    BulkDataWriter writer = new BulkDataWriter(0, 10);
+    writer.append(dir, "Patient", "first");
+    writer.close();
+    writer.append(dir, "Patient", "second");
+    writer.append(dir, "Observation", "third");
+    assertEquals(Arrays.asList("first", "second"),
+        Files.readAllLines(dir.resolve("Patient.ndjson")));
+    assertEquals(Collections.singletonList("third"),
+        Files.readAllLines(dir.resolve("Observation.ndjson")));
+  }
+
+  @Test
+  public void testRolling() throws Exception {
+    Path dir = tempFolder.newFolder().toPath();
+    BulkDataWriter writer = new BulkDataWriter(100, 10);
+    int lines = 50;
+    for (int i = 0; i < lines; i++) {
+      writer.append(dir, "Observation", String.format("{\"id\":\"%05d\"}", i));
+    }
+    writer.close();
+
+    assertFalse(Files.exists(dir.resolve("Observation.ndjson")));
+    assertTrue(Files.exists(dir.resolve("Observation.000.ndjson")));
+    assertTrue(Files.exists(dir.resolve("Observation.001.ndjson")));
+    int total = 0;
+    for (File file : dir.toFile().listFiles()) {
+      assertTrue(file.length() < 100 + 20);
+      total += Files.readAllLines(file.toPath()).size();
+    }
+    assertEquals(lines, total);
+  }
+}
@@ -0,0 +1,72 @@
+package org.mitre.synthea.export;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.mitre.synthea.helpers.Config;
+
+public class ExportSettingsTest {
+  private String csv;
+  private String yearsOfHistory;
+
+  /**
+   * Remember the properties changed by the tests.
+   */
+  @Before
+  public void setup() {
+    csv = Config.get("exporter.csv.export");
+    yearsOfHistory = Config.get("exporter.years_of_history");
+  }
+
+  /**
+   * Restore the properties changed by the tests.
+   */
+  @After
+  public void tearDown() {
+    Config.set("exporter.csv.export", csv);
+    Config.set("exporter.years_of_history", yearsOfHistory);
+  }
+
+  @Test
+  public void testSettingsChangeWithConfig() {
+    Config.set("exporter.csv.export", "true");
+    Config.set("exporter.years_of_history", "5");
+    ExportSettings settings = ExportSettings.get();
+    assertTrue(settings.csv);
+    assertEquals(5, settings.yearsOfHistory);
+    // settings are only parsed again after the configuration changes
+    assertSame(settings, ExportSettings.get());
+
+    Config.set("exporter.csv.export", "false");
+    Config.set("exporter.years_of_history", "0");
+    settings = ExportSettings.get();
+    assertFalse(settings.csv);
+    assertEquals(0, settings.yearsOfHistory);
+  }
+
+  @Test
+  public void testLenientBoolean() {
+    // values other than true are false, as with Config.getAsBoolean
+    Config.set("exporter.csv.export", "yes");
+    assertFalse(ExportSettings.get().csv);
+    Config.set("exporter.csv.export", "");
+    assertFalse(ExportSettings.get().csv);
+    Config.set("exporter.csv.export", " TRUE ");
+    assertEquals(Config.getAsBoolean("exporter.csv.export"), ExportSettings.get().csv);
+  }
+
+  @Test
+  public void testMalformedNumberUsesDefault() {
+    Config.set("exporter.years_of_history", "ten");
+    assertEquals(0, ExportSettings.get().yearsOfHistory);
+    Config.set("exporter.years_of_history", "");
+    assertEquals(0, ExportSettings.get().yearsOfHistory);
+    Config.set("exporter.years_of_history", " 7 ");
+    assertEquals(7, ExportSettings.get().yearsOfHistory);
+  }
+}
@@ -9,7 +9,12 @@ import ca.uhn.fhir.parser.IParser;
 import ca.uhn.fhir.validation.ResultSeverityEnum;
 import ca.uhn.fhir.validation.SingleValidationMessage;
 import ca.uhn.fhir.validation.ValidationResult;
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonPrimitive;
 
+import java.io.StringWriter;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.LinkedList;
@@ -91,6 +96,53 @@ public class FHIRR4ExporterTest {
     assertTrue(q.getValue().compareTo(BigDecimal.valueOf(0.00012346)) == 0);
   }
 
+  @Test
+  public void testStreamingMatchesBundle() throws Exception {
+    TestHelper.loadTestProperties();
+    Generator.DEFAULT_STATE = Config.get("test_state.default", "Massachusetts");
+    Config.set("exporter.baseDirectory", tempFolder.newFolder().toString());
+    TestHelper.exportOff();
+    Generator generator = new Generator(1);
+    generator.options.overflow = false;
+    Person person = generator.generatePerson(0);
+    FhirR4.TRANSACTION_BUNDLE = true;
+    FhirR4.USE_US_CORE_IG = true;
+    FhirR4.USE_SHR_EXTENSIONS = false;
+    long stopTime = System.currentTimeMillis();
+
+    IParser parser = FhirR4.getContext().newJsonParser().setPrettyPrint(false);
+    JsonParser json = new JsonParser();
+    List<JsonElement> expected = new ArrayList<JsonElement>();
+    for (BundleEntryComponent entry : FhirR4.convertToFHIR(person, stopTime).getEntry()) {
+      expected.add(new JsonPrimitive(entry.getFullUrl()));
+      expected.add(json.parse(parser.encodeResourceToString(entry.getResource())));
+    }
+    List<JsonElement> streamed = new ArrayList<JsonElement>();
+    FhirR4.convertToFHIR(person, stopTime, entry -> {
+      streamed.add(new JsonPrimitive(entry.getFullUrl()));
+      streamed.add(json.parse(parser.encodeResourceToString(entry.getResource())));
+    });
+    // every resource, including its id and references, must be identical and in the same order
+    assertEquals(expected, streamed);
+
+    StringWriter writer = new StringWriter();
+    FhirR4.writeFHIRJson(person, stopTime, writer);
+    Bundle bundle = FhirR4.getContext().newJsonParser()
+        .parseResource(Bundle.class, writer.toString());
+    assertEquals(Bundle.BundleType.TRANSACTION, bundle.getType());
+    for (BundleEntryComponent entry : bundle.getEntry()) {
+      assertTrue(entry.getRequest().hasUrl());
+    }
+    // compare the written JSON itself, so parsing the Bundle cannot change the resource ids
+    List<JsonElement> written = new ArrayList<JsonElement>();
+    JsonArray entries = json.parse(writer.toString()).getAsJsonObject().getAsJsonArray("entry");
+    for (JsonElement entry : entries) {
+      written.add(entry.getAsJsonObject().get("fullUrl"));
+      written.add(entry.getAsJsonObject().get("resource"));
+    }
+    assertEquals(expected, written);
+  }
+
   @Test
   public void testFHIRR4Export() throws Exception {
     TestHelper.loadTestProperties();
@@ -0,0 +1,94 @@
+package org.mitre.synthea.export;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.mitre.synthea.helpers.Config;
+import org.mitre.synthea.world.agents.Person;
+
+public class OutputLayoutTest {
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
+  private String baseDirectory;
+  private String subfolders;
+  private String depth;
+  private Person person;
+
+  /**
+   * Export to a temporary folder, sharded by id.
+   */
+  @Before
+  public void setup() {
+    baseDirectory = Config.get("exporter.baseDirectory");
+    subfolders = Config.get("exporter.subfolders_by_id_substring");
+    depth = Config.get("exporter.subfolders_by_id_substring.depth", "2");
+    Config.set("exporter.baseDirectory", tempFolder.getRoot().toString());
+    Config.set("exporter.subfolders_by_id_substring", "true");
+    OutputLayout.reset();
+    person = new Person(0L);
+    person.attributes.put(Person.ID, "c0ffee00-0000-4000-8000-000000000000");
+  }
+
+  /**
+   * Restore the export settings.
+   */
+  @After
+  public void tearDown() {
+    Config.set("exporter.baseDirectory", baseDirectory);
+    Config.set("exporter.subfolders_by_id_substring", subfolders);
+    Config.set("exporter.subfolders_by_id_substring.depth", depth);
+    OutputLayout.reset();
+  }
+
+  @Test
+  public void testShardedFolders() {
+    Path root = tempFolder.getRoot().toPath();
+    Path folder = OutputLayout.getFolder("fhir", person);
+    assertEquals(Paths.get(root.toString(), "fhir", "c0", "c0f"), folder);
+    assertTrue(folder.toFile().isDirectory());
+    assertSame(folder, OutputLayout.getFolder("fhir", person));
+
+    // every 2 and 3 character shard exists before it is used
+    File[] shards = root.resolve("fhir").toFile().listFiles();
+    assertEquals(256, shards.length);
+    for (File shard : shards) {
+      assertEquals(16, shard.listFiles().length);
+    }
+    assertTrue(root.resolve("fhir").resolve("ff").resolve("fff").toFile().isDirectory());
+
+    // files that are not for one person are not sharded
+    assertEquals(root.resolve("csv"), OutputLayout.getFolder("csv", null));
+    assertTrue(root.resolve("csv").toFile().isDirectory());
+  }
+
+  @Test
+  public void testShardDepth() {
+    Config.set("exporter.subfolders_by_id_substring.depth", "3");
+    Path folder = OutputLayout.getFolder("ccda", person);
+    assertEquals(Paths.get(tempFolder.getRoot().toString(), "ccda", "c0", "c0f", "c0ff"),
+        folder);
+    assertTrue(folder.toFile().isDirectory());
+    // only the 2 and 3 character shards are created up front
+    assertEquals(1, folder.getParent().toFile().listFiles().length);
+  }
+
+  @Test
+  public void testUnsharded() {
+    Config.set("exporter.subfolders_by_id_substring", "false");
+    Path folder = OutputLayout.getFolder("text", person);
+    assertEquals(tempFolder.getRoot().toPath().resolve("text"), folder);
+    assertTrue(folder.toFile().isDirectory());
+    assertEquals(0, folder.toFile().listFiles().length);
+  }
+}
@@ -130,4 +130,22 @@ public class ExpressionProcessorTest {
     assertEquals(18.0, result.doubleValue(), 0.0001);
     
   }
+
+  @Test
+  public void testCompiledOnce() {
+    ExpressionProcessor first = new ExpressionProcessor("#{cache_attr} * 4 + 1");
+    long misses = ExpressionProcessor.getCacheMisses();
+    long hits = ExpressionProcessor.getCacheHits();
+
+    ExpressionProcessor second = new ExpressionProcessor("  #{cache_attr} * 4 + 1 ");
+    assertEquals(misses, ExpressionProcessor.getCacheMisses());
+    assertEquals(hits + 1, ExpressionProcessor.getCacheHits());
+
+    Person p = new Person(0L);
+    p.attributes.put("cache_attr", 5);
+    assertEquals(21, ((Number) first.evaluate(p, 0L)).intValue());
+    p.attributes.put("cache_attr", 2);
+    assertEquals(9, ((Number) second.evaluate(p, 0L)).intValue());
+    assertEquals(9, ((Number) first.evaluate(p, 0L)).intValue());
+  }
 }
@@ -2,6 +2,13 @@ package org.mitre.synthea.helpers;
 
 import java.io.IOException;
 import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -37,4 +44,56 @@ public class FactTableTest {
     Assert.assertTrue(output.contains(he + ",He"));    
   }
 
+  @Test
+  public void testNextId() throws IOException {
+    FactTable table = new FactTable();
+    table.setHeader("ID,NAME");
+    Assert.assertEquals(1, table.addFact("1", "One"));
+    table.setNextId(100);
+    Assert.assertEquals(100, table.addFact("100", "Hundred"));
+    Assert.assertEquals(101, table.addFact("101", null));
+    Assert.assertEquals(1, table.addFact("1", "Ignored"));
+
+    Assert.assertEquals("One", table.getFactById(1));
+    Assert.assertEquals("Hundred", table.getFactByKey("100"));
+    Assert.assertNull(table.getFactById(2));
+    Assert.assertNull(table.getFactByKey("2"));
+
+    StringWriter writer = new StringWriter();
+    table.write(writer);
+    String newline = System.lineSeparator();
+    Assert.assertEquals("ID,NAME" + newline + "1,One" + newline + "100,Hundred" + newline
+        + "101," + newline, writer.toString());
+  }
+
+  @Test
+  public void testConcurrentFacts() throws Exception {
+    FactTable table = new FactTable();
+    table.setHeader("ID,NAME");
+    int threads = 8;
+    int facts = 1000;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    List<Future<List<Integer>>> futures = new ArrayList<Future<List<Integer>>>();
+    for (int t = 0; t < threads; t++) {
+      futures.add(executor.submit(() -> {
+        List<Integer> ids = new ArrayList<Integer>();
+        for (int i = 0; i < facts; i++) {
+          ids.add(table.addFact("key" + i, "fact" + i));
+        }
+        return ids;
+      }));
+    }
+    List<Integer> first = futures.get(0).get();
+    for (Future<List<Integer>> future : futures) {
+      // every thread gets the same ID for the same key
+      Assert.assertEquals(first, future.get());
+    }
+    executor.shutdown();
+
+    Set<Integer> unique = new HashSet<Integer>(first);
+    Assert.assertEquals(facts, unique.size());
+    for (int i = 0; i < facts; i++) {
+      Assert.assertEquals("fact" + i, table.getFactById(first.get(i)));
+    }
+  }
 }
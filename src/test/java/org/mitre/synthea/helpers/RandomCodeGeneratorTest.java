@@ -14,6 +14,7 @@ import org.junit.Before;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
 import org.junit.runner.RunWith;
 import org.mitre.synthea.world.concepts.HealthRecord.Code;
 import org.mockito.ArgumentMatchers;
@@ -38,6 +39,9 @@ public class RandomCodeGeneratorTest {
   @Rule
   public ExpectedException thrown = ExpectedException.none();
 
+  @Rule
+  public TemporaryFolder tempFolder = new TemporaryFolder();
+
   @Mock
   private RestTemplate restTemplate;
 
@@ -156,6 +160,26 @@ public class RandomCodeGeneratorTest {
     RandomCodeGenerator.getCode(VALUE_SET_URI, SEED, this.code);
   }
 
+  @Test
+  public void retriesFailedExpansion() {
+    Mockito
+        .when(restTemplate.exchange(ArgumentMatchers.anyString(),
+            ArgumentMatchers.eq(HttpMethod.GET),
+            ArgumentMatchers.<HttpEntity<?>>any(),
+            ArgumentMatchers.<Class<String>>any()))
+        .thenThrow(new RestClientException("unavailable"))
+        .thenReturn(new ResponseEntity<String>(getResponseToStub("codes.json"), HttpStatus.OK));
+
+    try {
+      RandomCodeGenerator.getCode(VALUE_SET_URI, SEED, this.code);
+      Assert.fail("Expected the first expansion to fail");
+    } catch (RestClientException e) {
+      // the failure is not cached
+    }
+    Code code = RandomCodeGenerator.getCode(VALUE_SET_URI, SEED, this.code);
+    Assert.assertEquals("312858004", code.code);
+  }
+
   @Test
   public void filterCodesTest() {
     Mockito
@@ -171,6 +195,34 @@ public class RandomCodeGeneratorTest {
     Assert.assertTrue("Verify filter", code.display.contains("tracheobronchial"));
   }
 
+  @Test
+  public void cachesExpansionsOnDisk() throws IOException {
+    Mockito
+        .when(restTemplate.exchange(ArgumentMatchers.anyString(),
+            ArgumentMatchers.eq(HttpMethod.GET),
+            ArgumentMatchers.<HttpEntity<?>>any(),
+            ArgumentMatchers.<Class<String>>any()))
+        .thenReturn(new ResponseEntity<String>(getResponseToStub("codes.json"), HttpStatus.OK));
+    String previous = Config.get("generate.terminology_service_cache", "");
+    Config.set("generate.terminology_service_cache", tempFolder.getRoot().toString());
+    try {
+      Code first = RandomCodeGenerator.getCode(VALUE_SET_URI, SEED, this.code);
+      Assert.assertEquals(1, tempFolder.getRoot().listFiles().length);
+      Assert.assertTrue(RandomCodeGenerator.selectedCodes.contains(first.code));
+
+      // a later run reads the expansion from disk instead of the terminology service
+      RandomCodeGenerator.codeListCache.clear();
+      Code second = RandomCodeGenerator.getCode(VALUE_SET_URI, SEED, this.code);
+      Assert.assertEquals(first.code, second.code);
+      Mockito.verify(restTemplate, Mockito.times(1)).exchange(ArgumentMatchers.anyString(),
+          ArgumentMatchers.eq(HttpMethod.GET),
+          ArgumentMatchers.<HttpEntity<?>>any(),
+          ArgumentMatchers.<Class<String>>any());
+    } finally {
+      Config.set("generate.terminology_service_cache", previous);
+    }
+  }
+
   @Test
   public void invalidValueSetUrlTest() {
     Code code = RandomCodeGenerator.getCode("", SEED, this.code);
@@ -1,8 +1,14 @@
 package org.mitre.synthea.helpers;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 
@@ -27,5 +33,37 @@ public class SimpleCSVTest {
     // Valid
     assertTrue(SimpleCSV.isValid(csv));
   }
-  
+
+  @Test public void testParseReader() throws IOException {
+    String csv = "\uFEFFID,NAME,NOTE\r\n0,Alice,\"says \"\"hi\"\", twice\"\r\n\r\n"
+        + "1,Bob,\"two\nlines\"\n2,,\n3,Dana";
+    List<LinkedHashMap<String,String>> data = new ArrayList<LinkedHashMap<String,String>>();
+    SimpleCSV.parseLineByLine(new StringReader(csv), null, null).forEachRemaining(data::add);
+    assertEquals(4, data.size());
+    assertEquals(Arrays.asList("ID", "NAME", "NOTE"), new ArrayList<>(data.get(0).keySet()));
+    assertEquals("says \"hi\", twice", data.get(0).get("NOTE"));
+    assertEquals("two\nlines", data.get(1).get("NOTE"));
+    assertEquals("", data.get(2).get("NAME"));
+    assertEquals("", data.get(2).get("NOTE"));
+    assertEquals("Dana", data.get(3).get("NAME"));
+    assertFalse(data.get(3).containsKey("NOTE"));
+
+    // the same rows as parsing the whole string
+    String plain = csv.substring(1).replace("\r\n\r\n", "\r\n").replace("3,Dana", "3,Dana,x");
+    List<LinkedHashMap<String,String>> expected = SimpleCSV.parse(plain);
+    data.clear();
+    SimpleCSV.parseLineByLine(new StringReader(plain), null, null).forEachRemaining(data::add);
+    assertEquals(expected, data);
+  }
+
+  @Test public void testParseReaderProjectionAndFilter() throws IOException {
+    Iterator<LinkedHashMap<String,String>> it = SimpleCSV.parseLineByLine(
+        new StringReader(TEST_CSV), Arrays.asList("NAME"),
+        row -> Integer.parseInt(row.get("AGE")) > 26 && row.get("MISSING") == null);
+    assertEquals("Alice", it.next().get("NAME"));
+    LinkedHashMap<String,String> row = it.next();
+    assertEquals(1, row.size());
+    assertEquals("Charles", row.get("NAME"));
+    assertFalse(it.hasNext());
+  }
 }
@@ -0,0 +1,103 @@
+package org.mitre.synthea.helpers;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+public class StatePartitionedCsvTest {
+  private static final String ZIPCODES = "geography/zipcodes.csv";
+
+  @Rule
+  public TemporaryFolder tmpFolder = new TemporaryFolder();
+
+  private String previousDirectory;
+
+  @Before
+  public void setup() {
+    previousDirectory = Config.get("generate.state_index.directory", "");
+    Config.set("generate.state_index.directory", tmpFolder.getRoot().getAbsolutePath());
+    StatePartitionedCsv.clear();
+  }
+
+  @After
+  public void tearDown() {
+    Config.set("generate.state_index.directory", previousDirectory);
+    StatePartitionedCsv.clear();
+  }
+
+  private static List<Map<String, String>> list(Iterator<? extends Map<String, String>> rows) {
+    List<Map<String, String>> list = new ArrayList<Map<String, String>>();
+    rows.forEachRemaining(list::add);
+    return list;
+  }
+
+  @Test
+  public void testIndexedRowsMatchCsv() throws Exception {
+    List<Map<String, String>> expected = new ArrayList<Map<String, String>>();
+    for (Map<String, String> row : SimpleCSV.parse(Utilities.readResource(ZIPCODES))) {
+      if (row.get("USPS").equalsIgnoreCase("Massachusetts")
+          || row.get("USPS").equalsIgnoreCase("Rhode Island")) {
+        expected.add(row);
+      }
+    }
+    assertTrue(expected.size() > 0);
+
+    // compiles the index
+    assertEquals(expected,
+        list(StatePartitionedCsv.read(ZIPCODES, "USPS", "Massachusetts", "rhode island")));
+    File[] files = tmpFolder.getRoot().listFiles();
+    assertEquals(1, files.length);
+
+    // opens the compiled index
+    StatePartitionedCsv.clear();
+    long modified = files[0].lastModified();
+    assertEquals(expected,
+        list(StatePartitionedCsv.read(ZIPCODES, "USPS", "MASSACHUSETTS", null, "Rhode Island")));
+    assertEquals(modified, files[0].lastModified());
+
+    assertEquals(0, list(StatePartitionedCsv.read(ZIPCODES, "USPS", "Atlantis")).size());
+  }
+
+  @Test
+  public void testTruncatedIndexIsCompiledAgain() throws Exception {
+    List<Map<String, String>> expected =
+        list(StatePartitionedCsv.read(ZIPCODES, "USPS", "Massachusetts"));
+    File file = tmpFolder.getRoot().listFiles()[0];
+    long length = file.length();
+
+    // cut the index off in the middle of its table of states
+    try (RandomAccessFile index = new RandomAccessFile(file, "rw")) {
+      index.setLength(40);
+    }
+    StatePartitionedCsv.clear();
+    assertEquals(expected, list(StatePartitionedCsv.read(ZIPCODES, "USPS", "Massachusetts")));
+    assertEquals(length, file.length());
+  }
+
+  @Test
+  public void testFallbackToCsv() throws Exception {
+    List<LinkedHashMap<String, String>> rows = SimpleCSV.parse(Utilities.readResource(ZIPCODES));
+
+    // no state given
+    assertEquals(rows.size(), list(StatePartitionedCsv.read(ZIPCODES, "USPS")).size());
+
+    // no index directory, so the whole file is scanned for the state
+    Config.set("generate.state_index.directory", "");
+    rows.removeIf(row -> !row.get("USPS").equals("Massachusetts"));
+    assertEquals(rows, list(StatePartitionedCsv.read(ZIPCODES, "USPS", "massachusetts")));
+    assertEquals(0, tmpFolder.getRoot().listFiles().length);
+  }
+}
@@ -0,0 +1,83 @@
+package org.mitre.synthea.helpers;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Test;
+
+public class UtilizationTableTest {
+
+  @Test
+  public void testCounts() {
+    UtilizationTable table = new UtilizationTable();
+    table.increment(2019, "encounters");
+    table.increment(2020, "encounters");
+    table.increment(2020, "encounters");
+    table.increment(2020, "procedures");
+    table.increment(1899, "encounters");
+
+    assertEquals(1, table.get(2019, "encounters"));
+    assertEquals(2, table.get(2020, "encounters"));
+    assertEquals(1, table.get(1899, "encounters"));
+    assertEquals(0, table.get(2021, "encounters"));
+    assertEquals(0, table.get(2020, "labs"));
+    assertEquals(4, table.total("encounters"));
+    assertEquals(1, table.total("procedures"));
+    assertEquals(0, table.total("never-used-metric"));
+  }
+
+  @Test
+  public void testConcurrentIncrements() throws Exception {
+    UtilizationTable table = new UtilizationTable();
+    int threads = 8;
+    int increments = 10000;
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    List<Future<?>> futures = new ArrayList<Future<?>>();
+    for (int t = 0; t < threads; t++) {
+      futures.add(executor.submit(() -> {
+        for (int i = 0; i < increments; i++) {
+          table.increment(2000 + (i % 10), "encounters");
+          table.increment(2000, "encounters-" + (i % 3));
+        }
+      }));
+    }
+    for (Future<?> future : futures) {
+      future.get();
+    }
+    executor.shutdown();
+
+    assertEquals(threads * increments, table.total("encounters"));
+    assertEquals(threads * increments / 10, table.get(2005, "encounters"));
+    assertEquals(threads * increments,
+        table.total("encounters-0") + table.total("encounters-1") + table.total("encounters-2"));
+  }
+
+  @Test
+  public void testSerialization() throws Exception {
+    UtilizationTable table = new UtilizationTable();
+    table.increment(2020, "encounters");
+    table.increment(2020, "encounters");
+    table.increment(2021, "prescriptions");
+
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream oos = new ObjectOutputStream(bytes);
+    oos.writeObject(table);
+    oos.close();
+    ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+    UtilizationTable copy = (UtilizationTable) ois.readObject();
+    ois.close();
+
+    assertEquals(2, copy.get(2020, "encounters"));
+    assertEquals(1, copy.get(2021, "prescriptions"));
+    assertEquals(3, copy.total("encounters") + copy.total("prescriptions"));
+  }
+}
@@ -2,9 +2,11 @@ package org.mitre.synthea.modules;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
 
 import org.junit.Test;
 import org.mitre.synthea.world.concepts.GrowthChart;
+import org.mitre.synthea.world.concepts.WeightForLengthChart;
 
 public class GrowthChartTest {
   @Test
@@ -67,4 +69,15 @@ public class GrowthChartTest {
     double maleHead = LifecycleModule.lookupGrowthChart("head", "M", 18, 0.8);
     assertNotEquals(femaleHead, maleHead);
   }
+
+  @Test
+  public void testWeightForLength() throws Exception {
+    WeightForLengthChart chart = WeightForLengthChart.loadChart();
+    // 45.2cm uses the first row that is longer, 45.5cm, where the median is 2.386kg
+    assertEquals(0.5, chart.percentileFor("M", 45.2, 2.38617219), 0.001);
+    assertEquals(0.97, chart.percentileFor("M", 45.2, 3.011338317), 0.001);
+    assertNotEquals(chart.percentileFor("M", 60.0, 6.0), chart.percentileFor("F", 60.0, 6.0));
+    // no row is longer than 103.5cm
+    assertTrue(Double.isNaN(chart.percentileFor("F", 103.5, 17.0)));
+  }
 }
@@ -3,15 +3,23 @@ package org.mitre.synthea.modules;
 import static org.junit.Assert.assertEquals;
 
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Random;
 import java.util.concurrent.TimeUnit;
 
 import org.junit.Before;
 import org.junit.Test;
+import org.mitre.synthea.export.Exporter;
+import org.mitre.synthea.helpers.SimpleCSV;
+import org.mitre.synthea.helpers.Utilities;
 import org.mitre.synthea.world.agents.Payer;
 import org.mitre.synthea.world.agents.Person;
+import org.mitre.synthea.world.concepts.HealthRecord;
 import org.mitre.synthea.world.concepts.HealthRecord.Code;
 import org.mitre.synthea.world.concepts.HealthRecord.Encounter;
+import org.mitre.synthea.world.concepts.HealthRecord.EncounterType;
 import org.mitre.synthea.world.concepts.HealthRecord.Entry;
 
 //test calculate, conditionsInYear, weight
@@ -137,6 +145,170 @@ public class QualityOfLifeTest {
     assertEquals("Diabetes", conditionsYear30.get(0).name);
   }
 
+  @Test
+  public void testIncrementalMatchesFullCalculation() {
+    String[] codes = { "44054006", "192127007", "195967001", "38341003" };
+    for (int year = 36; year < 80; year++) {
+      long time = TimeUnit.DAYS.toMillis((long) (365.25 * year)) + 1;
+      String code = codes[year % codes.length];
+      if (year % 3 == 0) {
+        person.record.encounterStart(time, EncounterType.WELLNESS);
+      }
+      if (person.record.present.containsKey(code)) {
+        person.record.conditionEnd(time, code);
+      } else {
+        Entry condition = person.record.conditionStart(time, code);
+        condition.codes.add(new Code("SNOMED", code, code));
+      }
+      if (year == 60) {
+        // end a condition in the past, which changes years that were already calculated
+        Entry diabetes = person.record.encounters.get(0).conditions.get(2);
+        diabetes.stop = TimeUnit.DAYS.toMillis((long) (365.25 * 40));
+      }
+
+      double[] incremental = QualityOfLifeModule.calculate(person, time);
+      double[] full = calculateFromScratch(person, time);
+
+      assertEquals(full[0], incremental[0], 0.0);
+      assertEquals(full[1], incremental[1], 0.0);
+      assertEquals(full[2], incremental[2], 0.0);
+    }
+  }
+
+  @Test
+  public void testIncrementalMatchesFullCalculationOverLifetime() throws Exception {
+    List<String> codes = new ArrayList<String>();
+    Iterator<? extends Map<String, String>> csv =
+        SimpleCSV.parseLineByLine(Utilities.readResource("gbd_disability_weights.csv"));
+    while (csv.hasNext()) {
+      codes.add(csv.next().get("CODE"));
+    }
+    person.lossOfCareEnabled = true;
+    person.lossOfCareRecord = new HealthRecord(person);
+
+    // weekly time steps from age 35 to 90, with conditions starting and stopping at random,
+    // calculating every quarter as the record changes
+    Random random = new Random(42L);
+    long week = TimeUnit.DAYS.toMillis(7);
+    long start = TimeUnit.DAYS.toMillis((long) (365.25 * 35)) + 1;
+    for (int step = 0; step < 52 * 55; step++) {
+      long time = start + step * week;
+      HealthRecord record = person.defaultRecord;
+      boolean uncovered = (step == 52 * 40);
+      if (uncovered) {
+        // uncovered care changes the percentage of covered care for every year
+        record = person.lossOfCareRecord;
+      }
+      if (uncovered || random.nextInt(8) == 0) {
+        record.encounterStart(time, EncounterType.AMBULATORY);
+        String code = codes.get(random.nextInt(codes.size()));
+        if (record.present.containsKey(code)) {
+          record.conditionEnd(time, code);
+        } else {
+          Entry condition = record.conditionStart(time, code);
+          condition.codes.add(new Code("SNOMED-CT", code, code));
+        }
+      }
+      if (step % 13 == 0) {
+        double[] incremental = QualityOfLifeModule.calculate(person, time);
+        double[] full = calculateFromScratch(person, time);
+        assertEquals(full[0], incremental[0], 0.0);
+        assertEquals(full[1], incremental[1], 0.0);
+        assertEquals(full[2], incremental[2], 0.0);
+      }
+    }
+  }
+
+  /**
+   * The original calculation, which recalculates every year of life from the whole record.
+   */
+  private static double[] calculateFromScratch(Person person, long stop) {
+    double yll = 0.0;
+    double yld = 0.0;
+
+    int age = person.ageInYears(stop);
+    long birthdate = (long) person.attributes.get(Person.BIRTHDATE);
+
+    if (!person.alive(stop)) {
+      yll = ((0.00006 * Math.pow(age, 3))
+          - (0.0054 * Math.pow(age, 2)) - (0.8502 * age) + 86.16);
+    }
+
+    List<Entry> allConditions = new ArrayList<Entry>();
+    int coveredEntries = 0;
+    for (Encounter encounter : person.defaultRecord.encounters) {
+      allConditions.addAll(encounter.conditions);
+      coveredEntries += 1 + encounter.medications.size() + encounter.procedures.size()
+          + encounter.immunizations.size();
+    }
+    int uncoveredEntries = 0;
+    if (person.lossOfCareEnabled) {
+      for (Encounter encounter : person.lossOfCareRecord.encounters) {
+        allConditions.addAll(encounter.conditions);
+        uncoveredEntries += 1 + encounter.medications.size() + encounter.procedures.size()
+            + encounter.immunizations.size();
+      }
+    }
+    if (coveredEntries < 1) {
+      coveredEntries = 1;
+    }
+    // integer division, as in the original
+    double percentageOfCoveredCare = coveredEntries / (coveredEntries + uncoveredEntries);
+
+    double disabilityWeight = 0.0;
+    for (int i = 0; i < age + 1; i++) {
+      long yearStart = birthdate + TimeUnit.DAYS.toMillis((long) (365.25 * i));
+      long yearEnd = birthdate + (TimeUnit.DAYS.toMillis((long) (365.25 * (i + 1) - 1)));
+      disabilityWeight = 0.0;
+      for (Entry condition :
+          QualityOfLifeModule.conditionsInYear(allConditions, yearStart, yearEnd)) {
+        disabilityWeight += QualityOfLifeModule.disabilityWeight(condition.codes.get(0).code,
+            percentageOfCoveredCare);
+      }
+      disabilityWeight = Math.min(1.0, QualityOfLifeModule.weight(disabilityWeight, i + 1));
+      yld += disabilityWeight;
+    }
+
+    double daly = yll + yld;
+    double qaly = age - yld;
+    return new double[] { daly, qaly, 1 - disabilityWeight };
+  }
+
+  @Test
+  public void testFilterForExportBetweenCalls() {
+    String[] codes = { "44054006", "192127007", "195967001", "38341003" };
+    for (int year = 36; year < 60; year++) {
+      long time = TimeUnit.DAYS.toMillis((long) (365.25 * year)) + 1;
+      String code = codes[year % codes.length];
+      person.record.encounterStart(time, EncounterType.WELLNESS);
+      if (person.record.present.containsKey(code)) {
+        person.record.conditionEnd(time, code);
+      } else {
+        Entry condition = person.record.conditionStart(time, code);
+        condition.codes.add(new Code("SNOMED", code, code));
+      }
+    }
+    QualityOfLifeModule module = new QualityOfLifeModule();
+    long time = TimeUnit.DAYS.toMillis((long) (365.25 * 60)) + 1;
+    module.process(person, time);
+
+    // removes old encounters and conditions from the record in place
+    Exporter.filterForExport(person, 5, time);
+    time = TimeUnit.DAYS.toMillis((long) (365.25 * 61)) + 1;
+    module.process(person, time);
+
+    Person fresh = new Person(0);
+    fresh.attributes.put(Person.BIRTHDATE, 0L);
+    fresh.defaultRecord = person.defaultRecord;
+    fresh.record = person.defaultRecord;
+    new QualityOfLifeModule().process(fresh, time);
+
+    assertEquals(fresh.attributes.get("most-recent-daly"),
+        person.attributes.get("most-recent-daly"));
+    assertEquals(fresh.attributes.get("most-recent-qaly"),
+        person.attributes.get("most-recent-qaly"));
+  }
+
   @Test
   public void testWeight() {
     // age 15 with disability weight of 0.45
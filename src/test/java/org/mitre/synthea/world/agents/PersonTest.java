@@ -184,6 +184,35 @@ public class PersonTest {
     person.setVitalSign(VitalSign.HEIGHT, 6.02);
   }
 
+  @Test
+  public void testSymptomTotal() {
+    assertEquals(0, person.symptomTotal());
+    person.setSymptom("Module A", "Cause A", "Fever", 0L, 20, false);
+    person.setSymptom("Module B", "Cause B", "Fever", 0L, 50, false);
+    person.setSymptom("Module A", "Cause A", "Cough", 0L, 30, false);
+    assertEquals(80, person.symptomTotal());
+
+    // the highest source of the most severe symptom is addressed first
+    person.addressLargestSymptom();
+    assertEquals(20, person.getSymptom("Fever"));
+    assertEquals(50, person.symptomTotal());
+    person.addressLargestSymptom();
+    assertEquals(0, person.getSymptom("Cough"));
+    assertEquals(20, person.symptomTotal());
+
+    // a new value from the same source replaces the previous one
+    person.setSymptom("Module A", "Cause A", "Fever", 1L, 10, false);
+    assertEquals(10, person.symptomTotal());
+    person.setSymptom("Module A", "Cause A", "Cough", 1L, 40, false);
+    assertEquals(50, person.symptomTotal());
+
+    int total = 0;
+    for (String type : person.symptoms.keySet()) {
+      total += person.getSymptom(type);
+    }
+    assertEquals(total, person.symptomTotal());
+  }
+
   @Test()
   public void testPersonRecreationSerialDifferentGenerator() throws Exception {
     TestHelper.loadTestProperties();
@@ -7,6 +7,7 @@ import org.mitre.synthea.world.agents.Payer;
 import org.mitre.synthea.world.agents.Person;
 import org.mitre.synthea.world.concepts.HealthRecord.Encounter;
 import org.mitre.synthea.world.concepts.HealthRecord.EncounterType;
+import org.mitre.synthea.world.concepts.HealthRecord.Observation;
 import org.mitre.synthea.world.concepts.HealthRecord.Report;
 
 public class HealthRecordTest {
@@ -75,5 +76,60 @@ public class HealthRecordTest {
     Assert.assertEquals("A", report.observations.get(0).value);
     Assert.assertEquals("B", report.observations.get(1).value);
     Assert.assertEquals("C", report.observations.get(2).value);
-  } 
+  }
+
+  @Test
+  public void testLatestObservation() {
+    Person person = new Person(0L);
+    person.setPayerAtTime(time, noInsurance);
+    HealthRecord record = new HealthRecord(person);
+    Assert.assertNull(record.getLatestObservation("A"));
+
+    record.encounterStart(time, EncounterType.WELLNESS);
+    Observation first = record.observation(time, "A", 1);
+    Assert.assertEquals(first, record.getLatestObservation("A"));
+    // within a single encounter, the first observation of a type is the latest
+    record.observation(time, "A", 2);
+    Assert.assertEquals(first, record.getLatestObservation("A"));
+
+    record.encounterStart(time + 1, EncounterType.WELLNESS);
+    Observation second = record.observation(time + 1, "A", 3);
+    Assert.assertEquals(second, record.getLatestObservation("A"));
+    Assert.assertNull(record.getLatestObservation("B"));
+  }
+
+  @Test
+  public void testLatestObservationAfterMultiObservation() {
+    Person person = new Person(0L);
+    person.setPayerAtTime(time, noInsurance);
+    HealthRecord record = new HealthRecord(person);
+    record.encounterStart(time, EncounterType.WELLNESS);
+    Observation earlier = record.observation(time, "A", 1);
+    record.encounterStart(time + 1, EncounterType.WELLNESS);
+    record.observation(time + 1, "A", 2);
+    record.observation(time + 1, "B", 3);
+    Assert.assertEquals(2, record.getLatestObservation("A").value);
+
+    // the multi-observation moves A and B out of the encounter
+    Observation multi = record.multiObservation(time + 1, "M", 2);
+    Assert.assertEquals(earlier, record.getLatestObservation("A"));
+    Assert.assertNull(record.getLatestObservation("B"));
+    Assert.assertEquals(multi, record.getLatestObservation("M"));
+  }
+
+  @Test
+  public void testLatestObservationAfterFilter() {
+    Person person = new Person(0L);
+    person.setPayerAtTime(time, noInsurance);
+    HealthRecord record = new HealthRecord(person);
+    record.encounterStart(time, EncounterType.WELLNESS);
+    Observation earlier = record.observation(time, "A", 1);
+    Encounter later = record.encounterStart(time + 1, EncounterType.WELLNESS);
+    record.observation(time + 1, "A", 2);
+    Assert.assertEquals(2, record.getLatestObservation("A").value);
+
+    record.encounters.remove(later);
+    record.resetObservationIndex();
+    Assert.assertEquals(earlier, record.getLatestObservation("A"));
+  }
 }
@@ -0,0 +1,101 @@
+package org.mitre.synthea.world.geography.quadtree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class SpatialIndexTest {
+
+  private static List<TestElement> randomElements(Random random, int amount) {
+    List<TestElement> elements = new ArrayList<TestElement>();
+    for (int i = 0; i < amount; i++) {
+      double x = (random.nextDouble() * 20.0) - 10.0;
+      double y = (random.nextDouble() * 20.0) - 10.0;
+      elements.add(new TestElement(x, y));
+    }
+    return elements;
+  }
+
+  @Test
+  public void testEmpty() {
+    SpatialIndex<TestElement> index =
+        new SpatialIndex<TestElement>(Collections.<TestElement>emptyList());
+    TestElement point = new TestElement(0, 0);
+    Assert.assertEquals(0, index.size());
+    Assert.assertTrue(index.query(point, 10.0).isEmpty());
+    Assert.assertTrue(index.nearest(point, 1, 10.0, e -> true).isEmpty());
+  }
+
+  @Test
+  public void testQueryMatchesQuadTree() {
+    Random random = new Random(42L);
+    List<TestElement> elements = randomElements(random, 5000);
+    QuadTree tree = new QuadTree();
+    for (TestElement element : elements) {
+      tree.insert(element);
+    }
+    SpatialIndex<TestElement> index = new SpatialIndex<TestElement>(elements);
+    Assert.assertEquals(elements.size(), index.size());
+
+    for (int i = 0; i < 100; i++) {
+      TestElement point = new TestElement(
+          (random.nextDouble() * 20.0) - 10.0, (random.nextDouble() * 20.0) - 10.0);
+      double radius = random.nextDouble() * 2.0;
+      List<TestElement> expected = new ArrayList<TestElement>();
+      for (QuadTreeElement element : tree.query(point, radius)) {
+        expected.add((TestElement) element);
+      }
+      expected.sort(Comparator.comparingInt(elements::indexOf));
+      Assert.assertEquals(expected, index.query(point, radius));
+    }
+  }
+
+  @Test
+  public void testNearest() {
+    Random random = new Random(7L);
+    List<TestElement> elements = randomElements(random, 5000);
+    SpatialIndex<TestElement> index = new SpatialIndex<TestElement>(elements);
+
+    for (int i = 0; i < 100; i++) {
+      TestElement point = new TestElement(
+          (random.nextDouble() * 20.0) - 10.0, (random.nextDouble() * 20.0) - 10.0);
+      List<TestElement> expected = new ArrayList<TestElement>();
+      for (TestElement element : elements) {
+        if (element.getX() > 0 && point.distance(element) <= 3.0) {
+          expected.add(element);
+        }
+      }
+      expected.sort(Comparator.comparingDouble(point::distance));
+      expected = expected.subList(0, Math.min(5, expected.size()));
+
+      List<TestElement> nearest = index.nearest(point, 5, 3.0, e -> e.getX() > 0);
+      Assert.assertEquals(expected, nearest);
+    }
+  }
+
+  @Test
+  public void testNearestIncludesTies() {
+    List<TestElement> elements = new ArrayList<TestElement>();
+    for (int i = 0; i < 50; i++) {
+      elements.add(new TestElement(i, i));
+    }
+    TestElement first = new TestElement(1.0, 0.0);
+    TestElement second = new TestElement(0.0, 1.0);
+    elements.add(first);
+    elements.add(second);
+    SpatialIndex<TestElement> index = new SpatialIndex<TestElement>(elements);
+
+    TestElement point = new TestElement(0.0, 0.0);
+    List<TestElement> nearest = index.nearest(point, 1, 10.0, e -> e.getX() != e.getY());
+    Assert.assertEquals(2, nearest.size());
+    Assert.assertSame(first, nearest.get(0));
+    Assert.assertSame(second, nearest.get(1));
+
+    Assert.assertTrue(index.nearest(point, 1, 0.5, e -> e.getX() != e.getY()).isEmpty());
+  }
+}